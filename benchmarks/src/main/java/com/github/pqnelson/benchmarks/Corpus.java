@@ -0,0 +1,128 @@
+package com.github.pqnelson.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Synthetic inputs for the reader benchmarks.
+ *
+ * <p>Each shape stresses a different part of the reader: token
+ * building, whitespace skipping, reader macro dispatch, and the
+ * recursion through {@code AccumulatorReaderMacro}. Generation is
+ * seeded, so two runs with the same parameters read the same text.</p>
+ */
+public enum Corpus {
+    /**
+     * Many short atoms separated by single spaces and the odd newline.
+     */
+    FLAT_ATOMS {
+        @Override
+        void appendForm(final StringBuilder out, final Random random,
+                        final int depth) {
+            out.append(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+            out.append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+    },
+    /**
+     * Atoms several hundred characters long, like quoted data blobs.
+     */
+    LONG_TOKENS {
+        @Override
+        void appendForm(final StringBuilder out, final Random random,
+                        final int depth) {
+            final int length = 256 + random.nextInt(256);
+            for (int i = 0; i < length; i++) {
+                out.append((char) ('a' + random.nextInt(26)));
+            }
+            out.append('\n');
+        }
+    },
+    /**
+     * Flat lists with a hundred or so elements each.
+     */
+    WIDE_LISTS {
+        @Override
+        void appendForm(final StringBuilder out, final Random random,
+                        final int depth) {
+            out.append('(');
+            final int width = 64 + random.nextInt(64);
+            for (int i = 0; i < width; i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+            }
+            out.append(")\n");
+        }
+    },
+    /**
+     * Rows of integers and decimals, like a numeric data file.
+     */
+    NUMBERS {
+        @Override
+        void appendForm(final StringBuilder out, final Random random,
+                        final int depth) {
+            for (int i = 0; i < 8; i++) {
+                if (0 == i % 2) {
+                    out.append(random.nextInt(2000) - 500);
+                } else {
+                    out.append(random.nextInt(100000) / 100.0);
+                }
+                out.append(' ');
+            }
+            out.append('\n');
+        }
+    },
+    /**
+     * Lists nested {@code depth} levels deep.
+     */
+    DEEP_NESTING {
+        @Override
+        void appendForm(final StringBuilder out, final Random random,
+                        final int depth) {
+            for (int i = 0; i < depth; i++) {
+                out.append('(').append(SYMBOLS[i % SYMBOLS.length]).append(' ');
+            }
+            for (int i = 0; i < depth; i++) {
+                out.append(')');
+            }
+            out.append('\n');
+        }
+    };
+
+    /**
+     * The vocabulary used for the short atoms.
+     */
+    private static final String[] SYMBOLS = {
+        "defun", "let", "lambda", "if", "cond", "car", "cdr", "cons",
+        "x", "y", "acc", "nil", "t", "42", "-17", "3.14159", "foo-bar",
+        "*global*", "+", "-", "list", "quote", "setq", "progn"
+    };
+
+    /**
+     * Append a single top-level form of this shape.
+     *
+     * @param out The buffer receiving the form.
+     * @param random The seeded source of variation.
+     * @param depth The nesting depth, only used by {@link #DEEP_NESTING}.
+     */
+    abstract void appendForm(StringBuilder out, Random random, int depth);
+
+    /**
+     * Generate roughly {@code size} characters of this shape.
+     *
+     * <p>Only whole forms are emitted, so the result may overshoot the
+     * requested size by at most one form.</p>
+     *
+     * @param size The approximate number of characters wanted.
+     * @param depth The nesting depth for {@link #DEEP_NESTING}.
+     * @return The generated Lisp source.
+     */
+    public String generate(final int size, final int depth) {
+        StringBuilder out = new StringBuilder(size + 1024);
+        Random random = new Random(0x5EEDL + this.ordinal());
+        while (out.length() < size) {
+            this.appendForm(out, random, depth);
+        }
+        return out.toString();
+    }
+}
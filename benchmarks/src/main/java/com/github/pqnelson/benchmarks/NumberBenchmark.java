@@ -0,0 +1,116 @@
+package com.github.pqnelson.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.pqnelson.FormSink;
+import com.github.pqnelson.ReadTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading a numeric data file: numbers as strings parsed afterwards,
+ * numbers recognized by the read table, and numbers delivered as
+ * primitives.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumberBenchmark {
+    /**
+     * Approximate size of the input, in characters.
+     */
+    @Param({"1048576"})
+    private int size;
+
+    /**
+     * The generated input.
+     */
+    private String text;
+
+    /**
+     * Generate the corpus once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.text = Corpus.NUMBERS.generate(this.size, 0);
+    }
+
+    /**
+     * Baseline: read tokens, then parse them as the callers used to.
+     *
+     * @param hole Sink for the numbers read.
+     */
+    @Benchmark
+    public void parseStrings(final Blackhole hole) {
+        ReadTable table = new ReadTable(this.text);
+        Object form;
+        while (null != (form = table.read())) {
+            String token = (String) form;
+            if (token.indexOf('.') >= 0) {
+                hole.consume(Double.parseDouble(token));
+            } else {
+                hole.consume(Long.parseLong(token));
+            }
+        }
+    }
+
+    /**
+     * Numbers recognized by the read table, boxed.
+     *
+     * @param hole Sink for the numbers read.
+     */
+    @Benchmark
+    public void numericLiterals(final Blackhole hole) {
+        ReadTable table = new ReadTable(this.text);
+        table.setNumericLiterals(true);
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+        }
+    }
+
+    /**
+     * Numbers recognized by the read table, as primitives.
+     *
+     * @param hole Sink for the numbers read.
+     */
+    @Benchmark
+    public void primitiveSink(final Blackhole hole) {
+        ReadTable table = new ReadTable(this.text);
+        table.setNumericLiterals(true);
+        FormSink sink = new FormSink() {
+                @Override
+                public void accept(final Object form) {
+                    hole.consume(form);
+                }
+
+                @Override
+                public void acceptLong(final long value) {
+                    hole.consume(value);
+                }
+
+                @Override
+                public void acceptDouble(final double value) {
+                    hole.consume(value);
+                }
+            };
+        while (table.readInto(sink)) {
+            continue;
+        }
+    }
+}
\ No newline at end of file
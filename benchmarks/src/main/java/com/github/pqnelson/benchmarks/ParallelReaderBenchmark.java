@@ -0,0 +1,93 @@
+package com.github.pqnelson.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.pqnelson.AccumulatorReaderMacro;
+import com.github.pqnelson.ParallelReader;
+import com.github.pqnelson.ReadTable;
+import com.github.pqnelson.SingleCharReaderMacro;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to read a whole large text, sequentially and with
+ * {@code ParallelReader} on the common pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelReaderBenchmark {
+    /**
+     * The shape of the synthetic input.
+     */
+    @Param({"WIDE_LISTS", "FLAT_ATOMS"})
+    private Corpus corpus;
+
+    /**
+     * Approximate size of the input, in characters.
+     */
+    @Param({"16777216"})
+    private int size;
+
+    /**
+     * The generated input.
+     */
+    private String text;
+
+    /**
+     * The parallel reader, with the usual list syntax bound.
+     */
+    private ParallelReader parallel;
+
+    /**
+     * Generate the corpus once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.text = this.corpus.generate(this.size, 0);
+        this.parallel = new ParallelReader();
+        this.parallel.addMacro(')', new SingleCharReaderMacro(")"));
+        this.parallel.addMacro('(', new AccumulatorReaderMacro(")"));
+    }
+
+    /**
+     * Read on one thread, keeping every form like the parallel reader.
+     *
+     * @return The forms read.
+     */
+    @Benchmark
+    public Object sequential() {
+        ReadTable table = new ReadTable(this.text);
+        table.addMacro(')', new SingleCharReaderMacro(")"));
+        table.addMacro('(', new AccumulatorReaderMacro(")"));
+        List<Object> forms = new ArrayList<>();
+        table.stream().forEach(forms::add);
+        return forms;
+    }
+
+    /**
+     * Read on the common pool.
+     *
+     * @return The forms read.
+     */
+    @Benchmark
+    public Object parallel() {
+        return this.parallel.readAll(this.text);
+    }
+}
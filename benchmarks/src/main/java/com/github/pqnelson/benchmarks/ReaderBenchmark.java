@@ -0,0 +1,238 @@
+package com.github.pqnelson.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.pqnelson.AccumulatorReaderMacro;
+import com.github.pqnelson.FormStats;
+import com.github.pqnelson.LineNumberCounter;
+import com.github.pqnelson.NaiveReadTable;
+import com.github.pqnelson.ReadTable;
+import com.github.pqnelson.SingleCharReaderMacro;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of reading a whole synthetic corpus.
+ *
+ * <p>Each invocation reads every top-level form of the corpus. The
+ * auxiliary {@link Throughput} counters report forms and bytes consumed,
+ * so the secondary results are forms/sec and bytes/sec. Allocation per
+ * form is {@code gc.alloc.rate.norm} from {@code -prof gc} divided by
+ * the {@code forms} count for one operation.</p>
+ *
+ * <pre>
+ * $ java -jar benchmarks/target/benchmarks.jar ReaderBenchmark \
+ *       -p corpus=WIDE_LISTS -p size=4194304 -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xss16m"})
+@State(Scope.Benchmark)
+public class ReaderBenchmark {
+    /**
+     * The shape of the synthetic input.
+     */
+    @Param({"FLAT_ATOMS", "LONG_TOKENS", "WIDE_LISTS", "DEEP_NESTING"})
+    private Corpus corpus;
+
+    /**
+     * Approximate size of the input, in characters.
+     */
+    @Param({"65536", "1048576"})
+    private int size;
+
+    /**
+     * Nesting depth for the {@code DEEP_NESTING} corpus.
+     */
+    @Param({"256"})
+    private int depth;
+
+    /**
+     * The generated input.
+     */
+    private String text;
+
+    /**
+     * Generate the corpus once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.text = this.corpus.generate(this.size, this.depth);
+    }
+
+    /**
+     * Per-iteration counters, reported by JMH as rates.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        /**
+         * Top-level forms read.
+         */
+        public long forms;
+        /**
+         * Characters consumed; ASCII corpora, so also bytes.
+         */
+        public long bytes;
+
+        /**
+         * Reset the counters before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            this.forms = 0;
+            this.bytes = 0;
+        }
+    }
+
+    /**
+     * A read table with the usual list syntax bound.
+     *
+     * @param text The input to read.
+     * @return A read table treating parentheses as lists.
+     */
+    private static ReadTable listTable(final String text) {
+        ReadTable table = new ReadTable(text);
+        table.addMacro(')', new SingleCharReaderMacro(")"));
+        table.addMacro('(', new AccumulatorReaderMacro(")"));
+        return table;
+    }
+
+    /**
+     * Baseline: whitespace-delimited tokens, no reader macros at all.
+     *
+     * @param counters The per-iteration counters.
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void naiveReadTable(final Throughput counters, final Blackhole hole) {
+        NaiveReadTable table = new NaiveReadTable(this.text);
+        long forms = 0;
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+            forms++;
+        }
+        counters.forms += forms;
+        counters.bytes += this.text.length();
+    }
+
+    /**
+     * Read lists through {@code AccumulatorReaderMacro}.
+     *
+     * @param counters The per-iteration counters.
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void readTable(final Throughput counters, final Blackhole hole) {
+        ReadTable table = listTable(this.text);
+        long forms = 0;
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+            forms++;
+        }
+        counters.forms += forms;
+        counters.bytes += this.text.length();
+    }
+
+    /**
+     * Read lists with the bindings compiled into a dispatch table.
+     *
+     * @param counters The per-iteration counters.
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void readTableCompiled(final Throughput counters,
+                                  final Blackhole hole) {
+        ReadTable table = listTable(this.text);
+        table.setCompiledLexer(true);
+        long forms = 0;
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+            forms++;
+        }
+        counters.forms += forms;
+        counters.bytes += this.text.length();
+    }
+
+    /**
+     * Skip every form, measuring instead of building it.
+     *
+     * @param counters The per-iteration counters.
+     * @param hole Sink for the statistics.
+     */
+    @Benchmark
+    public void readTableSkip(final Throughput counters, final Blackhole hole) {
+        ReadTable table = listTable(this.text);
+        FormStats stats = new FormStats();
+        long forms = 0;
+        while (table.skip(stats)) {
+            hole.consume(stats.getAtoms());
+            forms++;
+        }
+        counters.forms += forms;
+        counters.bytes += this.text.length();
+    }
+
+    /**
+     * Read lists with an explicit stack instead of recursion.
+     *
+     * @param counters The per-iteration counters.
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void readTableIterative(final Throughput counters,
+                                   final Blackhole hole) {
+        ReadTable table = listTable(this.text);
+        table.setIterativeLists(true);
+        long forms = 0;
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+            forms++;
+        }
+        counters.forms += forms;
+        counters.bytes += this.text.length();
+    }
+
+    /**
+     * Read lists while counting lines with {@code LineNumberCounter}.
+     *
+     * @param counters The per-iteration counters.
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void readTableWithLineNumbers(final Throughput counters,
+                                         final Blackhole hole) {
+        ReadTable table = listTable(this.text);
+        LineNumberCounter lines = new LineNumberCounter();
+        table.addMacro('\n', lines);
+        long forms = 0;
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+            forms++;
+        }
+        hole.consume(lines.getLine());
+        counters.forms += forms;
+        counters.bytes += this.text.length();
+    }
+}
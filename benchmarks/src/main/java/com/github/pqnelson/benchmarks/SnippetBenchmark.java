@@ -0,0 +1,85 @@
+package com.github.pqnelson.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.pqnelson.AccumulatorReaderMacro;
+import com.github.pqnelson.ReadTableDefinition;
+import com.github.pqnelson.ReadTablePool;
+import com.github.pqnelson.SingleCharReaderMacro;
+import com.github.pqnelson.SnippetCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a short, repeated snippet: afresh, with a pooled read table,
+ * and through a {@code SnippetCache}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnippetBenchmark {
+    /**
+     * A typical request template.
+     */
+    private static final String SNIPPET =
+        "(select (user id name) (where (= id 42)) (limit 10))";
+
+    /**
+     * The usual list syntax.
+     */
+    private final ReadTableDefinition lisp = ReadTableDefinition.builder()
+        .addMacro(')', new SingleCharReaderMacro(")"))
+        .addMacro('(', new AccumulatorReaderMacro(")"))
+        .build();
+
+    /**
+     * The cache, shared by every benchmark thread.
+     */
+    private final SnippetCache cache = new SnippetCache(1 << 20);
+
+    /**
+     * Each benchmark thread's reusable read table.
+     */
+    private final ReadTablePool pool = new ReadTablePool(this.lisp);
+
+    /**
+     * Baseline: lex the snippet every time.
+     *
+     * @return The form read.
+     */
+    @Benchmark
+    public Object fresh() {
+        return this.lisp.newReader(SNIPPET).read();
+    }
+
+    /**
+     * Lex the snippet every time, with a reset read table.
+     *
+     * @return The form read.
+     */
+    @Benchmark
+    public Object pooled() {
+        return this.pool.read(SNIPPET);
+    }
+
+    /**
+     * Look the snippet up in the cache.
+     *
+     * @return The form read.
+     */
+    @Benchmark
+    public Object cached() {
+        return this.cache.read(this.lisp, SNIPPET);
+    }
+}
\ No newline at end of file
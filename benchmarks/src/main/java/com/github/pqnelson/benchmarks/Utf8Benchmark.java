@@ -0,0 +1,108 @@
+package com.github.pqnelson.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.github.pqnelson.AccumulatorReaderMacro;
+import com.github.pqnelson.ReadTable;
+import com.github.pqnelson.ReadTableDefinition;
+import com.github.pqnelson.SingleCharReaderMacro;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading UTF-8 encoded bytes: through an {@code InputStreamReader},
+ * and decoded by the read table's own UTF-8 reader.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Utf8Benchmark {
+    /**
+     * The shape of the synthetic input.
+     */
+    @Param({"LONG_TOKENS", "WIDE_LISTS"})
+    private Corpus corpus;
+
+    /**
+     * Approximate size of the input, in characters.
+     */
+    @Param({"1048576"})
+    private int size;
+
+    /**
+     * The usual list syntax, compiled.
+     */
+    private final ReadTableDefinition lisp = ReadTableDefinition.builder()
+        .addMacro(')', new SingleCharReaderMacro(")"))
+        .addMacro('(', new AccumulatorReaderMacro(")"))
+        .compiledLexer(true)
+        .build();
+
+    /**
+     * The generated input, encoded.
+     */
+    private byte[] bytes;
+
+    /**
+     * Generate the corpus once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.bytes = this.corpus.generate(this.size, 256)
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read every form.
+     *
+     * @param table The read table.
+     * @param hole Sink for the forms read.
+     */
+    private static void drain(final ReadTable table, final Blackhole hole) {
+        Object form;
+        while (null != (form = table.read())) {
+            hole.consume(form);
+        }
+    }
+
+    /**
+     * Baseline: decode with the JDK's decoder.
+     *
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void inputStreamReader(final Blackhole hole) {
+        drain(this.lisp.newReader(new InputStreamReader(
+            new ByteArrayInputStream(this.bytes), StandardCharsets.UTF_8)),
+              hole);
+    }
+
+    /**
+     * Decode with the ASCII fast lane.
+     *
+     * @param hole Sink for the forms read.
+     */
+    @Benchmark
+    public void utf8Reader(final Blackhole hole) {
+        drain(this.lisp.newReader(new ByteArrayInputStream(this.bytes)),
+              hole);
+    }
+}
\ No newline at end of file
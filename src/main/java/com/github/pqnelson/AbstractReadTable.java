@@ -1,5 +1,12 @@
 package com.github.pqnelson;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Since we are exploring the "space" of Lisp readers, it helps to have
  * an abstract base class to use when writing the {@code ReaderMacro} interface.
@@ -17,4 +24,75 @@ public abstract class AbstractReadTable {
      * @return The Lisp data as a Java object.
      */
     public abstract Object read();
+
+    /**
+     * Give a collection just read by a reader macro the chance to be
+     * replaced by a shared, equal one. Reader macros building
+     * collections call this on each before returning it.
+     *
+     * @param coll The collection just read.
+     * @return The collection to return in its place; by default
+     *         {@code coll} itself.
+     */
+    protected List<Object> canonicalize(final List<Object> coll) {
+        return coll;
+    }
+
+    /**
+     * Skip over the next form, measuring it instead of returning it.
+     *
+     * <p>This reads the form and counts what was read, so it saves
+     * nothing; read tables override it to walk the form without
+     * building it. The extent is unknown here, and left at
+     * {@code -1}.</p>
+     *
+     * @param stats Overwritten with the statistics of the form skipped.
+     * @return False if the input was exhausted before any form.
+     */
+    public boolean skip(final FormStats stats) {
+        stats.clear();
+        final Object form = this.read();
+        if (null == form) {
+            return false;
+        }
+        stats.count(form, 0);
+        return true;
+    }
+
+    /**
+     * A lazy spliterator over the remaining top-level forms.
+     *
+     * <p>Forms are read one at a time as the spliterator is advanced.
+     * It is {@code ORDERED} and {@code NONNULL}, and reading through it
+     * consumes the forms from {@code this} read table.</p>
+     *
+     * @return A spliterator reading forms from {@code this}.
+     */
+    public Spliterator<Object> spliterator() {
+        return new FormSpliterator(this);
+    }
+
+    /**
+     * A lazy iterator over the remaining top-level forms.
+     *
+     * @return An iterator reading forms from {@code this}.
+     */
+    public Iterator<Object> iterator() {
+        return Spliterators.iterator(this.spliterator());
+    }
+
+    /**
+     * A lazy, sequential stream of the remaining top-level forms.
+     *
+     * <p>Nothing is read until a terminal operation runs, and a
+     * short-circuiting one like {@code findFirst()} reads no further
+     * than it needs. The stream may be made parallel; batches of forms
+     * are then read off the front and handed to other threads, but the
+     * reading itself stays sequential.</p>
+     *
+     * @return A stream reading forms from {@code this}.
+     */
+    public Stream<Object> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
 }
\ No newline at end of file
@@ -2,10 +2,12 @@ package com.github.pqnelson;
 
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Collect values read until a delimiting token is encountered, then
- * return the collected values as an {@code ArrayList}.
+ * return the collected values as an {@code ArrayList}, or in another
+ * {@link ListRepresentation}.
  */
 public class AccumulatorReaderMacro implements ReaderMacro {
     /**
@@ -13,6 +15,11 @@ public class AccumulatorReaderMacro implements ReaderMacro {
      */
     private final String stopToken;
 
+    /**
+     * How the collected values are returned.
+     */
+    private final ListRepresentation representation;
+
     /**
      * Construct an accumulator reader macro, using the specific
      * character as a standalone stopping token.
@@ -33,17 +40,68 @@ public class AccumulatorReaderMacro implements ReaderMacro {
      * @param delimiter The "needle" in the haystack.
      */
     public AccumulatorReaderMacro(final String delimiter) {
+        this(delimiter, ListRepresentation.ARRAY_LIST);
+    }
+
+    /**
+     * Construct an accumulator reader macro, using the specific
+     * stopping token, and returning collections in the given
+     * representation.
+     *
+     * @param delimiter The "needle" in the haystack.
+     * @param lists How to represent the collections read.
+     */
+    public AccumulatorReaderMacro(final String delimiter,
+                                  final ListRepresentation lists) {
         this.stopToken = delimiter;
+        this.representation = lists;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The token which ends the collection.
+     */
+    String getStopToken() {
+        return this.stopToken;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return How the collections read are represented.
+     */
+    ListRepresentation getRepresentation() {
+        return this.representation;
+    }
+
+    /**
+     * Turn the collected values into the collection returned.
+     *
+     * @param coll The values collected.
+     * @return The collection, in this macro's representation.
+     */
+    List<Object> collect(final ArrayList<Object> coll) {
+        switch (this.representation) {
+        case COMPACT:
+            final Object[] elements = coll.toArray();
+            return CompactLists.of(elements, elements.length);
+        case CONS:
+            return Cons.of(coll.toArray(), coll.size());
+        default:
+            return coll;
+        }
     }
 
     /**
      * Accumulate a collection of values until the stopping token is
-     * read, then return the {@code List} of values.
+     * read, then return the {@code List} of values, as canonicalized by
+     * the table.
      *
      * @param stream The underlying input stream.
      * @param table The Lisp Reader invoking {@code this} reader macro.
      * @return {@code null} if the table is finished, otherwise it returns
-     *         an {@code ArrayList} of values from {@code table.read()}.
+     *         a {@code List} of values from {@code table.read()}.
      */
     @Override
     public Object apply(final Reader stream, final AbstractReadTable table) {
@@ -62,6 +120,6 @@ public class AccumulatorReaderMacro implements ReaderMacro {
             }
         }
 
-        return coll;
+        return table.canonicalize(this.collect(coll));
     }
 }
\ No newline at end of file
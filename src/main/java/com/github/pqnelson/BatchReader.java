@@ -0,0 +1,264 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Read many independent documents concurrently.
+ *
+ * <p>Each document is read to the end by its own task, with a read
+ * table for the shared definition, so the reader macros must be
+ * thread-safe, as for {@link ParallelReader}. The results come back in
+ * the order the documents were given, one {@link Result} per document.
+ * A document whose reader fails, or whose reader macro throws anything,
+ * errors included, is reported as a failure in its result; the rest of
+ * the batch carries on.</p>
+ *
+ * <p>By default the tasks run on virtual threads, which suit sources
+ * that block, when the runtime has them (Java 21 on); otherwise on a
+ * shared pool of daemon threads. At most a fixed number of documents
+ * are read at once by each {@code BatchReader}, however many batches
+ * are in progress, so a batch of thousands of sockets does not open
+ * them all at once. The read tables are kept on a free list shared by
+ * the tasks, rather than one per thread as in a {@link ReadTablePool},
+ * since a virtual thread reads only one document; so no more tables
+ * are ever created than documents may be read at once.</p>
+ */
+public final class BatchReader {
+    /**
+     * How many documents are read at once, by default.
+     */
+    private static final int DEFAULT_CONCURRENCY = 64;
+
+    /**
+     * How the documents are read.
+     */
+    private final ReadTableDefinition definition;
+
+    /**
+     * Read tables not in use, reset to empty input; never more than
+     * there are permits.
+     */
+    private final BlockingQueue<ReadTable> idle;
+
+    /**
+     * Runs the tasks.
+     */
+    private final Executor executor;
+
+    /**
+     * One permit per document which may be read at once.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Create a batch reader on the default executor.
+     *
+     * @param definition The reader macros and options for every document.
+     */
+    public BatchReader(final ReadTableDefinition definition) {
+        this(definition, DefaultExecutor.INSTANCE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create a batch reader on the given executor.
+     *
+     * @param definition The reader macros and options for every document.
+     * @param tasks Runs one task per document.
+     * @param maxConcurrency The most documents read at once.
+     */
+    public BatchReader(final ReadTableDefinition definition,
+                       final Executor tasks, final int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        this.definition = definition;
+        this.idle = new ArrayBlockingQueue<>(maxConcurrency);
+        this.executor = tasks;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Read every form of every document, closing each once read.
+     *
+     * <p>Documents are handed to the executor in order, as permits
+     * allow, and this waits for all of them. If interrupted, documents
+     * already started still run to the end, but those not yet started
+     * are neither read nor closed.</p>
+     *
+     * @param documents The documents to read.
+     * @return One result per document, in the same order.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public List<Result> readAll(final Collection<? extends Reader> documents)
+        throws InterruptedException {
+        final Result[] results = new Result[documents.size()];
+        final CountDownLatch done = new CountDownLatch(results.length);
+        int index = 0;
+        for (Reader document : documents) {
+            final int slot = index++;
+            this.permits.acquire();
+            try {
+                this.executor.execute(() -> {
+                        try {
+                            results[slot] = this.read(document);
+                        } catch (Throwable e) {
+                            // failing before reading, so no slot is null
+                            results[slot] =
+                                new Result(Collections.emptyList(), e);
+                        } finally {
+                            this.permits.release();
+                            done.countDown();
+                        }
+                    });
+            } catch (RejectedExecutionException e) {
+                this.permits.release();
+                results[slot] = new Result(Collections.emptyList(), e);
+                done.countDown();
+            }
+        }
+        done.await();
+        return List.of(results);
+    }
+
+    /**
+     * Read one document on this thread.
+     *
+     * @param document The document, closed once read.
+     * @return Its forms, and its failure if any.
+     */
+    private Result read(final Reader document) {
+        final List<Object> forms = new ArrayList<>();
+        Throwable failure = null;
+        ReadTable table = this.idle.poll();
+        if (null == table) {
+            table = this.definition.newReader(document);
+        } else {
+            table.reset(document);
+        }
+        try {
+            Object form;
+            while (null != (form = table.read())) {
+                forms.add(form);
+            }
+            failure = table.inputError();
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            table.reset("");
+            this.idle.offer(table);
+            try {
+                document.close();
+            } catch (IOException e) {
+                if (null == failure) {
+                    failure = e;
+                }
+            }
+        }
+        return new Result(Collections.unmodifiableList(forms), failure);
+    }
+
+    /**
+     * The outcome of reading one document.
+     */
+    public static final class Result {
+        /**
+         * The forms read, up to any failure.
+         */
+        private final List<Object> forms;
+
+        /**
+         * What cut the document short, or {@code null}.
+         */
+        private final Throwable failure;
+
+        /**
+         * Record an outcome.
+         *
+         * @param documentForms The forms read.
+         * @param cause What cut the document short, or {@code null}.
+         */
+        Result(final List<Object> documentForms, final Throwable cause) {
+            this.forms = documentForms;
+            this.failure = cause;
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The forms read, in order; for a failed document,
+         *         those read before it failed.
+         */
+        public List<Object> getForms() {
+            return this.forms;
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The exception which cut the document short, or
+         *         {@code null} if it was read to the end.
+         */
+        public Throwable getFailure() {
+            return this.failure;
+        }
+
+        /**
+         * A predicate.
+         *
+         * @return True if the document was read to the end.
+         */
+        public boolean isSuccess() {
+            return null == this.failure;
+        }
+    }
+
+    /**
+     * The default executor, created when first needed; shared with
+     * {@link FormPublisher}.
+     */
+    static final class DefaultExecutor {
+        /**
+         * Virtual threads if the runtime has them, daemon threads if not.
+         */
+        static final Executor INSTANCE = create();
+
+        /**
+         * Not instantiated.
+         */
+        private DefaultExecutor() {
+        }
+
+        /**
+         * Look for virtual threads, which this library is not compiled
+         * against.
+         *
+         * @return The executor.
+         */
+        private static Executor create() {
+            try {
+                return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(task -> {
+                        final Thread thread = new Thread(task, "lisp-reader");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            }
+        }
+    }
+}
\ No newline at end of file
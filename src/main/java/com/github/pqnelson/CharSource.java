@@ -0,0 +1,705 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * An unsynchronized, buffered source of characters for the read loop.
+ *
+ * <p>This replaces the {@code PushbackReader} the read tables used to
+ * wrap around their input. {@code PushbackReader} takes a lock on every
+ * {@code read()} and {@code unread()}, and checking for the end of input
+ * cost a read plus an unread. Here everything happens on a plain
+ * {@code char[]} window: reading, peeking and pushing back the last
+ * character are an array access and an index bump.</p>
+ *
+ * <p>It is still a {@code java.io.Reader}, so reader macros keep
+ * receiving a {@code Reader} and may read from it as before. Reader
+ * macros living in this package may also cast it to {@code CharSource}
+ * to {@link #peek()} or {@link #unread(int)}. Like the read tables it
+ * serves, a {@code CharSource} must be confined to a single thread.</p>
+ *
+ * <p>The source also tracks its position: the offset (in UTF-16
+ * characters) from the start of input, the line (counting {@code '\n'}
+ * characters) and the column. This costs one comparison per character
+ * read. Pushing back the newline just read, and resetting to a mark,
+ * restore the line properly; pushing back other characters than those
+ * read leaves the position approximate.</p>
+ *
+ * <p>An {@code IOException} from the underlying reader is treated as
+ * the end of input, as the read tables always did; the exception is
+ * kept and available from {@link #error()}.</p>
+ */
+final class CharSource extends Reader {
+    /**
+     * Default size of the character window.
+     */
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The underlying reader, or {@code null} when reading a
+     * {@code CharSequence} or once closed.
+     */
+    private Reader in;
+
+    /**
+     * The underlying text, when there is no reader.
+     */
+    private CharSequence text;
+
+    /**
+     * Index of the next character of {@code text} to copy into the window.
+     */
+    private int textPosition;
+
+    /**
+     * Index one past the last character of {@code text} to read.
+     */
+    private int textEnd;
+
+    /**
+     * The character window.
+     */
+    private char[] buf;
+
+    /**
+     * Index of the next character in {@code buf} to be read.
+     */
+    private int pos = 0;
+
+    /**
+     * One past the last valid character in {@code buf}.
+     */
+    private int limit = 0;
+
+    /**
+     * Position saved by {@link #mark(int)}, or {@code -1}.
+     */
+    private int markPos = -1;
+
+    /**
+     * Start of the token being built, or {@code -1}.
+     */
+    private int tokenStart = -1;
+
+    /**
+     * Offset in the input of {@code buf[0]}.
+     */
+    private long base = 0L;
+
+    /**
+     * The line being read, starting from 1.
+     */
+    private int line = 1;
+
+    /**
+     * Offset in the input of the start of the current line.
+     */
+    private long lineStart = 0L;
+
+    /**
+     * Offset of the start of the previous line, so a newline can be
+     * pushed back.
+     */
+    private long previousLineStart = 0L;
+
+    /**
+     * The line at the mark.
+     */
+    private int markLine = 1;
+
+    /**
+     * The start of the line at the mark.
+     */
+    private long markLineStart = 0L;
+
+    /**
+     * Has the underlying input been exhausted?
+     */
+    private boolean eof = false;
+
+    /**
+     * The exception which ended the input early, if any.
+     */
+    private IOException error = null;
+
+    /**
+     * Read characters from a {@code Reader}.
+     *
+     * @param reader The underlying input.
+     */
+    CharSource(final Reader reader) {
+        this.in = reader;
+        this.text = null;
+        this.buf = new char[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Read characters from a {@code CharSequence}, without wrapping it
+     * in a {@code StringReader}.
+     *
+     * @param snippet The underlying input.
+     */
+    CharSource(final CharSequence snippet) {
+        this(snippet, 0, snippet.length());
+    }
+
+    /**
+     * Read a range of a {@code CharSequence}, without copying it out.
+     *
+     * @param snippet The underlying input.
+     * @param start Index of the first character to read.
+     * @param end Index one past the last character to read.
+     */
+    CharSource(final CharSequence snippet, final int start, final int end) {
+        this.in = null;
+        this.text = snippet;
+        this.textPosition = start;
+        this.textEnd = end;
+        this.buf = new char[Math.min(DEFAULT_CAPACITY,
+                                     Math.max(16, end - start))];
+    }
+
+    /**
+     * Start reading another {@code Reader}, keeping the character window.
+     * The previous input is dropped, but not closed.
+     *
+     * @param reader The new underlying input.
+     */
+    void reset(final Reader reader) {
+        this.in = reader;
+        this.text = null;
+        this.textPosition = 0;
+        this.textEnd = 0;
+        this.rewind();
+    }
+
+    /**
+     * Start reading another {@code CharSequence}, keeping the character
+     * window. The previous input is dropped, but not closed.
+     *
+     * @param snippet The new underlying input.
+     */
+    void reset(final CharSequence snippet) {
+        this.in = null;
+        this.text = snippet;
+        this.textPosition = 0;
+        this.textEnd = snippet.length();
+        this.rewind();
+    }
+
+    /**
+     * Forget everything read from the previous input.
+     */
+    private void rewind() {
+        this.pos = 0;
+        this.limit = 0;
+        this.markPos = -1;
+        this.tokenStart = -1;
+        this.base = 0L;
+        this.line = 1;
+        this.lineStart = 0L;
+        this.previousLineStart = 0L;
+        this.markLine = 1;
+        this.markLineStart = 0L;
+        this.eof = false;
+        this.error = null;
+    }
+
+    /**
+     * Read the next character.
+     *
+     * @return The next character, or {@code -1} at the end of input.
+     */
+    @Override
+    public int read() {
+        if (this.pos < this.limit || this.fill()) {
+            final char c = this.buf[this.pos++];
+            if ('\n' == c) {
+                this.newline();
+            }
+            return c;
+        }
+        return -1;
+    }
+
+    /**
+     * Note that a newline was just read.
+     */
+    private void newline() {
+        this.line++;
+        this.previousLineStart = this.lineStart;
+        this.lineStart = this.base + this.pos;
+    }
+
+    /**
+     * Start counting positions from somewhere other than the beginning
+     * of input, when the input is the tail of a larger text. Call this
+     * before reading anything.
+     *
+     * @param offset The offset of the first character.
+     * @param lineNumber The line of the first character.
+     * @param lineOffset The offset of the start of that line.
+     */
+    void startAt(final long offset, final int lineNumber,
+                 final long lineOffset) {
+        this.base = offset - this.pos;
+        this.line = lineNumber;
+        this.lineStart = lineOffset;
+        this.previousLineStart = lineOffset;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The offset of the next character to be read, counted in
+     *         UTF-16 characters from the start of input.
+     */
+    long getOffset() {
+        return this.base + this.pos;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The line of the next character to be read, from 1.
+     */
+    int getLine() {
+        return this.line;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The column of the next character to be read, from 1.
+     */
+    int getColumn() {
+        return (int) (this.base + this.pos - this.lineStart) + 1;
+    }
+
+    /**
+     * Look at the next character without consuming it.
+     *
+     * @return The next character, or {@code -1} at the end of input.
+     */
+    int peek() {
+        if (this.pos < this.limit || this.fill()) {
+            return this.buf[this.pos];
+        }
+        return -1;
+    }
+
+    /**
+     * Test if the input is exhausted.
+     *
+     * @return True if there is nothing left to read.
+     */
+    boolean atEnd() {
+        return this.pos >= this.limit && !this.fill();
+    }
+
+    /**
+     * Push a character back, so it is the next one read.
+     *
+     * <p>Pushing back the character just read is an index decrement.
+     * Pushing back anything else works too, like
+     * {@code PushbackReader.unread}, but without a fixed limit.</p>
+     *
+     * @param c The character to push back; {@code -1} is ignored.
+     */
+    void unread(final int c) {
+        if (-1 == c) {
+            return;
+        }
+        if ('\n' == c) {
+            this.line--;
+            this.lineStart = this.previousLineStart;
+        }
+        if (this.pos > 0) {
+            this.buf[--this.pos] = (char) c;
+            return;
+        }
+        if (this.limit == this.buf.length) {
+            this.buf = Arrays.copyOf(this.buf, 2 * this.buf.length);
+        }
+        System.arraycopy(this.buf, 0, this.buf, 1, this.limit);
+        this.limit++;
+        this.base--;
+        if (this.markPos >= 0) {
+            this.markPos++;
+        }
+        if (this.tokenStart >= 0) {
+            this.tokenStart++;
+        }
+        this.buf[0] = (char) c;
+    }
+
+    /**
+     * Start recording a token at the current position.
+     *
+     * <p>The window keeps every character from here on until
+     * {@link #tokenText()} is called, however long the token.</p>
+     */
+    void markToken() {
+        this.tokenStart = this.pos;
+    }
+
+    /**
+     * Read on to the end of a token: up to, not including, the next
+     * character which is bound or whitespace, or the end of input.
+     *
+     * <p>This runs over the window in bulk, rather than a character at
+     * a time through {@link #read()}, which suits long tokens. Token
+     * characters are never newlines, so the line is unchanged.</p>
+     *
+     * @param lexer The compiled bindings.
+     */
+    void scanToken(final CompiledLexer lexer) {
+        while (true) {
+            final char[] window = this.buf;
+            final int end = this.limit;
+            int p = this.pos;
+            while (p < end) {
+                final char c = window[p];
+                if (c < CompiledLexer.SIZE
+                    ? CompiledLexer.TOKEN != lexer.kind(c)
+                    : lexer.delimits(c)) {
+                    break;
+                }
+                p++;
+            }
+            this.pos = p;
+            if (p < end || !this.fill()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read on to the end of a token, looking each character up in the
+     * bindings.
+     *
+     * @param bindings The reader macro bindings.
+     * @see #scanToken(CompiledLexer)
+     */
+    void scanToken(final MacroTable bindings) {
+        while (true) {
+            final char[] window = this.buf;
+            final int end = this.limit;
+            int p = this.pos;
+            while (p < end) {
+                final char c = window[p];
+                if (null != bindings.get(c) || Character.isWhitespace(c)) {
+                    break;
+                }
+                p++;
+            }
+            this.pos = p;
+            if (p < end || !this.fill()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read past unbound whitespace below U+0100, in bulk, counting the
+     * newlines.
+     *
+     * @param lexer The compiled bindings.
+     */
+    void skipWhitespace(final CompiledLexer lexer) {
+        while (true) {
+            final char[] window = this.buf;
+            final int end = this.limit;
+            int p = this.pos;
+            while (p < end) {
+                final char c = window[p];
+                if (c >= CompiledLexer.SIZE
+                    || CompiledLexer.WHITESPACE != lexer.kind(c)) {
+                    break;
+                }
+                p++;
+                if ('\n' == c) {
+                    this.line++;
+                    this.previousLineStart = this.lineStart;
+                    this.lineStart = this.base + p;
+                }
+            }
+            this.pos = p;
+            if (p < end || !this.fill()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The characters read since {@link #markToken()}, which also ends
+     * the recording.
+     *
+     * @return The token text.
+     */
+    String tokenText() {
+        final String token = new String(this.buf, this.tokenStart,
+                                         this.pos - this.tokenStart);
+        this.tokenStart = -1;
+        return token;
+    }
+
+    /**
+     * The characters read since {@link #markToken()}, shared through an
+     * interner, which also ends the recording.
+     *
+     * @param interner The cache of previously seen tokens.
+     * @return The token text.
+     */
+    String tokenText(final TokenInterner interner) {
+        final String token = interner.intern(this.buf, this.tokenStart,
+                                             this.pos - this.tokenStart);
+        this.tokenStart = -1;
+        return token;
+    }
+
+    /**
+     * Parse the characters read since {@link #markToken()} as a number,
+     * in place. The recording ends if they are one.
+     *
+     * @param parser Where the number is left.
+     * @return What {@link NumberParser#parse(char[], int, int)} returned.
+     */
+    int tokenNumber(final NumberParser parser) {
+        final int kind = parser.parse(this.buf, this.tokenStart,
+                                      this.pos - this.tokenStart);
+        if (NumberParser.NONE != kind) {
+            this.tokenStart = -1;
+        }
+        return kind;
+    }
+
+    /**
+     * Do the characters read since {@link #markToken()} spell a given
+     * string? Ends the recording, without allocating anything.
+     *
+     * @param text The string to compare against, or {@code null}.
+     * @return True if the token equals {@code text}.
+     */
+    boolean tokenEquals(final String text) {
+        final int start = this.tokenStart;
+        this.tokenStart = -1;
+        if (null == text || text.length() != this.pos - start) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != this.buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Refill the window from the underlying input.
+     *
+     * <p>Characters before the current position are discarded, unless
+     * a mark or a token start still needs them; the window grows when
+     * they fill it.</p>
+     *
+     * @return True if at least one character is now available.
+     */
+    private boolean fill() {
+        if (this.eof) {
+            return false;
+        }
+        int keep = this.pos;
+        if (this.markPos >= 0 && this.markPos < keep) {
+            keep = this.markPos;
+        }
+        if (this.tokenStart >= 0 && this.tokenStart < keep) {
+            keep = this.tokenStart;
+        }
+        if (keep > 0) {
+            System.arraycopy(this.buf, keep, this.buf, 0, this.limit - keep);
+            this.limit -= keep;
+            this.pos -= keep;
+            this.base += keep;
+            if (this.markPos >= 0) {
+                this.markPos -= keep;
+            }
+            if (this.tokenStart >= 0) {
+                this.tokenStart -= keep;
+            }
+        }
+        if (this.limit == this.buf.length) {
+            this.buf = Arrays.copyOf(this.buf, 2 * this.buf.length);
+        }
+        final int n = this.underlyingRead(this.buf, this.limit,
+                                          this.buf.length - this.limit);
+        if (n <= 0) {
+            this.eof = true;
+            return false;
+        }
+        this.limit += n;
+        return true;
+    }
+
+    /**
+     * Copy characters out of a {@code CharSequence}, in bulk when it is
+     * a {@code String}.
+     *
+     * @param text The characters.
+     * @param start Index of the first character to copy.
+     * @param end Index after the last character to copy.
+     * @param dest The array to copy into.
+     * @param offset Where to start writing in {@code dest}.
+     */
+    static void getChars(final CharSequence text, final int start,
+                         final int end, final char[] dest,
+                         final int offset) {
+        if (text instanceof String) {
+            ((String) text).getChars(start, end, dest, offset);
+        } else {
+            for (int i = start, j = offset; i < end; i++, j++) {
+                dest[j] = text.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Read directly from the underlying input.
+     *
+     * @param dest The buffer to fill.
+     * @param offset Where to start writing in {@code dest}.
+     * @param length The most characters wanted.
+     * @return The number of characters read, or {@code -1} at the end.
+     */
+    private int underlyingRead(final char[] dest, final int offset,
+                               final int length) {
+        if (null != this.text) {
+            final int n = Math.min(length, this.textEnd - this.textPosition);
+            if (n <= 0) {
+                return -1;
+            }
+            final int end = this.textPosition + n;
+            getChars(this.text, this.textPosition, end, dest, offset);
+            this.textPosition = end;
+            return n;
+        }
+        if (null == this.in) {
+            return -1;
+        }
+        try {
+            int n;
+            do {
+                n = this.in.read(dest, offset, length);
+            } while (0 == n);
+            return n;
+        } catch (IOException e) {
+            this.error = e;
+            return -1;
+        }
+    }
+
+    /**
+     * The exception which cut the input short, if any.
+     *
+     * @return The exception thrown by the underlying reader, or
+     *         {@code null} if none was.
+     */
+    IOException error() {
+        return this.error;
+    }
+
+    /**
+     * Read characters into a portion of an array.
+     *
+     * @param cbuf Destination buffer.
+     * @param off Offset at which to start storing characters.
+     * @param len Maximum number of characters to read.
+     * @return The number of characters read, or {@code -1} at the end.
+     */
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) {
+        if (0 == len) {
+            return 0;
+        }
+        if (this.pos >= this.limit && !this.fill()) {
+            return -1;
+        }
+        final int n = Math.min(len, this.limit - this.pos);
+        System.arraycopy(this.buf, this.pos, cbuf, off, n);
+        for (int i = 0; i < n; i++) {
+            this.pos++;
+            if ('\n' == cbuf[off + i]) {
+                this.newline();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Tell whether a read would not block.
+     *
+     * @return True if characters are buffered, or the input says so.
+     */
+    @Override
+    public boolean ready() throws IOException {
+        return this.pos < this.limit
+            || null != this.text
+            || (null != this.in && this.in.ready());
+    }
+
+    /**
+     * Mark and reset are supported, with no read-ahead limit.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Mark the present position; {@link #reset()} will return to it.
+     *
+     * @param readAheadLimit Ignored, the window grows as needed.
+     */
+    @Override
+    public void mark(final int readAheadLimit) {
+        this.markPos = this.pos;
+        this.markLine = this.line;
+        this.markLineStart = this.lineStart;
+    }
+
+    /**
+     * Return to the most recent mark.
+     *
+     * @throws IOException If the source was never marked.
+     */
+    @Override
+    public void reset() throws IOException {
+        if (this.markPos < 0) {
+            throw new IOException("Stream not marked");
+        }
+        this.pos = this.markPos;
+        this.line = this.markLine;
+        this.lineStart = this.markLineStart;
+    }
+
+    /**
+     * Close the underlying input and drop the window.
+     *
+     * @throws IOException If the underlying reader fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+        this.eof = true;
+        this.pos = 0;
+        this.limit = 0;
+        this.text = null;
+        if (null != this.in) {
+            final Reader old = this.in;
+            this.in = null;
+            old.close();
+        }
+    }
+}
\ No newline at end of file
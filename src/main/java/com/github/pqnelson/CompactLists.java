@@ -0,0 +1,355 @@
+package com.github.pqnelson;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable lists taking no more space than their elements need.
+ *
+ * <p>An {@code ArrayList} read element by element ends up with a backing
+ * array of ten or more slots, plus the list object: about 80 bytes for a
+ * three-element list on a 64-bit JVM with compressed references. Lists
+ * of up to four elements are here single objects with a field per
+ * element (24 bytes for three elements), and longer lists wrap an array
+ * of exactly their size. None of them can be modified.</p>
+ */
+final class CompactLists {
+    /**
+     * Not instantiated.
+     */
+    private CompactLists() {
+    }
+
+    /**
+     * An immutable list of the first elements of an array.
+     *
+     * @param elements The elements; an array of exactly {@code count}
+     * elements is kept rather than copied, so must not be modified.
+     * @param count How many elements to take.
+     * @return The list.
+     */
+    static List<Object> of(final Object[] elements, final int count) {
+        switch (count) {
+        case 0:
+            return Collections.emptyList();
+        case 1:
+            return new List1(elements[0]);
+        case 2:
+            return new List2(elements[0], elements[1]);
+        case 3:
+            return new List3(elements[0], elements[1], elements[2]);
+        case 4:
+            return new List4(elements[0], elements[1], elements[2],
+                             elements[3]);
+        default:
+            if (count == elements.length) {
+                return new Vector(elements);
+            }
+            final Object[] exact = new Object[count];
+            System.arraycopy(elements, 0, exact, 0, count);
+            return new Vector(exact);
+        }
+    }
+
+    /**
+     * Fail for an index outside a list.
+     *
+     * @param index The index asked for.
+     * @param size The size of the list.
+     * @return The exception to throw.
+     */
+    private static IndexOutOfBoundsException outOfBounds(final int index,
+                                                         final int size) {
+        return new IndexOutOfBoundsException("Index: " + index
+                                             + ", Size: " + size);
+    }
+
+    /**
+     * A list of one element.
+     */
+    private static final class List1 extends ImmutableList
+        implements RandomAccess {
+        /**
+         * The element.
+         */
+        private final Object e0;
+
+        /**
+         * Create the list.
+         *
+         * @param first The element.
+         */
+        List1(final Object first) {
+            this.e0 = first;
+        }
+
+        /**
+         * The element at an index.
+         *
+         * @param index The index.
+         * @return The element.
+         */
+        @Override
+        public Object get(final int index) {
+            if (0 == index) {
+                return this.e0;
+            }
+            throw outOfBounds(index, 1);
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of elements.
+         */
+        @Override
+        public int size() {
+            return 1;
+        }
+    }
+
+    /**
+     * A list of two elements.
+     */
+    private static final class List2 extends ImmutableList
+        implements RandomAccess {
+        /**
+         * The first element.
+         */
+        private final Object e0;
+
+        /**
+         * The second element.
+         */
+        private final Object e1;
+
+        /**
+         * Create the list.
+         *
+         * @param first The first element.
+         * @param second The second element.
+         */
+        List2(final Object first, final Object second) {
+            this.e0 = first;
+            this.e1 = second;
+        }
+
+        /**
+         * The element at an index.
+         *
+         * @param index The index.
+         * @return The element.
+         */
+        @Override
+        public Object get(final int index) {
+            switch (index) {
+            case 0:
+                return this.e0;
+            case 1:
+                return this.e1;
+            default:
+                throw outOfBounds(index, 2);
+            }
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of elements.
+         */
+        @Override
+        public int size() {
+            return 2;
+        }
+    }
+
+    /**
+     * A list of three elements.
+     */
+    private static final class List3 extends ImmutableList
+        implements RandomAccess {
+        /**
+         * The first element.
+         */
+        private final Object e0;
+
+        /**
+         * The second element.
+         */
+        private final Object e1;
+
+        /**
+         * The third element.
+         */
+        private final Object e2;
+
+        /**
+         * Create the list.
+         *
+         * @param first The first element.
+         * @param second The second element.
+         * @param third The third element.
+         */
+        List3(final Object first, final Object second, final Object third) {
+            this.e0 = first;
+            this.e1 = second;
+            this.e2 = third;
+        }
+
+        /**
+         * The element at an index.
+         *
+         * @param index The index.
+         * @return The element.
+         */
+        @Override
+        public Object get(final int index) {
+            switch (index) {
+            case 0:
+                return this.e0;
+            case 1:
+                return this.e1;
+            case 2:
+                return this.e2;
+            default:
+                throw outOfBounds(index, 3);
+            }
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of elements.
+         */
+        @Override
+        public int size() {
+            return 3;
+        }
+    }
+
+    /**
+     * A list of four elements.
+     */
+    private static final class List4 extends ImmutableList
+        implements RandomAccess {
+        /**
+         * The first element.
+         */
+        private final Object e0;
+
+        /**
+         * The second element.
+         */
+        private final Object e1;
+
+        /**
+         * The third element.
+         */
+        private final Object e2;
+
+        /**
+         * The fourth element.
+         */
+        private final Object e3;
+
+        /**
+         * Create the list.
+         *
+         * @param first The first element.
+         * @param second The second element.
+         * @param third The third element.
+         * @param fourth The fourth element.
+         */
+        List4(final Object first, final Object second, final Object third,
+              final Object fourth) {
+            this.e0 = first;
+            this.e1 = second;
+            this.e2 = third;
+            this.e3 = fourth;
+        }
+
+        /**
+         * The element at an index.
+         *
+         * @param index The index.
+         * @return The element.
+         */
+        @Override
+        public Object get(final int index) {
+            switch (index) {
+            case 0:
+                return this.e0;
+            case 1:
+                return this.e1;
+            case 2:
+                return this.e2;
+            case 3:
+                return this.e3;
+            default:
+                throw outOfBounds(index, 4);
+            }
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of elements.
+         */
+        @Override
+        public int size() {
+            return 4;
+        }
+    }
+
+    /**
+     * A list backed by an array of exactly its size.
+     */
+    private static final class Vector extends ImmutableList
+        implements RandomAccess {
+        /**
+         * The elements, never modified.
+         */
+        private final Object[] elements;
+
+        /**
+         * Wrap an array, without copying it.
+         *
+         * @param array The elements.
+         */
+        Vector(final Object[] array) {
+            this.elements = array;
+        }
+
+        /**
+         * The element at an index.
+         *
+         * @param index The index.
+         * @return The element.
+         */
+        @Override
+        public Object get(final int index) {
+            return this.elements[index];
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of elements.
+         */
+        @Override
+        public int size() {
+            return this.elements.length;
+        }
+
+        /**
+         * Copy the elements, straight from the array.
+         *
+         * @return The elements, in order.
+         */
+        @Override
+        public Object[] toArray() {
+            return this.elements.clone();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.github.pqnelson;
+
+/**
+ * Reader macro bindings compiled into a dispatch table, so the read
+ * loop branches on a byte instead of calling through an interface.
+ *
+ * <p>For each code point below 256, the table says what the character
+ * does: it is whitespace, part of a token, a
+ * {@code SingleCharReaderMacro} whose token is returned directly, an
+ * {@code AccumulatorReaderMacro} whose collection the read table reads
+ * itself, or a custom reader macro to be called as usual. Only those
+ * two classes exactly are inlined, since a subclass may override
+ * {@code apply}. Code points from 256 up, rare in practice, are looked
+ * up in the bindings as before.</p>
+ *
+ * <p>A compiled lexer describes its bindings as they were when it was
+ * compiled, so a read table compiles a new one whenever its bindings
+ * change. It is immutable otherwise, and may be shared by read tables
+ * on several threads.</p>
+ */
+final class CompiledLexer {
+    /**
+     * Code points strictly below this are compiled.
+     */
+    static final int SIZE = 256;
+
+    /**
+     * A whitespace character without a binding.
+     */
+    static final byte WHITESPACE = 0;
+
+    /**
+     * A character of a token.
+     */
+    static final byte TOKEN = 1;
+
+    /**
+     * A {@code SingleCharReaderMacro}, producing its token.
+     */
+    static final byte SINGLE = 2;
+
+    /**
+     * An {@code AccumulatorReaderMacro}, opening a collection.
+     */
+    static final byte OPEN = 3;
+
+    /**
+     * Any other reader macro, to be called.
+     */
+    static final byte CUSTOM = 4;
+
+    /**
+     * The bindings compiled, for code points from {@code SIZE} up and
+     * for custom reader macros.
+     */
+    private final MacroTable bindings;
+
+    /**
+     * What each code point below {@code SIZE} does.
+     */
+    private final byte[] kinds = new byte[SIZE];
+
+    /**
+     * The token of each {@code SINGLE} code point.
+     */
+    private final String[] tokens = new String[SIZE];
+
+    /**
+     * The reader macro of each {@code OPEN} code point.
+     */
+    private final AccumulatorReaderMacro[] openers =
+        new AccumulatorReaderMacro[SIZE];
+
+    /**
+     * Compile bindings, which must not change afterwards.
+     *
+     * @param macroBindings The reader macro bindings.
+     */
+    CompiledLexer(final MacroTable macroBindings) {
+        this.bindings = macroBindings;
+        for (int c = 0; c < SIZE; c++) {
+            final ReaderMacro macro = macroBindings.get(c);
+            this.kinds[c] = kindOf(c, macro);
+            if (SINGLE == this.kinds[c]) {
+                this.tokens[c] = ((SingleCharReaderMacro) macro).getToken();
+            } else if (OPEN == this.kinds[c]) {
+                this.openers[c] = (AccumulatorReaderMacro) macro;
+            }
+        }
+    }
+
+    /**
+     * What a character does, by its binding. This is the one
+     * classification of bindings in the package, shared by
+     * {@code FormBoundaryScanner} and the definition's fingerprint.
+     *
+     * @param codepoint The code point.
+     * @param macro The reader macro bound to it, or {@code null}.
+     * @return One of {@code WHITESPACE}, {@code TOKEN}, {@code SINGLE},
+     *         {@code OPEN} or {@code CUSTOM}.
+     */
+    static byte kindOf(final int codepoint, final ReaderMacro macro) {
+        if (null == macro) {
+            return Character.isWhitespace(codepoint) ? WHITESPACE : TOKEN;
+        } else if (SingleCharReaderMacro.class == macro.getClass()) {
+            return SINGLE;
+        } else if (AccumulatorReaderMacro.class == macro.getClass()) {
+            return OPEN;
+        }
+        return CUSTOM;
+    }
+
+    /**
+     * What a code point below {@code SIZE} does.
+     *
+     * @param codepoint The code point.
+     * @return One of {@code WHITESPACE}, {@code TOKEN}, {@code SINGLE},
+     *         {@code OPEN} or {@code CUSTOM}.
+     */
+    byte kind(final int codepoint) {
+        return this.kinds[codepoint];
+    }
+
+    /**
+     * The token of a {@code SINGLE} code point.
+     *
+     * @param codepoint The code point.
+     * @return Its token.
+     */
+    String token(final int codepoint) {
+        return this.tokens[codepoint];
+    }
+
+    /**
+     * The reader macro of an {@code OPEN} code point.
+     *
+     * @param codepoint The code point.
+     * @return Its reader macro.
+     */
+    AccumulatorReaderMacro opener(final int codepoint) {
+        return this.openers[codepoint];
+    }
+
+    /**
+     * The reader macro bound to any code point.
+     *
+     * @param codepoint The code point.
+     * @return Its reader macro, or {@code null}.
+     */
+    ReaderMacro macro(final int codepoint) {
+        return this.bindings.get(codepoint);
+    }
+
+    /**
+     * Does a code point end a token?
+     *
+     * @param codepoint The code point, or {@code -1} at end of input.
+     * @return True if it is bound or whitespace.
+     */
+    boolean delimits(final int codepoint) {
+        if (codepoint >= 0 && codepoint < SIZE) {
+            return TOKEN != this.kinds[codepoint];
+        }
+        return null != this.bindings.get(codepoint)
+            || Character.isWhitespace(codepoint);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.github.pqnelson;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable Lisp cons cell, and the proper list it begins.
+ *
+ * <p>A list of {@code n} elements is {@code n} cells, each holding an
+ * element and the rest of the list; the empty list is
+ * {@code Collections.emptyList()}. Iteration and {@link #rest()} are
+ * cheap, while {@link #get(int)} walks the chain; list iterators and
+ * sublists copy the elements once, and step through the copy. Each
+ * cell knows the length of its list, which costs nothing in space on
+ * 64-bit JVMs with compressed references, since the 24 byte cell would
+ * be padded to that size anyway.</p>
+ */
+public final class Cons extends ImmutableList {
+    /**
+     * The first element.
+     */
+    private final Object first;
+
+    /**
+     * The rest of the list, or {@code null} if there is none.
+     */
+    private final Cons next;
+
+    /**
+     * The number of elements in the list starting here.
+     */
+    private final int size;
+
+    /**
+     * Prepend an element to a list.
+     *
+     * @param head The first element.
+     * @param tail The rest of the list, or {@code null} for none.
+     */
+    public Cons(final Object head, final Cons tail) {
+        this.first = head;
+        this.next = tail;
+        this.size = null == tail ? 1 : tail.size + 1;
+    }
+
+    /**
+     * Build a list from the first elements of an array.
+     *
+     * @param elements The elements.
+     * @param count How many to take.
+     * @return The list, empty if {@code count} is zero.
+     */
+    static List<Object> of(final Object[] elements, final int count) {
+        Cons list = null;
+        for (int i = count - 1; i >= 0; i--) {
+            list = new Cons(elements[i], list);
+        }
+        return null == list ? Collections.emptyList() : list;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The first element, the Lisp {@code car}.
+     */
+    public Object first() {
+        return this.first;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The rest of the list, the Lisp {@code cdr}; empty after
+     *         the last cell.
+     */
+    public List<Object> rest() {
+        return null == this.next ? Collections.emptyList() : this.next;
+    }
+
+    /**
+     * The element at a position, found by walking the list.
+     *
+     * @param index The position, from zero.
+     * @return The element.
+     */
+    @Override
+    public Object get(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                                                + ", Size: " + this.size);
+        }
+        Cons cell = this;
+        for (int i = 0; i < index; i++) {
+            cell = cell.next;
+        }
+        return cell.first;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of elements in the list starting here.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Walk the cells, rather than looking each one up by index.
+     *
+     * @return An iterator over the elements.
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private Cons cell = Cons.this;
+
+            @Override
+            public boolean hasNext() {
+                return null != this.cell;
+            }
+
+            @Override
+            public Object next() {
+                if (null == this.cell) {
+                    throw new NoSuchElementException();
+                }
+                final Object element = this.cell.first;
+                this.cell = this.cell.next;
+                return element;
+            }
+        };
+    }
+
+    /**
+     * A read-only list over a copy of the elements, made in one walk,
+     * so list iterators and sublists step in constant time rather than
+     * walking the chain for every element.
+     *
+     * @return The view.
+     */
+    @Override
+    List<Object> view() {
+        return Collections.unmodifiableList(Arrays.asList(this.toArray()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.github.pqnelson;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Find where top-level forms start, without building them.
+ *
+ * <p>The scanner follows the same rules as {@code ReadTable} for the
+ * reader macros it knows about, classifying bindings as the
+ * {@link CompiledLexer} does. An {@code AccumulatorReaderMacro} opens
+ * a collection, which closes when its stop token is read, whether that
+ * token comes from a {@code SingleCharReaderMacro} or from an ordinary
+ * token. Whitespace separates tokens. Only those two classes exactly
+ * are known, since a subclass may override {@code apply}. A character
+ * bound to any other reader macro (e.g., {@code LineNumberCounter})
+ * ends a token but is otherwise skipped, since the scanner cannot know
+ * what the macro does; macros which consume further input, or produce
+ * forms of their own, will confuse it.</p>
+ *
+ * <p>The read tables have no string or comment syntax, so there is
+ * none to track here.</p>
+ *
+ * <p>Input may arrive in any number of chunks; the scanner keeps its
+ * state between them, and offsets count from the start of the first
+ * chunk. Offsets are counted in characters, and also in the bytes of
+ * the UTF-8 encoding, for input decoded from a file; see
+ * {@link #getByteOffset()}.</p>
+ */
+final class FormBoundaryScanner {
+    /**
+     * The reader macro bindings being followed, classified.
+     */
+    private final CompiledLexer lexer;
+
+    /**
+     * Stop tokens of the open collections, innermost last.
+     */
+    private String[] stopTokens = new String[16];
+
+    /**
+     * Number of open collections.
+     */
+    private int depth = 0;
+
+    /**
+     * Are we in the middle of a token?
+     */
+    private boolean inToken = false;
+
+    /**
+     * The start of the current token, as far as a stop token could match.
+     */
+    private char[] token = new char[16];
+
+    /**
+     * Length of the current token so far.
+     */
+    private int tokenLength = 0;
+
+    /**
+     * Offset of the next character to be scanned.
+     */
+    private long offset = 0L;
+
+    /**
+     * Offset of the next character to be scanned, in UTF-8 bytes.
+     */
+    private long byteOffset = 0L;
+
+    /**
+     * Create a scanner following the given reader macro bindings.
+     *
+     * @param bindings The read table's reader macros.
+     */
+    FormBoundaryScanner(final MacroTable bindings) {
+        this.lexer = new CompiledLexer(bindings);
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of collections still open.
+     */
+    int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of characters scanned so far.
+     */
+    long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * The number of bytes the characters scanned so far take in UTF-8.
+     * While a form start is being reported, this is where the form
+     * starts in bytes. For text decoded from a file, it is exact only as
+     * long as the file was well-formed, see {@link #isByteExact(long)}.
+     *
+     * @return The offset in UTF-8 bytes.
+     */
+    long getByteOffset() {
+        return this.byteOffset;
+    }
+
+    /**
+     * Were the byte offsets of a file exact? Decoding replaces each
+     * maximal malformed subsequence, at most three bytes, with U+FFFD,
+     * which takes three bytes, so malformed input only ever adds bytes;
+     * if the count matches the file, every offset does too.
+     *
+     * @param size The size of the file scanned, in bytes.
+     * @return True if the bytes counted are the bytes in the file.
+     */
+    boolean isByteExact(final long size) {
+        return size == this.byteOffset;
+    }
+
+    /**
+     * Scan a whole character sequence.
+     *
+     * @param text The characters to scan.
+     * @param formStarts Told the offset of each top-level form start.
+     */
+    void scan(final CharSequence text, final LongConsumer formStarts) {
+        final char[] chunk =
+            new char[Math.min(8192, Math.max(1, text.length()))];
+        int i = 0;
+        while (i < text.length()) {
+            final int n = Math.min(chunk.length, text.length() - i);
+            CharSource.getChars(text, i, i + n, chunk, 0);
+            this.scan(chunk, 0, n, formStarts);
+            i += n;
+        }
+        this.finish();
+    }
+
+    /**
+     * Scan the next chunk of input.
+     *
+     * @param buf The characters to scan.
+     * @param off Index of the first character to scan.
+     * @param len Number of characters to scan.
+     * @param formStarts Told the offset of each top-level form start.
+     */
+    void scan(final char[] buf, final int off, final int len,
+              final LongConsumer formStarts) {
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final char c = buf[i];
+            final byte kind = c < CompiledLexer.SIZE ? this.lexer.kind(c)
+                : CompiledLexer.kindOf(c, this.lexer.macro(c));
+            if (CompiledLexer.TOKEN == kind) {
+                if (!this.inToken) {
+                    if (0 == this.depth) {
+                        formStarts.accept(this.offset);
+                    }
+                    this.inToken = true;
+                    this.tokenLength = 0;
+                }
+                if (this.tokenLength < this.token.length) {
+                    this.token[this.tokenLength] = c;
+                }
+                this.tokenLength++;
+            } else {
+                if (this.inToken) {
+                    this.finish();
+                }
+                this.delimiter(c, kind, formStarts);
+            }
+            this.offset++;
+            this.byteOffset += MappedFileReader.encodedLength(c);
+        }
+    }
+
+    /**
+     * Follow a character which is not part of a token.
+     *
+     * @param c The character.
+     * @param kind What it does, as the compiled lexer classifies it.
+     * @param formStarts Told the offset of each top-level form start.
+     */
+    private void delimiter(final char c, final byte kind,
+                           final LongConsumer formStarts) {
+        switch (kind) {
+        case CompiledLexer.OPEN:
+            if (0 == this.depth) {
+                formStarts.accept(this.offset);
+            }
+            this.push(((AccumulatorReaderMacro) this.lexer.macro(c))
+                      .getStopToken());
+            break;
+        case CompiledLexer.SINGLE:
+            if (0 == this.depth) {
+                formStarts.accept(this.offset);
+            } else if (((SingleCharReaderMacro) this.lexer.macro(c))
+                       .getToken().equals(this.stopTokens[this.depth - 1])) {
+                this.depth--;
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * End the token in progress, if any, closing the innermost
+     * collection when the token is its stop token. Call this at the end
+     * of input, since a token may run right up to it.
+     */
+    void finish() {
+        if (!this.inToken) {
+            return;
+        }
+        this.inToken = false;
+        if (0 == this.depth) {
+            return;
+        }
+        final String stop = this.stopTokens[this.depth - 1];
+        if (stop.length() != this.tokenLength) {
+            return;
+        }
+        for (int i = 0; i < this.tokenLength; i++) {
+            if (stop.charAt(i) != this.token[i]) {
+                return;
+            }
+        }
+        this.depth--;
+    }
+
+    /**
+     * Open a collection.
+     *
+     * @param stop The token closing it.
+     */
+    private void push(final String stop) {
+        if (this.depth == this.stopTokens.length) {
+            this.stopTokens = Arrays.copyOf(this.stopTokens, 2 * this.depth);
+        }
+        this.stopTokens[this.depth++] = stop;
+        if (stop.length() > this.token.length) {
+            this.token = new char[stop.length()];
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Read source files through a cache of their forms, kept beside them.
+ *
+ * <p>The first read of a file lexes it as usual, then writes the forms
+ * in the {@link FormCodec} encoding to a sidecar file (see
+ * {@link #sidecar(Path)}). Later reads memory-map the sidecar and
+ * decode it instead, without lexing at all, as long as the source has
+ * the same size and modification time, the same CRC32C of its contents
+ * (unless content verification is off), and the read table definition
+ * is the same. Otherwise the file is read afresh and the sidecar
+ * replaced.</p>
+ *
+ * <p>Only definitions whose bindings are all
+ * {@code SingleCharReaderMacro} and {@code AccumulatorReaderMacro}
+ * can be cached, since the forms of any other reader macro may depend
+ * on how it is configured, and a cache hit would skip its side
+ * effects. Under any other definition every read lexes the source,
+ * and no sidecar is read or written. Forms which {@link FormCodec}
+ * cannot encode are returned, but not cached.</p>
+ *
+ * <p>The sidecar is written to a temporary file and moved into place,
+ * so concurrent readers see either the old or the new one. A sidecar
+ * that cannot be written (e.g., in a read-only directory) is skipped;
+ * the forms are still returned. A cache may be shared between threads,
+ * as long as the definition's reader macros are thread-safe.</p>
+ */
+public final class FormCache {
+    /**
+     * Identifies a sidecar file.
+     */
+    private static final int MAGIC = 0x4C524641;
+
+    /**
+     * Version of the sidecar layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the sidecar header, ahead of the encoded forms.
+     */
+    private static final int HEADER_SIZE = 36;
+
+    /**
+     * Bytes hashed at once.
+     */
+    private static final long HASH_CHUNK = 64L << 20;
+
+    /**
+     * How source files are read on a miss.
+     */
+    private final ReadTableDefinition definition;
+
+    /**
+     * Fingerprint of {@code definition}, recorded in each sidecar.
+     */
+    private final long fingerprint;
+
+    /**
+     * Can forms read under {@code definition} be cached at all?
+     */
+    private final boolean cacheable;
+
+    /**
+     * Hash the source on every read, rather than trusting its size and
+     * modification time?
+     */
+    private final boolean verifyContent;
+
+    /**
+     * Number of reads answered from a sidecar.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Number of reads which lexed the source.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache of forms read under a definition, checking the
+     * content hash of sources.
+     *
+     * @param readers The read table definition to read sources with.
+     */
+    public FormCache(final ReadTableDefinition readers) {
+        this(readers, true);
+    }
+
+    /**
+     * Create a cache of forms read under a definition.
+     *
+     * @param readers The read table definition to read sources with.
+     * @param verify True to check the content hash of the source on
+     * every read, false to trust its size and modification time.
+     */
+    public FormCache(final ReadTableDefinition readers, final boolean verify) {
+        this.definition = readers;
+        this.fingerprint = readers.fingerprint();
+        this.cacheable = readers.isFingerprintComplete();
+        this.verifyContent = verify;
+    }
+
+    /**
+     * Where the forms of a source file are cached.
+     *
+     * @param source The source file.
+     * @return The file's name with {@code .fasl} appended, beside it.
+     */
+    public static Path sidecar(final Path source) {
+        return source.resolveSibling(source.getFileName() + ".fasl");
+    }
+
+    /**
+     * Read every form of a UTF-8 encoded source file, from its sidecar
+     * when that is up to date.
+     *
+     * @param source The source file.
+     * @return The top-level forms, in the order they appear.
+     * @throws IOException If the source cannot be read.
+     */
+    public List<Object> read(final Path source) throws IOException {
+        if (!this.cacheable) {
+            this.misses.incrementAndGet();
+            return this.lex(source);
+        }
+        final BasicFileAttributes attributes =
+            Files.readAttributes(source, BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final Path cache = sidecar(source);
+        final List<Object> cached = this.load(cache, source, size, modified);
+        if (null != cached) {
+            this.hits.incrementAndGet();
+            return cached;
+        }
+        this.misses.incrementAndGet();
+        // hash before reading: if the source changes meanwhile, the
+        // sidecar will not match the new contents
+        final int hash = this.verifyContent ? contentHash(source) : 0;
+        final List<Object> forms = this.lex(source);
+        this.store(cache, forms, size, modified, hash);
+        return forms;
+    }
+
+    /**
+     * Read every form of a source file afresh.
+     *
+     * @param source The source file.
+     * @return The top-level forms, in the order they appear.
+     * @throws IOException If the source cannot be read.
+     */
+    private List<Object> lex(final Path source) throws IOException {
+        final List<Object> forms = new ArrayList<>();
+        try (ReadTable table = this.definition.newReader(source)) {
+            table.stream().forEach(forms::add);
+        }
+        return forms;
+    }
+
+    /**
+     * Decode a sidecar, if it matches the source.
+     *
+     * @param cache The sidecar.
+     * @param source The source file.
+     * @param size The size of the source.
+     * @param modified The modification time of the source.
+     * @return The forms, or {@code null} if the sidecar is missing,
+     *         out of date or corrupt.
+     * @throws IOException If the source cannot be hashed.
+     */
+    private List<Object> load(final Path cache, final Path source,
+                              final long size, final long modified)
+        throws IOException {
+        final ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(cache,
+                                                    StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null;
+        }
+        if (MAGIC != in.getInt() || VERSION != in.getInt()
+            || size != in.getLong() || modified != in.getLong()) {
+            return null;
+        }
+        final int hash = in.getInt();
+        if (this.fingerprint != in.getLong()
+            || (this.verifyContent && hash != contentHash(source))) {
+            return null;
+        }
+        try {
+            return FormCodec.decode(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write a sidecar, unless the directory does not allow it or the
+     * forms cannot be encoded.
+     *
+     * @param cache The sidecar.
+     * @param forms The forms of the source.
+     * @param size The size of the source.
+     * @param modified The modification time of the source.
+     * @param hash The CRC32C of the source, if verifying content.
+     */
+    private void store(final Path cache, final List<Object> forms,
+                       final long size, final long modified, final int hash) {
+        final byte[] encoded;
+        try {
+            encoded = FormCodec.encode(forms);
+        } catch (IllegalArgumentException e) {
+            // not every form can be cached; read afresh next time
+            return;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified)
+            .putInt(hash).putLong(this.fingerprint);
+        try {
+            final Path temp = Files.createTempFile(cache.toAbsolutePath()
+                                                   .getParent(),
+                                                   ".fasl", ".tmp");
+            try {
+                try (FileChannel out = FileChannel.open(
+                         temp, StandardOpenOption.WRITE)) {
+                    header.flip();
+                    while (header.hasRemaining()) {
+                        out.write(header);
+                    }
+                    final ByteBuffer body = ByteBuffer.wrap(encoded);
+                    while (body.hasRemaining()) {
+                        out.write(body);
+                    }
+                }
+                try {
+                    Files.move(temp, cache, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, cache,
+                               StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // the cache is only an optimization; read afresh next time
+        }
+    }
+
+    /**
+     * The CRC32C of a file's contents, read through a memory map.
+     *
+     * @param source The file.
+     * @return The checksum.
+     * @throws IOException If the file cannot be read.
+     */
+    private static int contentHash(final Path source) throws IOException {
+        final CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(source,
+                                                    StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long offset = 0; offset < size; offset += HASH_CHUNK) {
+                final MappedByteBuffer chunk = channel.map(
+                    FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(HASH_CHUNK, size - offset));
+                crc.update(chunk);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of reads answered from a sidecar.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of reads which lexed the source.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,427 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of forms read, to load them back without
+ * lexing.
+ *
+ * <p>The encoding holds tokens ({@code String}), numbers ({@code Long},
+ * {@code Double}, {@code BigInteger}) and lists of those. Each distinct
+ * string is stored once, in a table ahead of the forms, and referred to
+ * by index, so decoding creates each string once however often it
+ * occurs. Lists keep their {@link ListRepresentation}, but for the
+ * empty list, which is the same for compact and cons lists. Integers are
+ * variable-length, so small ones take a byte or two.</p>
+ *
+ * <pre>
+ * encoding := MAGIC VERSION strings forms
+ * strings  := count (length utf8-bytes)*
+ * forms    := count form*
+ * form     := STRING index | LONG zigzag | DOUBLE 8-bytes
+ *           | BIG length bytes | (LIST | COMPACT | CONS) count form*
+ * </pre>
+ *
+ * <p>Counts, lengths and indices are unsigned LEB128 varints. Nesting
+ * is handled with explicit stacks, so deep lists encode and decode as
+ * well as the iterative read tables read them.</p>
+ */
+public final class FormCodec {
+    /**
+     * Identifies the encoding.
+     */
+    private static final int MAGIC = 0x4C524643;
+
+    /**
+     * Version of the encoding.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Tag of a token, by string table index.
+     */
+    private static final byte STRING = 1;
+    /**
+     * Tag of a {@code Long}.
+     */
+    private static final byte LONG = 2;
+    /**
+     * Tag of a {@code Double}.
+     */
+    private static final byte DOUBLE = 3;
+    /**
+     * Tag of a {@code BigInteger}.
+     */
+    private static final byte BIG = 4;
+    /**
+     * Tag of a mutable list, decoded as an {@code ArrayList}.
+     */
+    private static final byte LIST = 5;
+    /**
+     * Tag of a compact list.
+     */
+    private static final byte COMPACT = 6;
+    /**
+     * Tag of a list of {@code Cons} cells.
+     */
+    private static final byte CONS = 7;
+
+    /**
+     * Not instantiated.
+     */
+    private FormCodec() {
+    }
+
+    /**
+     * Encode forms.
+     *
+     * @param forms The forms to encode.
+     * @return The encoding.
+     * @throws IllegalArgumentException If a form holds something other
+     *         than strings, numbers and lists.
+     */
+    public static byte[] encode(final List<?> forms) {
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        final Output body = new Output();
+        body.writeVarLong(forms.size());
+        final ArrayDeque<Iterator<?>> stack = new ArrayDeque<>();
+        stack.push(forms.iterator());
+        while (!stack.isEmpty()) {
+            final Iterator<?> it = stack.peek();
+            if (!it.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            final Object form = it.next();
+            if (form instanceof String) {
+                Integer id = ids.get(form);
+                if (null == id) {
+                    id = strings.size();
+                    ids.put((String) form, id);
+                    strings.add((String) form);
+                }
+                body.writeByte(STRING);
+                body.writeVarLong(id);
+            } else if (form instanceof Long) {
+                final long value = (Long) form;
+                body.writeByte(LONG);
+                body.writeVarLong((value << 1) ^ (value >> 63));
+            } else if (form instanceof Double) {
+                body.writeByte(DOUBLE);
+                body.writeLong(Double.doubleToRawLongBits((Double) form));
+            } else if (form instanceof BigInteger) {
+                final byte[] bytes = ((BigInteger) form).toByteArray();
+                body.writeByte(BIG);
+                body.writeVarLong(bytes.length);
+                body.writeBytes(bytes);
+            } else if (form instanceof List) {
+                final List<?> list = (List<?>) form;
+                body.writeByte(tag(list));
+                body.writeVarLong(list.size());
+                stack.push(list.iterator());
+            } else {
+                throw new IllegalArgumentException("Cannot encode "
+                    + (null == form ? "null" : form.getClass().getName()));
+            }
+        }
+        final Output out = new Output();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeVarLong(strings.size());
+        for (String s : strings) {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        }
+        out.writeBytes(body.buf, 0, body.size);
+        return Arrays.copyOf(out.buf, out.size);
+    }
+
+    /**
+     * The tag of a list. An empty compact or cons list is the shared
+     * immutable empty list, which is tagged compact, so that it decodes
+     * to that list again rather than to a mutable one.
+     *
+     * @param list The list.
+     * @return Its tag.
+     */
+    private static byte tag(final List<?> list) {
+        if (list instanceof Cons) {
+            return CONS;
+        } else if (list instanceof ImmutableList
+                   || Collections.emptyList() == list) {
+            return COMPACT;
+        }
+        return LIST;
+    }
+
+    /**
+     * Decode forms, from the position of a buffer onwards.
+     *
+     * @param in The encoding, e.g. a memory-mapped file.
+     * @return The forms.
+     * @throws IOException If the buffer does not hold a valid encoding.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Object> decode(final ByteBuffer in) throws IOException {
+        try {
+            if (MAGIC != in.getInt() || VERSION != in.getInt()) {
+                throw new IOException("Not an encoding of forms");
+            }
+            final String[] strings = new String[length(in)];
+            for (int i = 0; i < strings.length; i++) {
+                final byte[] bytes = new byte[length(in)];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            final ArrayDeque<Frame> stack = new ArrayDeque<>();
+            Frame top = new Frame(LIST, length(in));
+            while (true) {
+                if (top.filled == top.elements.length) {
+                    if (stack.isEmpty()) {
+                        return (List<Object>) top.finish();
+                    }
+                    final Object list = top.finish();
+                    top = stack.pop();
+                    top.elements[top.filled++] = list;
+                    continue;
+                }
+                final byte tag = in.get();
+                switch (tag) {
+                case STRING:
+                    top.elements[top.filled++] = strings[count(in)];
+                    break;
+                case LONG:
+                    final long zigzag = readVarLong(in);
+                    top.elements[top.filled++] =
+                        NumberParser.box((zigzag >>> 1) ^ -(zigzag & 1));
+                    break;
+                case DOUBLE:
+                    top.elements[top.filled++] =
+                        Double.longBitsToDouble(in.getLong());
+                    break;
+                case BIG:
+                    final byte[] bytes = new byte[length(in)];
+                    in.get(bytes);
+                    top.elements[top.filled++] = new BigInteger(bytes);
+                    break;
+                case LIST:
+                case COMPACT:
+                case CONS:
+                    stack.push(top);
+                    top = new Frame(tag, length(in));
+                    break;
+                default:
+                    throw new IOException("Unknown tag " + tag);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                 | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupt encoding of forms", e);
+        }
+    }
+
+    /**
+     * Read a count, length or index.
+     *
+     * @param in The encoding.
+     * @return The non-negative value.
+     * @throws IOException If it does not fit in an {@code int}.
+     */
+    private static int count(final ByteBuffer in) throws IOException {
+        final long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Count out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read the size of something stored after it, so corrupt input
+     * cannot make us allocate more than the input could hold.
+     *
+     * @param in The encoding.
+     * @return The size.
+     * @throws IOException If the input is too short to hold that much.
+     */
+    private static int length(final ByteBuffer in) throws IOException {
+        final int value = count(in);
+        if (value > in.remaining()) {
+            throw new IOException("Length past the end of input: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Read an unsigned LEB128 varint.
+     *
+     * @param in The encoding.
+     * @return The value.
+     */
+    private static long readVarLong(final ByteBuffer in) {
+        long value = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 64);
+        return value;
+    }
+
+    /**
+     * A list being decoded.
+     */
+    private static final class Frame {
+        /**
+         * The tag it was encoded with.
+         */
+        private final byte tag;
+
+        /**
+         * Its elements, of exactly its size.
+         */
+        private final Object[] elements;
+
+        /**
+         * Number of elements decoded so far.
+         */
+        private int filled = 0;
+
+        /**
+         * Start decoding a list.
+         *
+         * @param kind The tag it was encoded with.
+         * @param size Its number of elements.
+         */
+        Frame(final byte kind, final int size) {
+            this.tag = kind;
+            this.elements = new Object[size];
+        }
+
+        /**
+         * The list, in the representation it was encoded from.
+         *
+         * @return The list.
+         */
+        Object finish() {
+            switch (this.tag) {
+            case COMPACT:
+                return CompactLists.of(this.elements, this.elements.length);
+            case CONS:
+                return Cons.of(this.elements, this.elements.length);
+            default:
+                return new ArrayList<>(Arrays.asList(this.elements));
+            }
+        }
+    }
+
+    /**
+     * A growable byte array, big-endian like {@code ByteBuffer}.
+     */
+    private static final class Output {
+        /**
+         * The bytes written, and spare room.
+         */
+        private byte[] buf = new byte[256];
+
+        /**
+         * Number of bytes written.
+         */
+        private int size = 0;
+
+        /**
+         * Make room for more bytes.
+         *
+         * @param n How many bytes are about to be written.
+         */
+        private void ensure(final int n) {
+            if (this.size + n > this.buf.length) {
+                this.buf = Arrays.copyOf(this.buf,
+                    Math.max(2 * this.buf.length, this.size + n));
+            }
+        }
+
+        /**
+         * Write one byte.
+         *
+         * @param b The byte.
+         */
+        void writeByte(final int b) {
+            this.ensure(1);
+            this.buf[this.size++] = (byte) b;
+        }
+
+        /**
+         * Write four bytes.
+         *
+         * @param value The bytes, most significant first.
+         */
+        void writeInt(final int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                this.writeByte(value >>> shift);
+            }
+        }
+
+        /**
+         * Write eight bytes.
+         *
+         * @param value The bytes, most significant first.
+         */
+        void writeLong(final long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.writeByte((int) (value >>> shift));
+            }
+        }
+
+        /**
+         * Write an unsigned LEB128 varint.
+         *
+         * @param value The value, treated as unsigned.
+         */
+        void writeVarLong(final long value) {
+            long rest = value;
+            while ((rest & ~0x7FL) != 0) {
+                this.writeByte((int) (rest & 0x7F) | 0x80);
+                rest >>>= 7;
+            }
+            this.writeByte((int) rest);
+        }
+
+        /**
+         * Write a byte array.
+         *
+         * @param bytes The bytes.
+         */
+        void writeBytes(final byte[] bytes) {
+            this.writeBytes(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Write part of a byte array.
+         *
+         * @param bytes The bytes.
+         * @param off Index of the first byte to write.
+         * @param len Number of bytes to write.
+         */
+        void writeBytes(final byte[] bytes, final int off, final int len) {
+            this.ensure(len);
+            System.arraycopy(bytes, off, this.buf, this.size, len);
+            this.size += len;
+        }
+    }
+}
\ No newline at end of file
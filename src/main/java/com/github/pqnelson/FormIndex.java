@@ -0,0 +1,532 @@
+package com.github.pqnelson;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Where each top-level form and each line of a text starts.
+ *
+ * <p>Reading the Nth form of a large file, or the form on a given line,
+ * otherwise means reading every form before it. The index is built in a
+ * single pass of a {@link FormBoundaryScanner}, which builds no forms,
+ * and keeps only three arrays of offsets: form starts in characters,
+ * form starts in UTF-8 bytes (so a file can be mapped from there), and
+ * line starts in characters. A read table can then be opened at any
+ * form, and still reports true positions.</p>
+ *
+ * <p>An index can be written beside the file it describes, see
+ * {@link #sidecar(Path)}, and read back later. It is only valid as long
+ * as the file is unchanged; opening a file checks its size against
+ * {@link #byteLength()}, which catches most changes cheaply. Byte
+ * offsets need well-formed UTF-8, so a file which is not is refused.</p>
+ *
+ * <pre>
+ * FormIndex index = FormIndex.build(path, lisp);
+ * try (ReadTable table = index.open(path, lisp, index.formAtLine(1200))) {
+ *     Object form = table.read();
+ * }
+ * </pre>
+ */
+public final class FormIndex {
+    /**
+     * Identifies an index file.
+     */
+    private static final int MAGIC = 0x4C524958;
+
+    /**
+     * Version of the index file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Characters scanned at a time.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Bytes in an index file before the offsets.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Offset, in characters, of each top-level form.
+     */
+    private final long[] formStarts;
+
+    /**
+     * Offset, in UTF-8 bytes, of each top-level form.
+     */
+    private final long[] formByteStarts;
+
+    /**
+     * Offset, in characters, of each line; the first is always zero.
+     */
+    private final long[] lineStarts;
+
+    /**
+     * Length of the text, in characters.
+     */
+    private final long length;
+
+    /**
+     * Length of the text, in UTF-8 bytes.
+     */
+    private final long byteLength;
+
+    /**
+     * Wrap the offsets found.
+     *
+     * @param forms Character offsets of the forms.
+     * @param formBytes Byte offsets of the forms.
+     * @param lines Character offsets of the lines.
+     * @param chars Length of the text in characters.
+     * @param bytes Length of the text in bytes.
+     */
+    private FormIndex(final long[] forms, final long[] formBytes,
+                      final long[] lines, final long chars,
+                      final long bytes) {
+        this.formStarts = forms;
+        this.formByteStarts = formBytes;
+        this.lineStarts = lines;
+        this.length = chars;
+        this.byteLength = bytes;
+    }
+
+    /**
+     * Index a text.
+     *
+     * @param text The text to index.
+     * @param definition The reader macros the text will be read with.
+     * @return The index.
+     */
+    public static FormIndex build(final CharSequence text,
+                                  final ReadTableDefinition definition) {
+        final Indexer indexer = new Indexer(definition.macroTable());
+        final char[] chunk = new char[CHUNK_SIZE];
+        int i = 0;
+        while (i < text.length()) {
+            final int n = Math.min(chunk.length, text.length() - i);
+            CharSource.getChars(text, i, i + n, chunk, 0);
+            indexer.scan(chunk, n);
+            i += n;
+        }
+        return indexer.finish();
+    }
+
+    /**
+     * Index a UTF-8 encoded file.
+     *
+     * @param path The file to index.
+     * @param definition The reader macros the file will be read with.
+     * @return The index.
+     * @throws IOException If the file cannot be read, or is not
+     *         well-formed UTF-8.
+     */
+    public static FormIndex build(final Path path,
+                                  final ReadTableDefinition definition)
+        throws IOException {
+        final Indexer indexer = new Indexer(definition.macroTable());
+        final char[] chunk = new char[CHUNK_SIZE];
+        try (Reader in = new MappedFileReader(path)) {
+            int n;
+            while (-1 != (n = in.read(chunk, 0, chunk.length))) {
+                indexer.scan(chunk, n);
+            }
+        }
+        if (!indexer.scanner.isByteExact(Files.size(path))) {
+            throw new IOException("Not well-formed UTF-8: " + path);
+        }
+        return indexer.finish();
+    }
+
+    /**
+     * Where the index of a file is conventionally kept.
+     *
+     * @param file The indexed file.
+     * @return The file's name with {@code .forms} appended, beside it.
+     */
+    public static Path sidecar(final Path file) {
+        return file.resolveSibling(file.getFileName() + ".forms");
+    }
+
+    /**
+     * Save the index.
+     *
+     * @param path Where to write it.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(final Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.length);
+            out.writeLong(this.byteLength);
+            out.writeInt(this.formStarts.length);
+            out.writeInt(this.lineStarts.length);
+            for (int i = 0; i < this.formStarts.length; i++) {
+                out.writeLong(this.formStarts[i]);
+                out.writeLong(this.formByteStarts[i]);
+            }
+            for (long start : this.lineStarts) {
+                out.writeLong(start);
+            }
+        }
+    }
+
+    /**
+     * Load an index saved by {@link #write(Path)}.
+     *
+     * @param path Where it was written.
+     * @return The index.
+     * @throws IOException If the file cannot be read, or is not an index.
+     */
+    public static FormIndex read(final Path path) throws IOException {
+        final long fileSize = Files.size(path);
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(Files.newInputStream(path)))) {
+            if (fileSize < HEADER_SIZE || MAGIC != in.readInt()
+                || VERSION != in.readInt()) {
+                throw new IOException("Not a form index: " + path);
+            }
+            final long chars = in.readLong();
+            final long bytes = in.readLong();
+            final long formCount = in.readInt();
+            final long lineCount = in.readInt();
+            final long expected =
+                HEADER_SIZE + 16 * formCount + 8 * lineCount;
+            if (chars < 0 || bytes < 0 || formCount < 0 || lineCount < 1
+                || expected != fileSize) {
+                throw new IOException("Corrupt form index: " + path);
+            }
+            final long[] forms = new long[(int) formCount];
+            final long[] formBytes = new long[forms.length];
+            final long[] lines = new long[(int) lineCount];
+            for (int i = 0; i < forms.length; i++) {
+                forms[i] = in.readLong();
+                formBytes[i] = in.readLong();
+            }
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = in.readLong();
+            }
+            if (!ascending(forms, 0, chars) || !ascending(formBytes, 0, bytes)
+                || !ascending(lines, 0, chars) || 0 != lines[0]) {
+                throw new IOException("Corrupt form index: " + path);
+            }
+            return new FormIndex(forms, formBytes, lines, chars, bytes);
+        }
+    }
+
+    /**
+     * Are offsets ascending, within bounds?
+     *
+     * @param offsets The offsets.
+     * @param min The least allowed.
+     * @param max The greatest allowed.
+     * @return True if each is at least the one before, and all are in
+     *         {@code [min, max]}.
+     */
+    private static boolean ascending(final long[] offsets, final long min,
+                                     final long max) {
+        long last = min;
+        for (long offset : offsets) {
+            if (offset < last || offset > max) {
+                return false;
+            }
+            last = offset;
+        }
+        return true;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of top-level forms.
+     */
+    public int formCount() {
+        return this.formStarts.length;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lines; a text without newlines has one.
+     */
+    public int lineCount() {
+        return this.lineStarts.length;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The length of the text, in characters.
+     */
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The length of the text, in UTF-8 bytes.
+     */
+    public long byteLength() {
+        return this.byteLength;
+    }
+
+    /**
+     * Where a form starts.
+     *
+     * @param form The index of the form, from zero.
+     * @return Its offset in characters.
+     */
+    public long formStart(final int form) {
+        return this.formStarts[form];
+    }
+
+    /**
+     * Where a form starts in the UTF-8 encoding of the text.
+     *
+     * @param form The index of the form, from zero.
+     * @return Its offset in bytes.
+     */
+    public long formByteStart(final int form) {
+        return this.formByteStarts[form];
+    }
+
+    /**
+     * The line containing an offset.
+     *
+     * @param offset An offset in characters.
+     * @return The line, from 1.
+     */
+    public int lineOf(final long offset) {
+        return lastAtOrBefore(this.lineStarts, offset) + 1;
+    }
+
+    /**
+     * The position of an offset.
+     *
+     * @param offset An offset in characters.
+     * @return Its line and column.
+     */
+    public SourcePosition positionOf(final long offset) {
+        final int line = this.lineOf(offset);
+        return new SourcePosition(offset, line,
+            (int) (offset - this.lineStarts[line - 1]) + 1);
+    }
+
+    /**
+     * The form containing an offset, assuming forms run up to the next.
+     *
+     * @param offset An offset in characters.
+     * @return The index of the last form starting at or before
+     *         {@code offset}, or {@code -1} if there is none.
+     */
+    public int formAt(final long offset) {
+        return lastAtOrBefore(this.formStarts, offset);
+    }
+
+    /**
+     * The form covering a line: the first form starting on it, or if
+     * none does, the form started before it.
+     *
+     * @param line The line, from 1.
+     * @return The index of the form, or {@code -1} if no form starts on
+     *         or before the line.
+     */
+    public int formAtLine(final int line) {
+        if (line < 1 || line > this.lineStarts.length) {
+            throw new IndexOutOfBoundsException("No line " + line);
+        }
+        final long end = line < this.lineStarts.length
+            ? this.lineStarts[line] : this.length + 1;
+        final int form = lastAtOrBefore(this.formStarts,
+                                        this.lineStarts[line - 1] - 1) + 1;
+        if (form < this.formStarts.length && this.formStarts[form] < end) {
+            return form;
+        }
+        return form - 1;
+    }
+
+    /**
+     * Open a read table at a form of an indexed text.
+     *
+     * @param text The text which was indexed.
+     * @param definition The reader macros to read with.
+     * @param form The index of the form to start at.
+     * @return A read table whose next form is {@code form}.
+     */
+    public ReadTable open(final CharSequence text,
+                          final ReadTableDefinition definition,
+                          final int form) {
+        final long start = this.formStarts[form];
+        final CharSource source = new CharSource(text, (int) start,
+                                                 text.length());
+        this.startAt(source, start);
+        return definition.newReader(source);
+    }
+
+    /**
+     * Open a read table at a form of an indexed file, mapping the file
+     * from there.
+     *
+     * @param path The file which was indexed.
+     * @param definition The reader macros to read with.
+     * @param form The index of the form to start at.
+     * @return A read table whose next form is {@code form}, to be closed
+     *         when done.
+     * @throws IOException If the file cannot be opened or mapped, or is
+     *         not the size it was when indexed.
+     */
+    public ReadTable open(final Path path,
+                          final ReadTableDefinition definition,
+                          final int form) throws IOException {
+        if (Files.size(path) != this.byteLength) {
+            throw new IOException("Stale form index: " + path);
+        }
+        final CharSource source = new CharSource(new MappedFileReader(
+            path, this.formByteStarts[form], MappedFileReader.SEGMENT_SIZE));
+        this.startAt(source, this.formStarts[form]);
+        return definition.newReader(source);
+    }
+
+    /**
+     * Have a source count positions from an offset in the text.
+     *
+     * @param source The source, reading from {@code offset}.
+     * @param offset Where it starts, in characters.
+     */
+    private void startAt(final CharSource source, final long offset) {
+        final int line = this.lineOf(offset);
+        source.startAt(offset, line, this.lineStarts[line - 1]);
+    }
+
+    /**
+     * Binary search for the last element not greater than a key.
+     *
+     * @param sorted Ascending offsets.
+     * @param key The offset sought.
+     * @return The index of the last element {@code <= key}, or
+     *         {@code -1} if every element is greater.
+     */
+    private static int lastAtOrBefore(final long[] sorted, final long key) {
+        final int i = Arrays.binarySearch(sorted, key);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Collects offsets as chunks of text are scanned.
+     */
+    private static final class Indexer implements LongConsumer {
+        /**
+         * Finds the forms.
+         */
+        private final FormBoundaryScanner scanner;
+
+        /**
+         * Character offsets of the forms found.
+         */
+        private long[] forms = new long[64];
+
+        /**
+         * Byte offsets of the forms found.
+         */
+        private long[] formBytes = new long[64];
+
+        /**
+         * Number of forms found.
+         */
+        private int formCount = 0;
+
+        /**
+         * Character offsets of the lines found.
+         */
+        private long[] lines = new long[64];
+
+        /**
+         * Number of lines found.
+         */
+        private int lineCount = 1;
+
+        /**
+         * Characters scanned so far, for lines.
+         */
+        private long chars = 0L;
+
+        /**
+         * Create an indexer following the given reader macro bindings.
+         *
+         * @param bindings The read table's reader macros.
+         */
+        Indexer(final MacroTable bindings) {
+            this.scanner = new FormBoundaryScanner(bindings);
+        }
+
+        /**
+         * Note a form start, in characters and in bytes.
+         *
+         * @param offset Where the form starts.
+         */
+        @Override
+        public void accept(final long offset) {
+            if (this.formCount == this.forms.length) {
+                this.forms = Arrays.copyOf(this.forms, 2 * this.formCount);
+                this.formBytes = Arrays.copyOf(this.formBytes,
+                                               2 * this.formCount);
+            }
+            this.forms[this.formCount] = offset;
+            this.formBytes[this.formCount++] = this.scanner.getByteOffset();
+        }
+
+        /**
+         * Scan the next chunk: first for forms, then for newlines.
+         *
+         * @param chunk The characters.
+         * @param len How many of them to scan.
+         */
+        void scan(final char[] chunk, final int len) {
+            this.scanner.scan(chunk, 0, len, this);
+            for (int i = 0; i < len; i++) {
+                if ('\n' == chunk[i]) {
+                    this.line(this.chars + i + 1);
+                }
+            }
+            this.chars += len;
+        }
+
+        /**
+         * Note a line start.
+         *
+         * @param offset Where the line starts.
+         */
+        private void line(final long offset) {
+            if (this.lineCount == this.lines.length) {
+                this.lines = Arrays.copyOf(this.lines, 2 * this.lineCount);
+            }
+            this.lines[this.lineCount++] = offset;
+        }
+
+        /**
+         * Finish scanning.
+         *
+         * @return The index.
+         */
+        FormIndex finish() {
+            this.scanner.finish();
+            return new FormIndex(Arrays.copyOf(this.forms, this.formCount),
+                                 Arrays.copyOf(this.formBytes, this.formCount),
+                                 Arrays.copyOf(this.lines, this.lineCount),
+                                 this.scanner.getOffset(),
+                                 this.scanner.getByteOffset());
+        }
+    }
+}
\ No newline at end of file
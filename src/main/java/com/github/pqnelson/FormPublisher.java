@@ -0,0 +1,351 @@
+package com.github.pqnelson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publish the top-level forms of a read table, reading them only as
+ * the subscriber asks for them.
+ *
+ * <p>Forms are read and delivered on the executor, never on the thread
+ * which subscribes or requests. Beyond what has been requested, at most
+ * {@code prefetch} forms are read ahead and held, so a slow subscriber
+ * keeps the memory in use bounded however long the input is.</p>
+ *
+ * <p>A read table can be read through once, so there is only one
+ * subscriber; any later one is sent {@code onError} with an
+ * {@code IllegalStateException}. The publisher closes the read table,
+ * if it is {@code Closeable}, once the input is exhausted, a reader
+ * macro throws, or the subscription is cancelled; after a cancellation
+ * no more of the input is read. An {@code IOException} from the input
+ * of a {@link ReadTable} is sent as {@code onError}, after the forms
+ * read before it.</p>
+ */
+public final class FormPublisher implements Flow.Publisher<Object> {
+    /**
+     * The forms to publish.
+     */
+    private final AbstractReadTable table;
+
+    /**
+     * Reads and delivers the forms.
+     */
+    private final Executor executor;
+
+    /**
+     * How many forms may be read ahead of demand.
+     */
+    private final int prefetch;
+
+    /**
+     * Has the one subscriber come?
+     */
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    /**
+     * Publish forms on the default executor, reading ahead as much as
+     * {@code Flow.defaultBufferSize()}.
+     *
+     * @param forms The read table to read through.
+     */
+    public FormPublisher(final AbstractReadTable forms) {
+        this(forms, BatchReader.DefaultExecutor.INSTANCE,
+             Flow.defaultBufferSize());
+    }
+
+    /**
+     * Publish forms on the given executor.
+     *
+     * @param forms The read table to read through.
+     * @param tasks Reads and delivers the forms; reading may block on
+     *        the input.
+     * @param readAhead How many forms may be read before they are
+     *        requested; zero reads each only once requested.
+     */
+    public FormPublisher(final AbstractReadTable forms, final Executor tasks,
+                         final int readAhead) {
+        if (readAhead < 0) {
+            throw new IllegalArgumentException("Prefetch must not be negative");
+        }
+        this.table = Objects.requireNonNull(forms);
+        this.executor = Objects.requireNonNull(tasks);
+        this.prefetch = readAhead;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return How many forms may be read ahead of demand.
+     */
+    public int getPrefetch() {
+        return this.prefetch;
+    }
+
+    /**
+     * Start publishing to the subscriber, if it is the first.
+     *
+     * @param subscriber Receives the forms.
+     */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super Object> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!this.subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(final long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+            subscriber.onError(new IllegalStateException(
+                "Forms are published to one subscriber only"));
+            return;
+        }
+        new FormSubscription(subscriber).signal();
+    }
+
+    /**
+     * The subscription of the one subscriber, which does the reading.
+     *
+     * <p>Every signal to the subscriber is sent by {@link #run}, which
+     * is scheduled on the executor when there is something to do, and
+     * never runs twice at once: the count of work not yet seen is only
+     * incremented from zero by the one caller which schedules it.</p>
+     */
+    private final class FormSubscription
+        implements Flow.Subscription, Runnable {
+        /**
+         * Receives the forms.
+         */
+        private final Flow.Subscriber<? super Object> subscriber;
+
+        /**
+         * Forms read but not yet requested; only touched by
+         * {@code run}.
+         */
+        private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+
+        /**
+         * Forms requested but not yet delivered, or
+         * {@code Long.MAX_VALUE} for no limit.
+         */
+        private final AtomicLong demand = new AtomicLong(0L);
+
+        /**
+         * Signals not yet seen by {@code run}.
+         */
+        private final AtomicInteger work = new AtomicInteger(0);
+
+        /**
+         * Has the subscriber cancelled?
+         */
+        private volatile boolean cancelled = false;
+
+        /**
+         * The violation of a non-positive request, or {@code null}.
+         */
+        private volatile IllegalArgumentException badRequest = null;
+
+        /**
+         * Has {@code onSubscribe} been sent?
+         */
+        private boolean started = false;
+
+        /**
+         * Has the read table been read to the end, or failed?
+         */
+        private boolean finished = false;
+
+        /**
+         * What cut the input short, or {@code null}.
+         */
+        private Throwable failure = null;
+
+        /**
+         * Has a terminal signal been sent, or the subscription been
+         * cancelled?
+         */
+        private boolean terminated = false;
+
+        /**
+         * Create the subscription.
+         *
+         * @param receiver Receives the forms.
+         */
+        FormSubscription(final Flow.Subscriber<? super Object> receiver) {
+            this.subscriber = receiver;
+        }
+
+        /**
+         * Ask for more forms.
+         *
+         * @param n How many more; {@code Long.MAX_VALUE} for all.
+         */
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                this.badRequest = new IllegalArgumentException(
+                    "Requested " + n + " forms, but must be positive");
+            } else {
+                this.demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE
+                                                        : d + n);
+            }
+            this.signal();
+        }
+
+        /**
+         * Stop reading, and drop any forms read ahead.
+         */
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            this.signal();
+        }
+
+        /**
+         * Schedule {@code run}, unless it is scheduled or running
+         * already, in which case it will see the signal.
+         */
+        void signal() {
+            if (0 != this.work.getAndIncrement()) {
+                return;
+            }
+            try {
+                FormPublisher.this.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // nothing else can run, as the work count stays positive
+                this.terminate();
+                if (!this.started) {
+                    this.started = true;
+                    this.subscriber.onSubscribe(this);
+                }
+                if (!this.cancelled) {
+                    this.subscriber.onError(e);
+                }
+            }
+        }
+
+        /**
+         * Send {@code onSubscribe} the first time, then deliver and read
+         * forms until there is nothing more to do without a signal.
+         */
+        @Override
+        public void run() {
+            if (!this.started) {
+                this.started = true;
+                this.subscriber.onSubscribe(this);
+            }
+            int missed = this.work.get();
+            do {
+                this.drain();
+                missed = this.work.addAndGet(-missed);
+            } while (0 != missed);
+        }
+
+        /**
+         * Deliver buffered forms as requested, and read forms while
+         * they are requested or the buffer has room.
+         */
+        private void drain() {
+            final int readAhead = FormPublisher.this.prefetch;
+            while (!this.terminated) {
+                if (this.cancelled) {
+                    this.terminate();
+                    return;
+                }
+                final IllegalArgumentException violation = this.badRequest;
+                if (null != violation) {
+                    this.terminate();
+                    this.subscriber.onError(violation);
+                    return;
+                }
+                final long requested = this.demand.get();
+                if (requested > 0 && !this.buffer.isEmpty()) {
+                    if (Long.MAX_VALUE != requested) {
+                        this.demand.decrementAndGet();
+                    }
+                    this.subscriber.onNext(this.buffer.poll());
+                } else if (this.finished) {
+                    if (this.buffer.isEmpty()) {
+                        this.complete();
+                    }
+                    return;
+                } else if (requested > 0 || this.buffer.size() < readAhead) {
+                    this.readForm();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Read the next form into the buffer, or note the end of the
+         * input.
+         */
+        private void readForm() {
+            final AbstractReadTable forms = FormPublisher.this.table;
+            final Object form;
+            try {
+                form = forms.read();
+            } catch (RuntimeException | StackOverflowError e) {
+                this.failure = e;
+                this.finished = true;
+                return;
+            }
+            if (null != form) {
+                this.buffer.add(form);
+                return;
+            }
+            this.finished = true;
+            if (forms instanceof ReadTable) {
+                this.failure = ((ReadTable) forms).inputError();
+            }
+        }
+
+        /**
+         * Send {@code onComplete}, or {@code onError} if the input was
+         * cut short or fails to close.
+         */
+        private void complete() {
+            final Throwable closeFailure = this.terminate();
+            if (null == this.failure) {
+                this.failure = closeFailure;
+            }
+            if (null == this.failure) {
+                this.subscriber.onComplete();
+            } else {
+                this.subscriber.onError(this.failure);
+            }
+        }
+
+        /**
+         * Stop for good: drop the buffered forms and close the read
+         * table.
+         *
+         * @return The exception from closing the read table, or
+         *         {@code null}.
+         */
+        private IOException terminate() {
+            this.terminated = true;
+            this.buffer.clear();
+            if (FormPublisher.this.table instanceof Closeable) {
+                try {
+                    ((Closeable) FormPublisher.this.table).close();
+                } catch (IOException e) {
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+}
\ No newline at end of file
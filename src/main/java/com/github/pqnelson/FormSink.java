@@ -0,0 +1,36 @@
+package com.github.pqnelson;
+
+/**
+ * Receives forms from {@link ReadTable#readInto(FormSink)}, with
+ * top-level numbers as primitives.
+ *
+ * <p>Only {@link #accept(Object)} need be implemented; by default,
+ * numbers are boxed and passed to it.</p>
+ */
+@FunctionalInterface
+public interface FormSink {
+    /**
+     * Receive a form which is not a primitive number.
+     *
+     * @param form The form.
+     */
+    void accept(Object form);
+
+    /**
+     * Receive an integer literal.
+     *
+     * @param value The integer.
+     */
+    default void acceptLong(final long value) {
+        this.accept(value);
+    }
+
+    /**
+     * Receive a floating-point literal.
+     *
+     * @param value The number.
+     */
+    default void acceptDouble(final double value) {
+        this.accept(value);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.github.pqnelson;
+
+/**
+ * Told where each top-level form was found, as it is read.
+ *
+ * @see ReadTable#setSpanListener(FormSpanListener)
+ */
+@FunctionalInterface
+public interface FormSpanListener {
+    /**
+     * A top-level form has been read.
+     *
+     * @param form The form, as {@code read()} is about to return it.
+     * @param span Where the form was found in the input.
+     */
+    void formRead(Object form, SourceSpan span);
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.github.pqnelson;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A lazy {@code Spliterator} over the top-level forms of a read table.
+ *
+ * <p>Each {@code tryAdvance} reads exactly one form, so a stream
+ * pipeline which short-circuits (e.g., {@code findFirst} or
+ * {@code limit}) stops reading the input as soon as it can. Splitting
+ * reads a batch of whole forms off the front into an array, which is
+ * the only way to split input whose form boundaries are unknown until
+ * it is read. The batches grow with each split, as with
+ * {@code Spliterators.AbstractSpliterator}.</p>
+ */
+final class FormSpliterator extends Spliterators.AbstractSpliterator<Object> {
+    /**
+     * The read table supplying the forms.
+     */
+    private final AbstractReadTable table;
+
+    /**
+     * Spliterate over the forms remaining in a read table.
+     *
+     * @param readTable The source of forms.
+     */
+    FormSpliterator(final AbstractReadTable readTable) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.table = readTable;
+    }
+
+    /**
+     * Read the next form, if there is one.
+     *
+     * @param action What to do with the form.
+     * @return False if the input is exhausted.
+     */
+    @Override
+    public boolean tryAdvance(final Consumer<? super Object> action) {
+        final Object form = this.table.read();
+        if (null == form) {
+            return false;
+        }
+        action.accept(form);
+        return true;
+    }
+
+    /**
+     * Read and process every remaining form.
+     *
+     * @param action What to do with each form.
+     */
+    @Override
+    public void forEachRemaining(final Consumer<? super Object> action) {
+        Object form;
+        while (null != (form = this.table.read())) {
+            action.accept(form);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.github.pqnelson;
+
+import java.util.List;
+
+/**
+ * The extent and shape of a form skipped by
+ * {@link AbstractReadTable#skip(FormStats)}.
+ *
+ * <p>One instance is meant to be reused for every form skipped, so
+ * skipping allocates nothing; each skip overwrites the statistics of
+ * the previous one.</p>
+ */
+public final class FormStats {
+    /**
+     * Offset of the first character of the form, or {@code -1}.
+     */
+    private long start = -1L;
+
+    /**
+     * Offset just past the last character of the form, or {@code -1}.
+     */
+    private long end = -1L;
+
+    /**
+     * Number of atoms in the form, at any depth.
+     */
+    private long atoms = 0L;
+
+    /**
+     * Number of collections in the form, including itself.
+     */
+    private long lists = 0L;
+
+    /**
+     * Deepest nesting of collections in the form.
+     */
+    private int maxDepth = 0;
+
+    /**
+     * Number of collections left open at the end of input.
+     */
+    private int unclosed = 0;
+
+    /**
+     * Forget the previous form.
+     */
+    void clear() {
+        this.start = -1L;
+        this.end = -1L;
+        this.atoms = 0L;
+        this.lists = 0L;
+        this.maxDepth = 0;
+        this.unclosed = 0;
+    }
+
+    /**
+     * Record the extent of the form.
+     *
+     * @param from Offset of its first character.
+     * @param to Offset just past its last character.
+     */
+    void extent(final long from, final long to) {
+        this.start = from;
+        this.end = to;
+    }
+
+    /**
+     * Count an atom.
+     */
+    void atom() {
+        this.atoms++;
+    }
+
+    /**
+     * Count a collection opened at a given depth.
+     *
+     * @param depth The nesting depth of the collection, from 1.
+     */
+    void list(final int depth) {
+        this.lists++;
+        if (depth > this.maxDepth) {
+            this.maxDepth = depth;
+        }
+    }
+
+    /**
+     * Record how many collections the end of input closed.
+     *
+     * @param open The number of collections still open.
+     */
+    void unclosed(final int open) {
+        this.unclosed = open;
+    }
+
+    /**
+     * Count an already built form: lists as collections, anything else
+     * as an atom.
+     *
+     * @param form The form.
+     * @param depth The nesting depth of its parent, from 0.
+     */
+    void count(final Object form, final int depth) {
+        if (form instanceof List) {
+            this.list(depth + 1);
+            for (Object element : (List<?>) form) {
+                this.count(element, depth + 1);
+            }
+        } else {
+            this.atom();
+        }
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The offset of the first character of the form, or
+     *         {@code -1} if the read table does not know it.
+     */
+    public long getStart() {
+        return this.start;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The offset just past the last character of the form, or
+     *         {@code -1} if the read table does not know it.
+     */
+    public long getEnd() {
+        return this.end;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of atoms in the form, at any depth.
+     */
+    public long getAtoms() {
+        return this.atoms;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of collections in the form, including itself.
+     */
+    public long getLists() {
+        return this.lists;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The deepest nesting of collections; zero for an atom.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of collections left open at the end of input;
+     *         zero for a balanced form.
+     */
+    public int getUnclosed() {
+        return this.unclosed;
+    }
+
+    /**
+     * Summarize the statistics.
+     *
+     * @return A human-readable summary.
+     */
+    @Override
+    public String toString() {
+        return "FormStats[" + this.start + ".." + this.end
+            + ", atoms=" + this.atoms + ", lists=" + this.lists
+            + ", maxDepth=" + this.maxDepth
+            + ", unclosed=" + this.unclosed + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.github.pqnelson;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A bounded cache of lists, so that structurally equal subtrees of the
+ * forms read share one immutable instance.
+ *
+ * <p>Collections are canonicalized as they are closed, innermost first,
+ * so by the time a list is looked up its elements are canonical
+ * already. Two lists are then equal when their atoms are equal and
+ * their sublists are <em>identical</em>, and comparing or hashing a
+ * list only looks at its own elements, never deeper. Equal trees read
+ * through the same table are, as a result, usually the same object, and
+ * comparing them is a reference check. Lists of different
+ * representations are never shared: a list of cons cells only matches
+ * another, so each reader macro's {@link ListRepresentation} is kept.</p>
+ *
+ * <p>Like {@link TokenInterner}, the table is 4-way set associative,
+ * evicting the least recently used list of a full set. It also only
+ * holds its lists weakly, so it never keeps a tree alive that the
+ * program has dropped. Lists are stored immutable: an {@code ArrayList}
+ * is copied into a compact list first.</p>
+ *
+ * <p>A table is not thread-safe. Give each read table its own, or share
+ * one between read tables used by the same thread.</p>
+ */
+public final class HashConsTable {
+    /**
+     * Number of slots in each set.
+     */
+    private static final int WAYS = 4;
+
+    /**
+     * The canonical lists, {@code WAYS} consecutive slots per set, each
+     * set ordered from most to least recently used.
+     */
+    private final WeakReference<List<Object>>[] slots;
+
+    /**
+     * The shallow hash of each list in {@code slots}.
+     */
+    private final int[] hashes;
+
+    /**
+     * Mask selecting a set from a hash.
+     */
+    private final int setMask;
+
+    /**
+     * Number of lookups answered from the table.
+     */
+    private long hits = 0;
+
+    /**
+     * Number of lookups adding a new list.
+     */
+    private long misses = 0;
+
+    /**
+     * Create a table holding at most about {@code capacity} lists.
+     *
+     * @param capacity The number of lists to keep, rounded up to a
+     * power of two no smaller than four.
+     */
+    public HashConsTable(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got "
+                                               + capacity);
+        }
+        int sets = 1;
+        while (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final WeakReference<List<Object>>[] refs =
+            new WeakReference[sets * WAYS];
+        this.slots = refs;
+        this.hashes = new int[sets * WAYS];
+        this.setMask = sets - 1;
+    }
+
+    /**
+     * Find the canonical instance of a list, adding it if there is none.
+     *
+     * @param list A list whose sublists are canonical already.
+     * @return An immutable list equal to {@code list}, shared with
+     *         earlier equal lists while it stays in the table.
+     */
+    public List<Object> intern(final List<Object> list) {
+        final int hash = shallowHash(list);
+        final int base = ((hash ^ (hash >>> 16)) & this.setMask) * WAYS;
+        for (int way = 0; way < WAYS; way++) {
+            final WeakReference<List<Object>> ref = this.slots[base + way];
+            if (null == ref) {
+                break;
+            }
+            final List<Object> candidate = ref.get();
+            if (null != candidate && this.hashes[base + way] == hash
+                && shallowEquals(candidate, list)) {
+                // move to the front of the set
+                System.arraycopy(this.slots, base, this.slots, base + 1, way);
+                System.arraycopy(this.hashes, base, this.hashes, base + 1, way);
+                this.slots[base] = ref;
+                this.hashes[base] = hash;
+                this.hits++;
+                return candidate;
+            }
+        }
+        this.misses++;
+        final List<Object> canonical = list instanceof ImmutableList ? list
+            : CompactLists.of(list.toArray(), list.size());
+        System.arraycopy(this.slots, base, this.slots, base + 1, WAYS - 1);
+        System.arraycopy(this.hashes, base, this.hashes, base + 1, WAYS - 1);
+        this.slots[base] = new WeakReference<>(canonical);
+        this.hashes[base] = hash;
+        return canonical;
+    }
+
+    /**
+     * Hash a list by its representation, its atoms, and the identity of
+     * its sublists.
+     *
+     * @param list The list.
+     * @return The shallow hash.
+     */
+    private static int shallowHash(final List<Object> list) {
+        int hash = list instanceof Cons ? 2 : 1;
+        for (Object element : list) {
+            hash = 31 * hash + (element instanceof List
+                                ? System.identityHashCode(element)
+                                : Objects.hashCode(element));
+        }
+        return hash;
+    }
+
+    /**
+     * Compare lists by their representation, their atoms, and the
+     * identity of their sublists. Other than conses, every list is
+     * stored compact, so is only told apart from a cons.
+     *
+     * @param a A list.
+     * @param b Another list.
+     * @return True if the lists are shallowly equal.
+     */
+    private static boolean shallowEquals(final List<Object> a,
+                                         final List<Object> b) {
+        if (a.size() != b.size()
+            || (a instanceof Cons) != (b instanceof Cons)) {
+            return false;
+        }
+        final Iterator<Object> other = b.iterator();
+        for (Object x : a) {
+            final Object y = other.next();
+            if (x != y && (x instanceof List || !Objects.equals(x, y))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The number of slots, i.e., the most lists kept at once.
+     *
+     * @return The capacity of the table.
+     */
+    public int capacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lookups answered by an existing list.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lookups which added a new list.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Forget every list and zero the counters.
+     */
+    public void clear() {
+        Arrays.fill(this.slots, null);
+        Arrays.fill(this.hashes, 0);
+        this.hits = 0;
+        this.misses = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,379 @@
+package com.github.pqnelson;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A base for immutable lists, needing only {@code get} and {@code size}.
+ *
+ * <p>This is what {@code AbstractList} would be, without its
+ * {@code modCount} field: lists that never change have no use for it.
+ * Its four bytes, once padded to the eight-byte object alignment, would
+ * add eight bytes to a cons cell, and to every compact list but those
+ * of two or four elements, with compressed references.</p>
+ */
+abstract class ImmutableList implements List<Object> {
+    /**
+     * A predicate.
+     *
+     * @return True if the list has no elements.
+     */
+    @Override
+    public boolean isEmpty() {
+        return 0 == this.size();
+    }
+
+    /**
+     * Search the list for an element.
+     *
+     * @param o The element sought.
+     * @return True if an element equals {@code o}.
+     */
+    @Override
+    public boolean contains(final Object o) {
+        return this.indexOf(o) >= 0;
+    }
+
+    /**
+     * Search the list for every element of a collection.
+     *
+     * @param c The elements sought.
+     * @return True if each of them equals an element of the list.
+     */
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        for (Object o : c) {
+            if (!this.contains(o)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the first occurrence of an element, walking the list once.
+     *
+     * @param o The element sought.
+     * @return Its first index, or {@code -1} if absent.
+     */
+    @Override
+    public int indexOf(final Object o) {
+        int i = 0;
+        for (Object element : this) {
+            if (Objects.equals(o, element)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the last occurrence of an element, walking the list once
+     * from the front, since a cons list cannot be walked backwards.
+     *
+     * @param o The element sought.
+     * @return Its last index, or {@code -1} if absent.
+     */
+    @Override
+    public int lastIndexOf(final Object o) {
+        int found = -1;
+        int i = 0;
+        for (Object element : this) {
+            if (Objects.equals(o, element)) {
+                found = i;
+            }
+            i++;
+        }
+        return found;
+    }
+
+    /**
+     * Iterate by index; subclasses with a cheaper walk override this.
+     *
+     * @return An iterator over the elements.
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<Object>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < ImmutableList.this.size();
+            }
+
+            @Override
+            public Object next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return ImmutableList.this.get(this.next++);
+            }
+        };
+    }
+
+    /**
+     * A read-only list iterator, from the front.
+     *
+     * @return A list iterator which refuses changes.
+     */
+    @Override
+    public ListIterator<Object> listIterator() {
+        return this.view().listIterator();
+    }
+
+    /**
+     * A read-only list iterator, from a given index.
+     *
+     * @param index The index of the first element to return.
+     * @return A list iterator which refuses changes.
+     */
+    @Override
+    public ListIterator<Object> listIterator(final int index) {
+        return this.view().listIterator(index);
+    }
+
+    /**
+     * A read-only view of part of the list.
+     *
+     * @param fromIndex The first index, inclusive.
+     * @param toIndex The last index, exclusive.
+     * @return The view.
+     */
+    @Override
+    public List<Object> subList(final int fromIndex, final int toIndex) {
+        return this.view().subList(fromIndex, toIndex);
+    }
+
+    /**
+     * A read-only {@code AbstractList} over this list, to borrow its
+     * list iterators and sublists. It looks elements up by index, so a
+     * subclass whose {@code get} is not constant time overrides this.
+     *
+     * @return The view.
+     */
+    List<Object> view() {
+        return new AbstractList<Object>() {
+            @Override
+            public Object get(final int index) {
+                return ImmutableList.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return ImmutableList.this.size();
+            }
+        };
+    }
+
+    /**
+     * Copy the elements into a new array.
+     *
+     * @return The elements, in order.
+     */
+    @Override
+    public Object[] toArray() {
+        final Object[] array = new Object[this.size()];
+        int i = 0;
+        for (Object element : this) {
+            array[i++] = element;
+        }
+        return array;
+    }
+
+    /**
+     * Copy the elements into an array, as the {@code List} contract
+     * demands.
+     *
+     * @param a The array to fill, if large enough; otherwise its type
+     * is that of the new array.
+     * @param <T> The component type of the array.
+     * @return The array holding the elements.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(final T[] a) {
+        final int size = this.size();
+        final T[] array = a.length >= size ? a
+            : (T[]) java.lang.reflect.Array.newInstance(
+                a.getClass().getComponentType(), size);
+        int i = 0;
+        for (Object element : this) {
+            array[i++] = (T) element;
+        }
+        if (array.length > size) {
+            array[size] = null;
+        }
+        return array;
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param e Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public boolean add(final Object e) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param index Ignored.
+     * @param element Ignored.
+     */
+    @Override
+    public void add(final int index, final Object element) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param c Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public boolean addAll(final Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param index Ignored.
+     * @param c Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public boolean addAll(final int index, final Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param index Ignored.
+     * @param element Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public Object set(final int index, final Object element) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param o Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public boolean remove(final Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param index Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public Object remove(final int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param c Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     *
+     * @param c Ignored.
+     * @return Never returns.
+     */
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Unsupported, the list is immutable.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Compare as the {@code List} contract demands: the same elements
+     * in the same order, whatever the implementation.
+     *
+     * @param o The object to compare with.
+     * @return True if {@code o} is an equal list.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof List)) {
+            return false;
+        }
+        final Iterator<?> other = ((List<?>) o).iterator();
+        for (Object element : this) {
+            if (!other.hasNext() || !Objects.equals(element, other.next())) {
+                return false;
+            }
+        }
+        return !other.hasNext();
+    }
+
+    /**
+     * Hash as the {@code List} contract demands.
+     *
+     * @return The hash of the elements, in order.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (Object element : this) {
+            hash = 31 * hash + Objects.hashCode(element);
+        }
+        return hash;
+    }
+
+    /**
+     * Format like other collections, e.g. {@code [a, b]}.
+     *
+     * @return The elements, comma separated, in brackets.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder("[");
+        String separator = "";
+        for (Object element : this) {
+            out.append(separator).append(element == this ? "(this list)"
+                                         : String.valueOf(element));
+            separator = ", ";
+        }
+        return out.append(']').toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,470 @@
+package com.github.pqnelson;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A push-based Lisp reader, fed input in chunks as it arrives.
+ *
+ * <p>{@code ReadTable} pulls characters from a blocking {@code Reader},
+ * so a form split across network packets stalls the calling thread
+ * until the rest turns up. This reader is instead handed each chunk,
+ * reads as far as the chunk goes, and keeps its state until the next
+ * one: the partial token, and every collection still open, with its
+ * elements so far. Each completed top-level form is passed to a
+ * callback. One thread can therefore serve many sessions, each with
+ * its own {@code IncrementalReader}.</p>
+ *
+ * <p>Forms are the same as {@code ReadTable} would read, for the reader
+ * macros it knows: {@code AccumulatorReaderMacro} opens a collection,
+ * closed by its stop token, and {@code SingleCharReaderMacro} produces
+ * its token. Those are handled by the reader itself rather than called,
+ * since they would need to pull more input. Any other reader macro is
+ * called, but the stream it gets only holds what is left of the
+ * current chunk, and it may not read forms, so reader macros which
+ * might (see {@code ReaderMacro.readsForms()}) are refused when bound;
+ * a non-null result is treated as an atom. That suits side-effecting
+ * macros like {@code LineNumberCounter}.</p>
+ *
+ * <p>Completed forms are the same as {@code ReadTable} reads. A form
+ * left unterminated at the end of the input is not passed to the
+ * callback, but returned by {@link #finish()}, so the caller can tell
+ * it was cut short.</p>
+ *
+ * <p>An {@code IncrementalReader} is not thread-safe, but it never
+ * blocks, so any thread may feed it as long as feeds do not overlap.</p>
+ */
+public final class IncrementalReader {
+    /**
+     * Size of the buffer bytes are decoded into.
+     */
+    private static final int DECODE_BUFFER_SIZE = 4096;
+
+    /**
+     * Mapping of character [code points] to {@code ReaderMacro} instances.
+     */
+    private MacroTable macroBindings;
+
+    /**
+     * Is {@code macroBindings} shared with a definition? If so, it is
+     * copied before {@code addMacro} changes it.
+     */
+    private boolean sharedBindings;
+
+    /**
+     * Told about every completed top-level form.
+     */
+    private final Consumer<Object> sink;
+
+    /**
+     * The token read so far, if {@code inToken}.
+     */
+    private final StringBuilder token = new StringBuilder();
+
+    /**
+     * Are we in the middle of a token?
+     */
+    private boolean inToken = false;
+
+    /**
+     * The open collections, innermost last.
+     */
+    private ArrayList<Object>[] open;
+
+    /**
+     * The reader macros which opened the collections, parallel to
+     * {@code open}.
+     */
+    private AccumulatorReaderMacro[] openMacros;
+
+    /**
+     * Number of open collections.
+     */
+    private int depth = 0;
+
+    /**
+     * UTF-8 decoder state, carried across byte chunks.
+     */
+    private CharsetDecoder decoder = null;
+
+    /**
+     * Bytes of a UTF-8 sequence split across byte chunks.
+     */
+    private ByteBuffer carry = null;
+
+    /**
+     * Characters decoded from bytes, waiting to be read.
+     */
+    private CharBuffer decoded = null;
+
+    /**
+     * Create a reader passing each completed form to {@code forms}.
+     *
+     * @param forms The callback for top-level forms.
+     */
+    public IncrementalReader(final Consumer<Object> forms) {
+        this(new MacroTable(), false, forms);
+    }
+
+    /**
+     * Create a reader for a read table definition, passing each
+     * completed form to {@code forms}.
+     *
+     * @param definition The reader macros to follow.
+     * @param forms The callback for top-level forms.
+     */
+    public IncrementalReader(final ReadTableDefinition definition,
+                             final Consumer<Object> forms) {
+        this(definition.macroTable(), true, forms);
+        for (int c : definition.macroTable().boundCodepoints()) {
+            checkMacro(definition.macroTable().get(c));
+        }
+    }
+
+    /**
+     * Create a reader with the given bindings.
+     *
+     * @param bindings The reader macros to follow.
+     * @param shared Are the bindings shared with others?
+     * @param forms The callback for top-level forms.
+     */
+    private IncrementalReader(final MacroTable bindings, final boolean shared,
+                              final Consumer<Object> forms) {
+        this.macroBindings = bindings;
+        this.sharedBindings = shared;
+        this.sink = forms;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final ArrayList<Object>[] lists = new ArrayList[8];
+        this.open = lists;
+        this.openMacros = new AccumulatorReaderMacro[8];
+    }
+
+    /**
+     * Register a {@code ReaderMacro} to be bound to a specific character.
+     *
+     * <p>This will overwrite any existing binding to the given character.</p>
+     *
+     * @param character The UTF-16 character being bound to the reader macro.
+     * @param macro The specific ReaderMacro instance we will invoke upon
+     * reading a {@code character} from input.
+     */
+    public void addMacro(final char character, final ReaderMacro macro) {
+        this.addMacro((int) character, macro);
+    }
+
+    /**
+     * Register a {@code ReaderMacro} to be bound to a specific character.
+     *
+     * <p>This will overwrite any existing binding to the given character.</p>
+     *
+     * @param codepoint The value of the codepoint for the character
+     * being bound to the reader macro.
+     * @param macro The specific ReaderMacro instance we will invoke upon
+     * reading a {@code character} from input.
+     * @throws IllegalArgumentException If the reader macro might read
+     *         forms.
+     */
+    public void addMacro(final int codepoint, final ReaderMacro macro) {
+        checkMacro(macro);
+        if (this.sharedBindings) {
+            this.macroBindings = this.macroBindings.copy();
+            this.sharedBindings = false;
+        }
+        this.macroBindings.put(codepoint, macro);
+    }
+
+    /**
+     * Refuse a reader macro which would need to pull forms.
+     *
+     * @param macro The reader macro to be bound.
+     * @throws IllegalArgumentException If it is a custom reader macro
+     *         which might read forms.
+     */
+    private static void checkMacro(final ReaderMacro macro) {
+        if (CompiledLexer.CUSTOM == CompiledLexer.kindOf(-1, macro)
+            && macro.readsForms()) {
+            throw new IllegalArgumentException(
+                "Reader macros cannot read forms from an IncrementalReader: "
+                + macro.getClass().getName());
+        }
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of collections opened but not yet closed.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Read the next chunk of characters, consuming all of it.
+     *
+     * @param chunk The characters which have arrived.
+     */
+    public void feed(final CharSequence chunk) {
+        this.feed(CharBuffer.wrap(chunk));
+    }
+
+    /**
+     * Read the next chunk of characters, consuming all of it.
+     *
+     * @param chunk The characters which have arrived.
+     */
+    public void feed(final CharBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            final char c = chunk.get();
+            final ReaderMacro macro = this.macroBindings.get(c);
+            if (null == macro) {
+                if (Character.isWhitespace(c)) {
+                    this.endToken();
+                } else {
+                    this.inToken = true;
+                    this.token.append(c);
+                }
+                continue;
+            }
+            this.endToken();
+            if (macro instanceof AccumulatorReaderMacro) {
+                this.push((AccumulatorReaderMacro) macro);
+            } else if (macro instanceof SingleCharReaderMacro) {
+                this.atom(((SingleCharReaderMacro) macro).getToken());
+            } else {
+                final Object result = macro.apply(new ChunkReader(chunk),
+                                                  ChunkTable.INSTANCE);
+                if (null != result) {
+                    this.atom(result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the next chunk of UTF-8 encoded bytes, consuming all of it.
+     *
+     * <p>A multi-byte sequence may be split between chunks. Malformed
+     * input is replaced with U+FFFD.</p>
+     *
+     * @param chunk The bytes which have arrived.
+     */
+    public void feed(final ByteBuffer chunk) {
+        if (null == this.decoder) {
+            this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.carry = ByteBuffer.allocate(8);
+            this.decoded = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+        }
+        // finish off a sequence split by the previous chunk, a byte at
+        // a time, since we cannot tell how long it is without decoding
+        while (this.carry.position() > 0 && chunk.hasRemaining()) {
+            this.carry.put(chunk.get()).flip();
+            this.decode(this.carry, false);
+            this.carry.compact();
+        }
+        if (0 == this.carry.position()) {
+            this.decode(chunk, false);
+            this.carry.put(chunk);
+        }
+    }
+
+    /**
+     * Decode bytes and read the resulting characters.
+     *
+     * @param bytes The bytes to decode.
+     * @param endOfInput Are these the last bytes?
+     */
+    private void decode(final ByteBuffer bytes, final boolean endOfInput) {
+        CoderResult result;
+        do {
+            result = this.decoder.decode(bytes, this.decoded, endOfInput);
+            this.decoded.flip();
+            this.feed(this.decoded);
+            this.decoded.clear();
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Signal the end of input.
+     *
+     * <p>A token running up to the end is completed. If collections are
+     * still open, the top-level form they belong to was cut short: it
+     * is returned, with its collections closed as they stand, rather
+     * than passed to the callback. The reader may then be fed again,
+     * starting afresh.</p>
+     *
+     * @return The unterminated top-level form, or {@code null} if the
+     *         input ended between forms.
+     */
+    public Object finish() {
+        if (null != this.decoder) {
+            this.carry.flip();
+            this.decode(this.carry, true);
+            CoderResult result;
+            do {
+                result = this.decoder.flush(this.decoded);
+                this.decoded.flip();
+                this.feed(this.decoded);
+                this.decoded.clear();
+            } while (result.isOverflow());
+            this.carry.clear();
+            this.decoder.reset();
+        }
+        this.endToken();
+        if (0 == this.depth) {
+            return null;
+        }
+        while (this.depth > 1) {
+            this.pop();
+        }
+        this.depth--;
+        final Object unterminated =
+            this.openMacros[0].collect(this.open[0]);
+        this.open[0] = null;
+        this.openMacros[0] = null;
+        return unterminated;
+    }
+
+    /**
+     * Complete the token in progress, if any.
+     */
+    private void endToken() {
+        if (this.inToken) {
+            this.inToken = false;
+            final String atom = this.token.toString();
+            this.token.setLength(0);
+            this.atom(atom);
+        }
+    }
+
+    /**
+     * Deliver an atom to the innermost open collection, or to the sink
+     * at top level. The innermost collection's stop token closes it.
+     *
+     * @param atom The completed atom.
+     */
+    private void atom(final Object atom) {
+        if (0 == this.depth) {
+            this.sink.accept(atom);
+        } else if (this.openMacros[this.depth - 1].getStopToken()
+                   .equals(atom)) {
+            this.pop();
+        } else {
+            this.open[this.depth - 1].add(atom);
+        }
+    }
+
+    /**
+     * Open a collection.
+     *
+     * @param macro The reader macro opening it.
+     */
+    private void push(final AccumulatorReaderMacro macro) {
+        if (this.depth == this.open.length) {
+            this.open = Arrays.copyOf(this.open, 2 * this.depth);
+            this.openMacros = Arrays.copyOf(this.openMacros, 2 * this.depth);
+        }
+        this.open[this.depth] = new ArrayList<>();
+        this.openMacros[this.depth] = macro;
+        this.depth++;
+    }
+
+    /**
+     * Close the innermost collection, delivering it to its parent.
+     */
+    private void pop() {
+        this.depth--;
+        final ArrayList<Object> coll = this.open[this.depth];
+        final AccumulatorReaderMacro macro = this.openMacros[this.depth];
+        this.open[this.depth] = null;
+        this.openMacros[this.depth] = null;
+        this.atom(macro.collect(coll));
+    }
+
+    /**
+     * The stream handed to custom reader macros: the rest of the
+     * current chunk, consumed from the chunk itself.
+     */
+    private static final class ChunkReader extends Reader {
+        /**
+         * The chunk being read.
+         */
+        private final CharBuffer chunk;
+
+        /**
+         * Read from what is left of a chunk.
+         *
+         * @param rest The chunk, positioned after the macro character.
+         */
+        ChunkReader(final CharBuffer rest) {
+            this.chunk = rest;
+        }
+
+        /**
+         * Read characters into a portion of an array.
+         *
+         * @param cbuf Destination buffer.
+         * @param off Offset at which to start storing characters.
+         * @param len Maximum number of characters to read.
+         * @return The number of characters read, or {@code -1} at the
+         *         end of the chunk.
+         */
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) {
+            if (!this.chunk.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, this.chunk.remaining());
+            this.chunk.get(cbuf, off, n);
+            return n;
+        }
+
+        /**
+         * Nothing to close.
+         */
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * The table handed to custom reader macros, which cannot pull forms.
+     */
+    private static final class ChunkTable extends AbstractReadTable {
+        /**
+         * The only instance needed.
+         */
+        static final ChunkTable INSTANCE = new ChunkTable();
+
+        /**
+         * There is never anything to read on demand.
+         *
+         * @return True.
+         */
+        @Override
+        public boolean isFinished() {
+            return true;
+        }
+
+        /**
+         * Reading on demand is impossible when input is pushed; reader
+         * macros which might are refused when bound.
+         *
+         * @return Never returns.
+         */
+        @Override
+        public Object read() {
+            throw new UnsupportedOperationException(
+                "Reader macros cannot read forms from an IncrementalReader");
+        }
+    }
+}
@@ -7,6 +7,10 @@ import java.util.function.IntConsumer;
 /**
  * A macro to count the line numbers, and notify any observers who want
  * the information.
+ *
+ * <p>{@code ReadTable} tracks the line (and column and offset) itself,
+ * see {@link ReadTable#position()}; this macro remains for observers
+ * wanting a callback on every new line.</p>
  */
 public class LineNumberCounter implements ReaderMacro {
     /**
@@ -71,4 +75,14 @@ public class LineNumberCounter implements ReaderMacro {
         }
         return null;
     }
+
+    /**
+     * This reader macro reads nothing at all.
+     *
+     * @return False.
+     */
+    @Override
+    public boolean readsForms() {
+        return false;
+    }
 }
\ No newline at end of file
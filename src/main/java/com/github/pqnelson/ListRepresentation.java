@@ -0,0 +1,24 @@
+package com.github.pqnelson;
+
+/**
+ * How an {@code AccumulatorReaderMacro} represents the collections it
+ * reads. Every representation is a {@code java.util.List}.
+ */
+public enum ListRepresentation {
+    /**
+     * A mutable {@code ArrayList}, as it was filled; it usually has
+     * spare capacity.
+     */
+    ARRAY_LIST,
+    /**
+     * An immutable, random access list: a dedicated class for up to four
+     * elements, and an exact-size array beyond that. Much smaller than
+     * an {@code ArrayList} for the short lists typical of Lisp data.
+     */
+    COMPACT,
+    /**
+     * An immutable chain of {@link Cons} cells, as in Lisp; sublists
+     * share structure, but access by index is linear.
+     */
+    CONS
+}
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.github.pqnelson;
+
+import java.util.Arrays;
+
+/**
+ * Mapping of character code points to {@code ReaderMacro} instances,
+ * tuned for the per-character lookup in the read loop.
+ *
+ * <p>Code points below 256 (ASCII and Latin-1, i.e., nearly every
+ * binding anyone makes) live in a dense array indexed directly by the
+ * code point. Everything else goes into a small open-addressed hash
+ * table keyed on the primitive {@code int}. Neither path boxes the
+ * code point, so a lookup allocates nothing.</p>
+ */
+final class MacroTable {
+    /**
+     * Code points strictly below this are stored densely.
+     */
+    private static final int DENSE_LIMIT = 256;
+
+    /**
+     * Initial capacity of the sparse table; must be a power of two.
+     */
+    private static final int SPARSE_CAPACITY = 8;
+
+    /**
+     * Marker for an empty slot in {@code sparseKeys}. Negative code
+     * points are never bound, and {@code -1} is end of input anyway.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Bindings for code points in {@code [0, DENSE_LIMIT)}.
+     */
+    private final ReaderMacro[] dense = new ReaderMacro[DENSE_LIMIT];
+
+    /**
+     * Keys of the sparse table, {@code EMPTY} for unused slots.
+     */
+    private int[] sparseKeys;
+
+    /**
+     * Values of the sparse table, parallel to {@code sparseKeys}.
+     */
+    private ReaderMacro[] sparseValues;
+
+    /**
+     * Number of bindings in the sparse table.
+     */
+    private int sparseSize = 0;
+
+    /**
+     * Create an empty table.
+     */
+    MacroTable() {
+        this.sparseKeys = null;
+        this.sparseValues = null;
+    }
+
+    /**
+     * Copy another table's bindings.
+     *
+     * @param other The table to copy.
+     */
+    private MacroTable(final MacroTable other) {
+        System.arraycopy(other.dense, 0, this.dense, 0, DENSE_LIMIT);
+        this.sparseKeys = null == other.sparseKeys ? null
+            : other.sparseKeys.clone();
+        this.sparseValues = null == other.sparseValues ? null
+            : other.sparseValues.clone();
+        this.sparseSize = other.sparseSize;
+    }
+
+    /**
+     * Copy this table, so the copy may be changed without affecting
+     * anybody sharing this one.
+     *
+     * @return A table with the same bindings.
+     */
+    MacroTable copy() {
+        return new MacroTable(this);
+    }
+
+    /**
+     * Find the reader macro bound to a code point.
+     *
+     * @param codepoint The code point just read, possibly {@code -1}.
+     * @return The bound reader macro, or {@code null} if there is none.
+     */
+    ReaderMacro get(final int codepoint) {
+        if (codepoint >= 0 && codepoint < DENSE_LIMIT) {
+            return this.dense[codepoint];
+        }
+        if (0 == this.sparseSize || codepoint < 0) {
+            return null;
+        }
+        final int mask = this.sparseKeys.length - 1;
+        int i = mix(codepoint) & mask;
+        int key;
+        while (EMPTY != (key = this.sparseKeys[i])) {
+            if (key == codepoint) {
+                return this.sparseValues[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * The code points with a reader macro bound.
+     *
+     * @return The bound code points, in ascending order.
+     */
+    int[] boundCodepoints() {
+        int count = 0;
+        final int[] found = new int[DENSE_LIMIT + this.sparseSize];
+        for (int c = 0; c < DENSE_LIMIT; c++) {
+            if (null != this.dense[c]) {
+                found[count++] = c;
+            }
+        }
+        for (int i = 0; 0 != this.sparseSize && i < this.sparseKeys.length;
+             i++) {
+            if (EMPTY != this.sparseKeys[i] && null != this.sparseValues[i]) {
+                found[count++] = this.sparseKeys[i];
+            }
+        }
+        final int[] result = Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Bind a reader macro to a code point, replacing any old binding.
+     *
+     * <p>Binding {@code null} is the same as never having bound the
+     * code point in the dense range; in the sparse range the slot is
+     * kept, but {@link #get(int)} will answer {@code null} for it.</p>
+     *
+     * @param codepoint The code point being bound.
+     * @param macro The reader macro to invoke upon reading it.
+     */
+    void put(final int codepoint, final ReaderMacro macro) {
+        if (codepoint < 0) {
+            throw new IllegalArgumentException("Cannot bind a reader macro to "
+                                               + codepoint);
+        }
+        if (codepoint < DENSE_LIMIT) {
+            this.dense[codepoint] = macro;
+            return;
+        }
+        if (null == this.sparseKeys) {
+            this.sparseKeys = emptyKeys(SPARSE_CAPACITY);
+            this.sparseValues = new ReaderMacro[SPARSE_CAPACITY];
+        } else if (2 * (this.sparseSize + 1) > this.sparseKeys.length) {
+            this.grow();
+        }
+        final int mask = this.sparseKeys.length - 1;
+        int i = mix(codepoint) & mask;
+        while (EMPTY != this.sparseKeys[i]) {
+            if (this.sparseKeys[i] == codepoint) {
+                this.sparseValues[i] = macro;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        this.sparseKeys[i] = codepoint;
+        this.sparseValues[i] = macro;
+        this.sparseSize++;
+    }
+
+    /**
+     * Double the sparse table, keeping the load factor at most one half
+     * so probe sequences stay short.
+     */
+    private void grow() {
+        final int[] oldKeys = this.sparseKeys;
+        final ReaderMacro[] oldValues = this.sparseValues;
+        this.sparseKeys = emptyKeys(2 * oldKeys.length);
+        this.sparseValues = new ReaderMacro[this.sparseKeys.length];
+        final int mask = this.sparseKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (EMPTY != oldKeys[j]) {
+                int i = mix(oldKeys[j]) & mask;
+                while (EMPTY != this.sparseKeys[i]) {
+                    i = (i + 1) & mask;
+                }
+                this.sparseKeys[i] = oldKeys[j];
+                this.sparseValues[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Allocate a key array with every slot empty.
+     *
+     * @param capacity The number of slots, a power of two.
+     * @return The new key array.
+     */
+    private static int[] emptyKeys(final int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    /**
+     * Scramble the bits of a code point, since neighbouring code points
+     * (e.g., a block of CJK brackets) would otherwise cluster.
+     *
+     * @param codepoint The key to hash.
+     * @return The hash of the key.
+     */
+    private static int mix(final int codepoint) {
+        final int h = codepoint * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
\ No newline at end of file
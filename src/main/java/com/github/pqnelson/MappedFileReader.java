@@ -0,0 +1,261 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A reader decoding UTF-8 straight out of a memory-mapped file.
+ *
+ * <p>The file is mapped one segment at a time and decoded only as the
+ * read table asks for characters, so the bytes are never copied onto
+ * the heap. Files larger than 2 GiB, which a single
+ * {@code MappedByteBuffer} cannot address, are handled by remapping.
+ * Malformed input is replaced with U+FFFD rather than aborting the
+ * read.</p>
+ *
+ * <p>Java has no supported way to unmap a buffer: a segment already
+ * decoded stays mapped until the garbage collector collects its
+ * {@code MappedByteBuffer}. Its pages are clean and backed by the file,
+ * so the operating system may reclaim them, but until then they may
+ * still count towards the resident size of the process.</p>
+ */
+final class MappedFileReader extends Reader {
+    /**
+     * How much of the file is mapped at once, by default.
+     */
+    static final long SEGMENT_SIZE = 64L << 20;
+
+    /**
+     * How much of the file this reader maps at once.
+     */
+    private final long segmentSize;
+
+    /**
+     * The open file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * File offset just past the last byte to read: the size of the
+     * file when opened, unless the reader was given an end.
+     */
+    private final long size;
+
+    /**
+     * File offset of the first byte of {@code segment}.
+     */
+    private long segmentStart;
+
+    /**
+     * The currently mapped part of the file.
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * Decoder state, carried across segments.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * Has the decoder been flushed after the last segment?
+     */
+    private boolean flushed = false;
+
+    /**
+     * Holds decoded characters when the caller asked for fewer than a
+     * surrogate pair needs.
+     */
+    private final CharBuffer spare = CharBuffer.allocate(2).limit(0);
+
+    /**
+     * Open and map the beginning of a file.
+     *
+     * @param path The UTF-8 encoded file to read.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    MappedFileReader(final Path path) throws IOException {
+        this(path, SEGMENT_SIZE);
+    }
+
+    /**
+     * Open and map the beginning of a file, in segments of a given size.
+     *
+     * @param path The UTF-8 encoded file to read.
+     * @param segmentBytes The most bytes to map at once; at least the
+     * four bytes of the longest UTF-8 sequence are always mapped.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    MappedFileReader(final Path path, final long segmentBytes)
+        throws IOException {
+        this(path, 0L, segmentBytes);
+    }
+
+    /**
+     * Open a file and map it from a given byte offset.
+     *
+     * @param path The UTF-8 encoded file to read.
+     * @param start The file offset to start reading from, which must be
+     * the first byte of a UTF-8 sequence.
+     * @param segmentBytes The most bytes to map at once; at least the
+     * four bytes of the longest UTF-8 sequence are always mapped.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    MappedFileReader(final Path path, final long start,
+                     final long segmentBytes) throws IOException {
+        this(path, start, Long.MAX_VALUE, segmentBytes);
+    }
+
+    /**
+     * Open a file and map a range of it.
+     *
+     * @param path The UTF-8 encoded file to read.
+     * @param start The file offset to start reading from, which must be
+     * the first byte of a UTF-8 sequence.
+     * @param end The file offset to stop reading at, which must be the
+     * first byte of a UTF-8 sequence, or past the end of the file.
+     * @param segmentBytes The most bytes to map at once; at least the
+     * four bytes of the longest UTF-8 sequence are always mapped.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    MappedFileReader(final Path path, final long start, final long end,
+                     final long segmentBytes) throws IOException {
+        this.segmentSize = Math.max(4L, segmentBytes);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = Math.min(end, this.channel.size());
+            this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.map(Math.min(start, this.size));
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * How many bytes a character takes in UTF-8, for counting byte
+     * offsets in decoded text; exact as long as the input was
+     * well-formed.
+     *
+     * @param c The character.
+     * @return One to three; two for each half of a surrogate pair,
+     *         which encodes as four bytes.
+     */
+    static int encodedLength(final char c) {
+        if (c < 0x80) {
+            return 1;
+        } else if (c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Map the segment starting at a given file offset.
+     *
+     * @param offset The file offset to map from.
+     * @throws IOException If the mapping fails.
+     */
+    private void map(final long offset) throws IOException {
+        this.segmentStart = offset;
+        final long length = Math.min(this.segmentSize, this.size - offset);
+        this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                                        offset, length);
+    }
+
+    /**
+     * Is the mapped segment the tail of the file?
+     *
+     * @return True if no bytes lie past the current segment.
+     */
+    private boolean lastSegment() {
+        return this.segmentStart + this.segment.limit() >= this.size;
+    }
+
+    /**
+     * Decode as many characters as fit, moving on to the next segment
+     * when the current one runs dry.
+     *
+     * @param out Where to put the characters.
+     * @throws IOException If the next segment cannot be mapped.
+     */
+    private void decode(final CharBuffer out) throws IOException {
+        while (out.hasRemaining() && !this.flushed) {
+            final boolean last = this.lastSegment();
+            final CoderResult result = this.decoder.decode(this.segment,
+                                                           out, last);
+            if (result.isOverflow()) {
+                return;
+            }
+            if (last) {
+                if (this.decoder.flush(out).isOverflow()) {
+                    return;
+                }
+                this.flushed = true;
+            } else if (out.position() > 0 && !this.segment.hasRemaining()) {
+                // return what we have; map the next segment on demand
+                this.map(this.segmentStart + this.segment.position());
+                return;
+            } else {
+                // a sequence straddles the segment boundary, start the
+                // next segment on its first byte
+                this.map(this.segmentStart + this.segment.position());
+            }
+        }
+    }
+
+    /**
+     * Read characters into a portion of an array.
+     *
+     * @param cbuf Destination buffer.
+     * @param off Offset at which to start storing characters.
+     * @param len Maximum number of characters to read.
+     * @return The number of characters read, or {@code -1} at the end.
+     * @throws IOException If the file cannot be mapped.
+     */
+    @Override
+    public int read(final char[] cbuf, final int off, final int len)
+        throws IOException {
+        if (0 == len) {
+            return 0;
+        }
+        if (this.spare.hasRemaining()) {
+            cbuf[off] = this.spare.get();
+            return 1;
+        }
+        if (len < 2) {
+            this.spare.clear();
+            this.decode(this.spare);
+            this.spare.flip();
+            if (!this.spare.hasRemaining()) {
+                return -1;
+            }
+            cbuf[off] = this.spare.get();
+            return 1;
+        }
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len).slice();
+        this.decode(out);
+        return 0 == out.position() ? -1 : out.position();
+    }
+
+    /**
+     * Close the file. The mapping itself is released by the garbage
+     * collector.
+     *
+     * @throws IOException If closing the channel fails.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
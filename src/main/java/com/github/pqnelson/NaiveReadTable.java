@@ -1,9 +1,6 @@
 package com.github.pqnelson;
 
-import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
-import java.io.StringReader;
 
 /**
  * A table-driven Lisp reader without any reader macros.
@@ -12,19 +9,7 @@ public class NaiveReadTable extends AbstractReadTable {
     /**
      * The source of characters to be read as Lisp data.
      */
-    private final PushbackReader source;
-
-    /**
-     * Are we finished reading yet?
-     */
-    private boolean finished = false;
-
-    /**
-     * The size of the buffer for the push back reader {@code source}.
-     * The default PushbackReader buffer size is too small to actually
-     * be useful, and I thought 50 was a nice round number.
-     */
-    private static final int BUFFERSIZE = 50; // "Why not 35 or 39?" ;p
+    private final CharSource source;
 
     /**
      * Create a reader for a string source.
@@ -32,7 +17,7 @@ public class NaiveReadTable extends AbstractReadTable {
      * @param snippet The string we're lexing and parsing for data.
      */
     public NaiveReadTable(final String snippet) {
-        this(new StringReader(snippet));
+        this.source = new CharSource(snippet);
     }
 
     /**
@@ -41,7 +26,7 @@ public class NaiveReadTable extends AbstractReadTable {
      * @param reader The {@code java.io.Reader} input source.
      */
     public NaiveReadTable(final Reader reader) {
-        this.source = new PushbackReader(reader, BUFFERSIZE);
+        this.source = new CharSource(reader);
     }
 
     /**
@@ -51,16 +36,7 @@ public class NaiveReadTable extends AbstractReadTable {
      * and {@code -1} if there's nothing left to read.
      */
     private int next() {
-        try {
-            int codepoint = this.source.read();
-            if (-1 == codepoint) {
-                this.finished = true;
-            }
-            return codepoint;
-        } catch (IOException e) {
-            finished = true;
-            return -1;
-        }
+        return this.source.read();
     }
 
     /**
@@ -69,10 +45,7 @@ public class NaiveReadTable extends AbstractReadTable {
      * @param c The code point for the character.
      */
     private void unread(final int c) {
-        try {
-            this.source.unread(c);
-        } catch (IOException e) {
-        }
+        this.source.unread(c);
     }
 
     /**
@@ -82,15 +55,7 @@ public class NaiveReadTable extends AbstractReadTable {
      */
     @Override
     public boolean isFinished() {
-        if (!this.finished) {
-            int peek = next();
-            if (-1 == peek) {
-                this.finished = true;
-            } else {
-                unread(peek);
-            }
-        }
-        return this.finished;
+        return this.source.atEnd();
     }
 
 
@@ -113,17 +78,48 @@ public class NaiveReadTable extends AbstractReadTable {
         }
     }
 
-    private Object buildToken() {
-        StringBuffer buf = new StringBuffer();
-        while (!this.isFinished()) {
-            final int cp = next();
-
+    /**
+     * Skip over the next token without building it.
+     *
+     * @param stats Overwritten with the statistics of the token skipped.
+     * @return False if the input was exhausted before any token.
+     */
+    @Override
+    public boolean skip(final FormStats stats) {
+        stats.clear();
+        int cp;
+        do {
+            if (this.isFinished()) {
+                return false;
+            }
+            cp = next();
+        } while (Character.isWhitespace(cp));
+        final long start = this.source.getOffset() - 1;
+        while (-1 != (cp = next())) {
             if (Character.isWhitespace(cp)) {
-                break;
+                // consume the whitespace, as read() does
+                stats.extent(start, this.source.getOffset() - 1);
+                stats.atom();
+                return true;
             }
+        }
+        stats.extent(start, this.source.getOffset());
+        stats.atom();
+        return true;
+    }
 
-            buf.appendCodePoint(cp);
+    private Object buildToken() {
+        this.source.markToken();
+        int cp;
+        while (-1 != (cp = next())) {
+            if (Character.isWhitespace(cp)) {
+                // leave the whitespace out of the token, but consume it
+                this.unread(cp);
+                final String token = this.source.tokenText();
+                next();
+                return token;
+            }
         }
-        return buf.toString();
+        return this.source.tokenText();
     }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package com.github.pqnelson;
+
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+
+/**
+ * Recognize numeric literals straight from a character window.
+ *
+ * <p>A token is an integer when it is an optional sign followed by
+ * decimal digits, and a floating-point number when the digits also have
+ * a decimal point or an exponent (e.g., {@code 1.5}, {@code -.5},
+ * {@code 6.02e23}). Anything else is not a number. Integers too large
+ * for a {@code long} become {@code BigInteger}s.</p>
+ *
+ * <p>The common cases are computed without allocating: integers of up
+ * to 18 digits directly, and floating-point numbers whose digits fit in
+ * 53 bits with a decimal exponent of at most 22, by one exact
+ * multiplication or division (Clinger's fast path). The rest fall back
+ * to {@code Long.parseLong}, {@code Double.parseDouble} or
+ * {@code BigInteger}.</p>
+ *
+ * <p>Results are left in the parser, so one instance serves a whole
+ * read table, which must not share it between threads.</p>
+ */
+final class NumberParser {
+    /**
+     * The token is not a number.
+     */
+    static final int NONE = 0;
+    /**
+     * The token is an integer fitting in a {@code long}.
+     */
+    static final int LONG = 1;
+    /**
+     * The token is a floating-point number.
+     */
+    static final int DOUBLE = 2;
+    /**
+     * The token is an integer too large for a {@code long}.
+     */
+    static final int BIG = 3;
+
+    /**
+     * Accumulate digits only while the mantissa is below this, so it
+     * never overflows.
+     */
+    private static final long MANTISSA_LIMIT = 100_000_000_000_000_000L;
+
+    /**
+     * Mantissas below this convert to {@code double} exactly.
+     */
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    /**
+     * Powers of ten which are exact as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The smallest integer boxed from the cache.
+     */
+    private static final int CACHE_LOW = -128;
+
+    /**
+     * Boxed integers from {@code CACHE_LOW} up to 1023: small counts
+     * and indices are the most common numbers in data files.
+     */
+    private static final Long[] LONG_CACHE = new Long[1024 - CACHE_LOW];
+
+    static {
+        for (int i = 0; i < LONG_CACHE.length; i++) {
+            LONG_CACHE[i] = Long.valueOf(i + CACHE_LOW);
+        }
+    }
+
+    /**
+     * The value of the last {@code LONG} parsed.
+     */
+    private long longValue;
+
+    /**
+     * The value of the last {@code DOUBLE} parsed.
+     */
+    private double doubleValue;
+
+    /**
+     * The value of the last {@code BIG} parsed.
+     */
+    private BigInteger bigValue;
+
+    /**
+     * Parse a token, if it is a number.
+     *
+     * @param buf The characters.
+     * @param off Index of the first character of the token.
+     * @param len Length of the token.
+     * @return {@code NONE}, {@code LONG}, {@code DOUBLE} or {@code BIG}.
+     */
+    int parse(final char[] buf, final int off, final int len) {
+        final int end = off + len;
+        int i = off;
+        boolean negative = false;
+        if (i < end && ('-' == buf[i] || '+' == buf[i])) {
+            negative = '-' == buf[i];
+            i++;
+        }
+        long mantissa = 0L;
+        boolean exact = true;
+        int exponent = 0;
+        final int intStart = i;
+        for (; i < end && isDigit(buf[i]); i++) {
+            if (mantissa < MANTISSA_LIMIT) {
+                mantissa = 10 * mantissa + (buf[i] - '0');
+            } else {
+                exact = false;
+                exponent++;
+            }
+        }
+        int digits = i - intStart;
+        boolean floating = false;
+        if (i < end && '.' == buf[i]) {
+            floating = true;
+            final int fracStart = ++i;
+            for (; i < end && isDigit(buf[i]); i++) {
+                if (mantissa < MANTISSA_LIMIT) {
+                    mantissa = 10 * mantissa + (buf[i] - '0');
+                    exponent--;
+                } else if ('0' != buf[i]) {
+                    exact = false;
+                }
+            }
+            digits += i - fracStart;
+        }
+        if (0 == digits) {
+            return NONE;
+        }
+        if (i < end && ('e' == buf[i] || 'E' == buf[i])) {
+            floating = true;
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && ('-' == buf[i] || '+' == buf[i])) {
+                negativeExponent = '-' == buf[i];
+                i++;
+            }
+            final int expStart = i;
+            int e = 0;
+            for (; i < end && isDigit(buf[i]); i++) {
+                if (e < 100_000) {
+                    e = 10 * e + (buf[i] - '0');
+                }
+            }
+            if (i == expStart) {
+                return NONE;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i != end) {
+            return NONE;
+        }
+        if (!floating) {
+            if (exact) {
+                this.longValue = negative ? -mantissa : mantissa;
+                return LONG;
+            }
+            return this.parseLarge(buf, off, len);
+        }
+        if (exact && mantissa < EXACT_DOUBLE_LIMIT
+            && exponent >= -22 && exponent <= 22) {
+            final double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+            this.doubleValue = negative ? -value : value;
+        } else {
+            this.doubleValue = Double.parseDouble(new String(buf, off, len));
+        }
+        return DOUBLE;
+    }
+
+    /**
+     * Parse an integer of 19 digits or more.
+     *
+     * @param buf The characters.
+     * @param off Index of the first character of the token.
+     * @param len Length of the token.
+     * @return {@code LONG} or {@code BIG}.
+     */
+    private int parseLarge(final char[] buf, final int off, final int len) {
+        try {
+            this.longValue = Long.parseLong(CharBuffer.wrap(buf), off,
+                                            off + len, 10);
+            return LONG;
+        } catch (NumberFormatException e) {
+            this.bigValue = new BigInteger(new String(buf, off, len));
+            return BIG;
+        }
+    }
+
+    /**
+     * Is a character an ASCII digit?
+     *
+     * @param c The character.
+     * @return True for {@code 0} to {@code 9}.
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The value of the last {@code LONG} parsed.
+     */
+    long getLong() {
+        return this.longValue;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The value of the last {@code DOUBLE} parsed.
+     */
+    double getDouble() {
+        return this.doubleValue;
+    }
+
+    /**
+     * The last number parsed, as an object.
+     *
+     * @param kind What {@code parse} returned.
+     * @return A {@code Long}, cached when small, a {@code Double} or a
+     *         {@code BigInteger}.
+     */
+    Object box(final int kind) {
+        switch (kind) {
+        case LONG:
+            return box(this.longValue);
+        case DOUBLE:
+            return this.doubleValue;
+        default:
+            return this.bigValue;
+        }
+    }
+
+    /**
+     * Box an integer, from the cache when it is small.
+     *
+     * @param value The integer.
+     * @return The boxed integer.
+     */
+    static Long box(final long value) {
+        if (value >= CACHE_LOW && value < CACHE_LOW + LONG_CACHE.length) {
+            return LONG_CACHE[(int) value - CACHE_LOW];
+        }
+        return value;
+    }
+}
\ No newline at end of file
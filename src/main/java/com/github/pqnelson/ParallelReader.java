@@ -0,0 +1,514 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+
+/**
+ * Read every top-level form of a large text on several threads.
+ *
+ * <p>A {@link FormBoundaryScanner} first finds where top-level forms
+ * start, which is much cheaper than reading them since it builds
+ * nothing. The text is then cut at form starts into a few chunks per
+ * worker, and each chunk is read by its own {@code ReadTable} in a
+ * {@code ForkJoinPool}. The forms come back in source order.</p>
+ *
+ * <p>Every worker shares the reader macros registered here, so they
+ * must be safe to call from several threads at once.
+ * {@code SingleCharReaderMacro} and {@code AccumulatorReaderMacro} are;
+ * {@code LineNumberCounter} is not, and would not count anything
+ * meaningful across chunks anyway. Reader macros which consume input
+ * of their own are not supported, see {@link FormBoundaryScanner}.</p>
+ */
+public final class ParallelReader {
+    /**
+     * Texts shorter than this are not worth splitting.
+     */
+    private static final int MIN_CHUNK = 1 << 16;
+
+    /**
+     * How many chunks to cut per worker, to even out the load.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * Characters decoded at a time, when finding where to cut a file.
+     */
+    private static final int SCAN_CHUNK = 8192;
+
+    /**
+     * Mapping of character [code points] to {@code ReaderMacro} instances,
+     * shared by every worker.
+     */
+    private MacroTable macroBindings;
+
+    /**
+     * Is {@code macroBindings} shared with a definition? If so, it is
+     * copied before {@code addMacro} changes it.
+     */
+    private boolean sharedBindings;
+
+    /**
+     * Do the workers read collections iteratively?
+     */
+    private final boolean iterativeLists;
+
+    /**
+     * Do the workers recognize numeric literals?
+     */
+    private final boolean numericLiterals;
+
+    /**
+     * The workers.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a parallel reader running on the common pool.
+     */
+    public ParallelReader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a parallel reader running on the given pool.
+     *
+     * @param workers The pool to read chunks in.
+     */
+    public ParallelReader(final ForkJoinPool workers) {
+        this.macroBindings = new MacroTable();
+        this.sharedBindings = false;
+        this.iterativeLists = false;
+        this.numericLiterals = false;
+        this.pool = workers;
+    }
+
+    /**
+     * Create a parallel reader for a read table definition, running on
+     * the given pool.
+     *
+     * @param definition The reader macros and options for every worker.
+     * @param workers The pool to read chunks in.
+     */
+    public ParallelReader(final ReadTableDefinition definition,
+                          final ForkJoinPool workers) {
+        this.macroBindings = definition.macroTable();
+        this.sharedBindings = true;
+        this.iterativeLists = definition.isIterativeLists();
+        this.numericLiterals = definition.isNumericLiterals();
+        this.pool = workers;
+    }
+
+    /**
+     * Register a {@code ReaderMacro} to be bound to a specific character.
+     *
+     * <p>This will overwrite any existing binding to the given character.
+     * Do not modify the bindings while a read is in progress.</p>
+     *
+     * @param character The UTF-16 character being bound to the reader macro.
+     * @param macro The specific ReaderMacro instance we will invoke upon
+     * reading a {@code character} from input.
+     */
+    public void addMacro(final char character, final ReaderMacro macro) {
+        this.addMacro((int) character, macro);
+    }
+
+    /**
+     * Register a {@code ReaderMacro} to be bound to a specific character.
+     *
+     * <p>This will overwrite any existing binding to the given character.
+     * Do not modify the bindings while a read is in progress.</p>
+     *
+     * @param codepoint The value of the codepoint for the character
+     * being bound to the reader macro.
+     * @param macro The specific ReaderMacro instance we will invoke upon
+     * reading a {@code character} from input.
+     */
+    public void addMacro(final int codepoint, final ReaderMacro macro) {
+        if (this.sharedBindings) {
+            this.macroBindings = this.macroBindings.copy();
+            this.sharedBindings = false;
+        }
+        this.macroBindings.put(codepoint, macro);
+    }
+
+    /**
+     * Read every form of a UTF-8 encoded file.
+     *
+     * <p>The file is never held on the heap as a whole: a first pass
+     * decodes it through a memory map to find where to cut it, in UTF-8
+     * bytes, and each chunk is then mapped and decoded by its own
+     * worker. Byte offsets are only known for well-formed UTF-8, so
+     * malformed input is read in one piece.</p>
+     *
+     * @param path The file to read.
+     * @return The top-level forms, in the order they appear.
+     * @throws IOException If the file cannot be read.
+     */
+    public List<Object> readAll(final Path path) throws IOException {
+        final long size = Files.size(path);
+        final int chunks = this.chunkCount(size);
+        long[] bounds = new long[] {0L, size};
+        if (chunks > 1) {
+            final FormBoundaryScanner scanner =
+                new FormBoundaryScanner(this.macroBindings);
+            final SplitCollector splits =
+                new SplitCollector(size / chunks, chunks);
+            final LongConsumer byteStarts =
+                offset -> splits.accept(scanner.getByteOffset());
+            final char[] chunk = new char[SCAN_CHUNK];
+            try (Reader in = new MappedFileReader(path)) {
+                int n;
+                while (-1 != (n = in.read(chunk, 0, chunk.length))) {
+                    scanner.scan(chunk, 0, n, byteStarts);
+                }
+            }
+            if (scanner.isByteExact(size)) {
+                bounds = splits.bounds(size);
+            }
+        }
+        try {
+            return this.read(new MappedChunks(path, bounds));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Read every form of a text.
+     *
+     * @param text The text to read.
+     * @return The top-level forms, in the order they appear.
+     */
+    public List<Object> readAll(final CharSequence text) {
+        return this.read(new TextChunks(text, this.splitPoints(text)));
+    }
+
+    /**
+     * Read every chunk, in parallel if there are several, and gather
+     * their forms.
+     *
+     * @param chunks The chunks to read.
+     * @return The top-level forms, in the order they appear.
+     */
+    private List<Object> read(final Chunks chunks) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final List<Object>[] results = new List[chunks.count()];
+        if (1 == results.length) {
+            new ChunkTask(chunks, results, 0, 1).compute();
+        } else {
+            this.pool.invoke(new ChunkTask(chunks, results, 0,
+                                           results.length));
+        }
+        int total = 0;
+        for (List<Object> chunk : results) {
+            total += chunk.size();
+        }
+        final List<Object> forms = new ArrayList<>(total);
+        for (List<Object> chunk : results) {
+            forms.addAll(chunk);
+        }
+        return forms;
+    }
+
+    /**
+     * How many chunks to cut a text into.
+     *
+     * @param length The length of the text.
+     * @return The number of chunks, one if not worth splitting.
+     */
+    private int chunkCount(final long length) {
+        final int workers = this.pool.getParallelism();
+        if (workers <= 1) {
+            return 1;
+        }
+        return (int) Math.max(1L, Math.min(workers * CHUNKS_PER_WORKER,
+                                           length / MIN_CHUNK));
+    }
+
+    /**
+     * Cut a text at top-level form starts into chunks of similar size.
+     *
+     * @param text The text to cut.
+     * @return The chunk boundaries, starting with zero and ending with
+     *         the text length.
+     */
+    private long[] splitPoints(final CharSequence text) {
+        final int length = text.length();
+        final int chunks = this.chunkCount(length);
+        if (chunks <= 1) {
+            return new long[] {0L, length};
+        }
+        final SplitCollector splits = new SplitCollector(length / chunks,
+                                                         chunks);
+        new FormBoundaryScanner(this.macroBindings).scan(text, splits);
+        return splits.bounds(length);
+    }
+
+    /**
+     * Picks the first form start at or after each chunk's target size.
+     */
+    private static final class SplitCollector implements LongConsumer {
+        /**
+         * The target chunk size.
+         */
+        private final long step;
+
+        /**
+         * Boundaries found so far; the first is always zero.
+         */
+        private final long[] points;
+
+        /**
+         * Number of boundaries found so far.
+         */
+        private int count = 1;
+
+        /**
+         * Create a collector for chunks of roughly {@code chunkSize}.
+         *
+         * @param chunkSize The target size of each chunk.
+         * @param chunks The number of chunks wanted.
+         */
+        SplitCollector(final long chunkSize, final int chunks) {
+            this.step = chunkSize;
+            this.points = new long[chunks + 1];
+        }
+
+        /**
+         * Consider a top-level form start as a boundary.
+         *
+         * @param offset Where the form starts.
+         */
+        @Override
+        public void accept(final long offset) {
+            if (this.count < this.points.length - 1
+                && offset >= this.count * this.step) {
+                this.points[this.count++] = offset;
+            }
+        }
+
+        /**
+         * The boundaries, closed off by the end of the text.
+         *
+         * @param length The text length.
+         * @return The chunk boundaries.
+         */
+        long[] bounds(final long length) {
+            final long[] result = Arrays.copyOf(this.points, this.count + 1);
+            result[this.count] = length;
+            return result;
+        }
+    }
+
+    /**
+     * A text cut into chunks, each read by its own read table.
+     */
+    private interface Chunks {
+        /**
+         * A getter method.
+         *
+         * @return The number of chunks.
+         */
+        int count();
+
+        /**
+         * Open a read table over one chunk.
+         *
+         * @param chunk The index of the chunk.
+         * @param bindings The shared reader macros.
+         * @return The read table, to be closed when done.
+         * @throws IOException If the chunk cannot be opened.
+         */
+        ReadTable open(int chunk, MacroTable bindings) throws IOException;
+    }
+
+    /**
+     * Chunks of a text in memory.
+     */
+    private static final class TextChunks implements Chunks {
+        /**
+         * The whole text.
+         */
+        private final CharSequence text;
+
+        /**
+         * Chunk boundaries in {@code text}.
+         */
+        private final long[] bounds;
+
+        /**
+         * Cut a text.
+         *
+         * @param source The whole text.
+         * @param chunkBounds Chunk boundaries in {@code source}.
+         */
+        TextChunks(final CharSequence source, final long[] chunkBounds) {
+            this.text = source;
+            this.bounds = chunkBounds;
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of chunks.
+         */
+        @Override
+        public int count() {
+            return this.bounds.length - 1;
+        }
+
+        /**
+         * Open a read table over one chunk.
+         *
+         * @param chunk The index of the chunk.
+         * @param bindings The shared reader macros.
+         * @return The read table.
+         */
+        @Override
+        public ReadTable open(final int chunk, final MacroTable bindings) {
+            return new ReadTable(this.text, (int) this.bounds[chunk],
+                                 (int) this.bounds[chunk + 1], bindings);
+        }
+    }
+
+    /**
+     * Chunks of a UTF-8 encoded file, each mapped by its own reader.
+     */
+    private static final class MappedChunks implements Chunks {
+        /**
+         * The file.
+         */
+        private final Path path;
+
+        /**
+         * Chunk boundaries in the file, in bytes.
+         */
+        private final long[] bounds;
+
+        /**
+         * Cut a file.
+         *
+         * @param file The file.
+         * @param chunkBounds Chunk boundaries in {@code file}, each the
+         * first byte of a UTF-8 sequence.
+         */
+        MappedChunks(final Path file, final long[] chunkBounds) {
+            this.path = file;
+            this.bounds = chunkBounds;
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The number of chunks.
+         */
+        @Override
+        public int count() {
+            return this.bounds.length - 1;
+        }
+
+        /**
+         * Open a read table over one chunk, mapping it.
+         *
+         * @param chunk The index of the chunk.
+         * @param bindings The shared reader macros.
+         * @return The read table, to be closed when done.
+         * @throws IOException If the file cannot be opened or mapped.
+         */
+        @Override
+        public ReadTable open(final int chunk, final MacroTable bindings)
+            throws IOException {
+            return new ReadTable(new CharSource(new MappedFileReader(
+                this.path, this.bounds[chunk], this.bounds[chunk + 1],
+                MappedFileReader.SEGMENT_SIZE)), bindings);
+        }
+    }
+
+    /**
+     * Read a run of chunks, splitting the run in half until one chunk
+     * remains.
+     */
+    private final class ChunkTask extends RecursiveAction {
+        /**
+         * Serialization is not supported, but {@code RecursiveAction}
+         * is {@code Serializable}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The chunks to read.
+         */
+        private final transient Chunks chunks;
+
+        /**
+         * Where each chunk's forms go.
+         */
+        private final transient List<Object>[] results;
+
+        /**
+         * The first chunk of the run.
+         */
+        private final int lo;
+
+        /**
+         * One past the last chunk of the run.
+         */
+        private final int hi;
+
+        /**
+         * Create a task reading chunks {@code [first, last)}.
+         *
+         * @param source The chunks.
+         * @param sink Where each chunk's forms go.
+         * @param first The first chunk of the run.
+         * @param last One past the last chunk of the run.
+         */
+        ChunkTask(final Chunks source, final List<Object>[] sink,
+                  final int first, final int last) {
+            this.chunks = source;
+            this.results = sink;
+            this.lo = first;
+            this.hi = last;
+        }
+
+        /**
+         * Read the chunks, in parallel if there are several.
+         *
+         * @throws UncheckedIOException If a chunk of a file cannot be
+         *         read.
+         */
+        @Override
+        protected void compute() {
+            if (1 == this.hi - this.lo) {
+                final List<Object> forms = new ArrayList<>();
+                try (ReadTable table = this.chunks.open(
+                         this.lo, ParallelReader.this.macroBindings)) {
+                    table.setIterativeLists(ParallelReader.this.iterativeLists);
+                    table.setNumericLiterals(
+                        ParallelReader.this.numericLiterals);
+                    table.stream().forEach(forms::add);
+                    final IOException failure = table.inputError();
+                    if (null != failure) {
+                        throw failure;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                this.results[this.lo] = forms;
+                return;
+            }
+            final int mid = (this.lo + this.hi) >>> 1;
+            invokeAll(new ChunkTask(this.chunks, this.results, this.lo, mid),
+                      new ChunkTask(this.chunks, this.results, mid, this.hi));
+        }
+    }
+}
\ No newline at end of file
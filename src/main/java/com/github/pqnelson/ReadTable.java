@@ -1,11 +1,15 @@
 package com.github.pqnelson;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.PushbackReader;
+import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
-
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A table-driven Lisp reader with reader macros.
@@ -14,30 +18,132 @@ import java.util.HashMap;
  * invoking reader macros <em>before</em> skipping whitespace. This
  * permits using a reader macro to count line numbers.</p>
  *
+ * <p>The read table also tracks the line, column and offset itself, see
+ * {@link #position()}, and can report where each top-level form was
+ * found to a {@link FormSpanListener}.</p>
+ *
  * @see <a href="https://www.cs.cmu.edu/Groups/AI/html/cltl/clm/node186.html#SECTION002600000000000000000">Common Lisp the Language, chapter 22</a>
  */
-public class ReadTable extends AbstractReadTable {
+public class ReadTable extends AbstractReadTable implements Closeable {
     /**
      * The source of characters to be read as Lisp data.
      */
-    private final PushbackReader source;
+    private final CharSource source;
 
     /**
-     * Are we finished reading yet?
+     * Mapping of character [code points] to {@code ReaderMacro} instances.
      */
-    private boolean finished = false;
+    private MacroTable macroBindings;
 
     /**
-     * The size of the buffer for the push back reader {@code source}.
-     * The default PushbackReader buffer size is too small to actually
-     * be useful, and I thought 50 was a nice round number.
+     * Is {@code macroBindings} shared with other read tables? If so, it
+     * is copied before {@code addMacro} changes it.
      */
-    private static final int BUFFERSIZE = 50; // "Why not 35 or 39?" ;p
+    private boolean sharedBindings = false;
 
     /**
-     * Mapping of character [code points] to {@code ReaderMacro} instances.
+     * Cache of token strings, or {@code null} to allocate every token.
+     */
+    private TokenInterner interner = null;
+
+    /**
+     * Table of canonical lists, or {@code null} to keep every list read.
+     */
+    private HashConsTable hashCons = null;
+
+    /**
+     * Read {@code AccumulatorReaderMacro} collections with an explicit
+     * stack instead of recursion?
+     */
+    private boolean iterativeLists = false;
+
+    /**
+     * The collections still open, innermost last; only used when
+     * {@code iterativeLists} is set. Kept between reads.
+     */
+    private ArrayList<Object>[] openLists = null;
+
+    /**
+     * The reader macros which opened the collections in
+     * {@code openLists}.
+     */
+    private AccumulatorReaderMacro[] openMacros = null;
+
+    /**
+     * Number of collections in {@code openLists}.
+     */
+    private int depth = 0;
+
+    /**
+     * Returned by {@code readForm()} when it has opened a collection
+     * rather than read a form.
+     */
+    private static final Object OPENED = new Object();
+
+    /**
+     * Parses numeric literals, or {@code null} to read them as tokens.
+     */
+    private NumberParser numbers = null;
+
+    /**
+     * Receives the next top-level number as a primitive, during
+     * {@code readInto()}.
+     */
+    private FormSink primitiveSink = null;
+
+    /**
+     * Returned by {@code readForm()} when it has handed a number to
+     * {@code primitiveSink} rather than read a form.
+     */
+    private static final Object DELIVERED = new Object();
+
+    /**
+     * Stop tokens of the collections open in {@code skip()}, kept for
+     * the next skip.
+     */
+    private String[] skipStops = null;
+
+    /**
+     * Told where each top-level form was found, or {@code null}.
+     */
+    private FormSpanListener spanListener = null;
+
+    /**
+     * The bindings compiled into a dispatch table, or {@code null} to
+     * look each character up in {@code macroBindings}.
+     */
+    private CompiledLexer lexer = null;
+
+    /**
+     * Where reading time goes, or {@code null} if nobody is asking.
+     */
+    private ReaderMetrics metrics = null;
+
+    /**
+     * Is a top-level {@code read()} in progress, with a span listener
+     * or metrics?
+     */
+    private boolean reading = false;
+
+    /**
+     * Should {@code readForm()} note where the next form starts?
+     */
+    private boolean captureStart = false;
+
+    /**
+     * Offset where the current top-level form starts.
+     */
+    private long startOffset = 0L;
+
+    /**
+     * Line where the current top-level form starts.
      */
-    private HashMap<Integer, ReaderMacro> macroBindings;
+    private int startLine = 1;
+
+    /**
+     * Column where the current top-level form starts.
+     */
+    private int startColumn = 1;
 
     /**
      * Create a reader for a string source.
@@ -45,7 +151,8 @@ public class ReadTable extends AbstractReadTable {
      * @param snippet The string we're lexing and parsing for data.
      */
     public ReadTable(final String snippet) {
-        this(new StringReader(snippet));
+        this.source = new CharSource(snippet);
+        this.macroBindings = new MacroTable();
     }
 
     /**
@@ -54,8 +161,95 @@ public class ReadTable extends AbstractReadTable {
      * @param reader The {@code java.io.Reader} input source.
      */
     public ReadTable(final Reader reader) {
-        this.source = new PushbackReader(reader, BUFFERSIZE);
-        this.macroBindings = new HashMap<>();
+        this.source = new CharSource(reader);
+        this.macroBindings = new MacroTable();
+    }
+
+    /**
+     * Create a reader for part of a character sequence, sharing reader
+     * macro bindings with other read tables.
+     *
+     * @param text The characters we're lexing and parsing for data.
+     * @param start Index of the first character to read.
+     * @param end Index one past the last character to read.
+     * @param bindings The shared reader macros.
+     */
+    ReadTable(final CharSequence text, final int start, final int end,
+              final MacroTable bindings) {
+        this(new CharSource(text, start, end), bindings);
+    }
+
+    /**
+     * Create a reader sharing reader macro bindings with other read
+     * tables. The bindings are copied before this table changes them.
+     *
+     * @param input The source of characters.
+     * @param bindings The shared reader macros.
+     */
+    ReadTable(final CharSource input, final MacroTable bindings) {
+        this.source = input;
+        this.macroBindings = bindings;
+        this.sharedBindings = true;
+    }
+
+    /**
+     * Create a Lisp-reader for a UTF-8 encoded file.
+     *
+     * <p>The file is memory-mapped and decoded lazily as forms are read,
+     * so even multi-gigabyte files are never copied onto the heap.
+     * Close the returned table when done, to release the file.</p>
+     *
+     * @param path The file to read.
+     * @return A read table, without any reader macros, over the file.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public static ReadTable fromPath(final Path path) throws IOException {
+        return new ReadTable(new MappedFileReader(path));
+    }
+
+    /**
+     * Create a Lisp-reader for a UTF-8 encoded stream, decoding the
+     * bytes itself.
+     *
+     * <p>Runs of ASCII are copied out without decoding: the first
+     * sixteen bytes of a run by hand, and the rest in bulk through the
+     * JDK's US-ASCII decoder, whose loop the JIT vectorizes. Two- and
+     * three-byte sequences are decoded inline, and only the rest one
+     * sequence at a time. This is much cheaper than an
+     * {@code InputStreamReader} for the mostly ASCII text Lisp usually
+     * is. Malformed input is replaced with U+FFFD.</p>
+     *
+     * @param in The UTF-8 encoded input, closed with the table.
+     * @return A read table, without any reader macros, over the stream.
+     */
+    public static ReadTable fromUtf8(final InputStream in) {
+        return new ReadTable(new Utf8Reader(in));
+    }
+
+    /**
+     * Create a Lisp-reader for a blocking, UTF-8 encoded channel,
+     * decoding the bytes itself.
+     *
+     * @param in The UTF-8 encoded input, closed with the table.
+     * @return A read table, without any reader macros, over the channel.
+     * @see #fromUtf8(InputStream)
+     */
+    public static ReadTable fromUtf8(final ReadableByteChannel in) {
+        return new ReadTable(new Utf8Reader(in));
+    }
+
+    /**
+     * Create a Lisp-reader for the UTF-8 encoded bytes of a buffer, from
+     * its position to its limit, decoding the bytes itself. A buffer
+     * backed by an array is decoded without copying, and the buffer
+     * itself is left as it is.
+     *
+     * @param in The UTF-8 encoded input.
+     * @return A read table, without any reader macros, over the buffer.
+     * @see #fromUtf8(InputStream)
+     */
+    public static ReadTable fromUtf8(final ByteBuffer in) {
+        return new ReadTable(new Utf8Reader(in));
     }
 
     /**
@@ -83,7 +277,227 @@ public class ReadTable extends AbstractReadTable {
      * reading a {@code character} from input.
      */
     public void addMacro(final int codepoint, final ReaderMacro macro) {
+        if (this.sharedBindings) {
+            this.macroBindings = this.macroBindings.copy();
+            this.sharedBindings = false;
+        }
         this.macroBindings.put(codepoint, macro);
+        if (null != this.lexer) {
+            this.lexer = new CompiledLexer(this.macroBindings);
+        }
+    }
+
+    /**
+     * Share repeated tokens through an interner.
+     *
+     * <p>Without an interner, every token read is a fresh string.</p>
+     *
+     * @param tokens The interner to use, or {@code null} for none.
+     */
+    public void setInterner(final TokenInterner tokens) {
+        this.interner = tokens;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The token interner in use, or {@code null} if none is.
+     */
+    public TokenInterner getInterner() {
+        return this.interner;
+    }
+
+    /**
+     * Share structurally equal lists through a hash-consing table.
+     *
+     * <p>With a table, every collection read by a reader macro is
+     * replaced by its canonical, immutable instance, so equal subtrees
+     * (within reach of the table) are one object. Without one, every
+     * collection read is new.</p>
+     *
+     * @param lists The table to use, or {@code null} for none.
+     */
+    public void setHashConsing(final HashConsTable lists) {
+        this.hashCons = lists;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The hash-consing table in use, or {@code null} if none is.
+     */
+    public HashConsTable getHashConsing() {
+        return this.hashCons;
+    }
+
+    /**
+     * Replace a collection by its canonical instance, when hash-consing.
+     *
+     * @param coll The collection just read.
+     * @return The canonical instance, or {@code coll} when not
+     *         hash-consing.
+     */
+    @Override
+    protected List<Object> canonicalize(final List<Object> coll) {
+        if (null == this.hashCons) {
+            return coll;
+        }
+        return this.hashCons.intern(coll);
+    }
+
+    /**
+     * Read {@code AccumulatorReaderMacro} collections iteratively.
+     *
+     * <p>Normally an {@code AccumulatorReaderMacro} reads its elements by
+     * calling {@code read()} recursively, so every level of nesting
+     * costs several Java stack frames, and deeply nested input overflows
+     * the stack. In iterative mode the read table recognizes these
+     * macros itself and keeps the open collections on an explicit stack
+     * instead, so nesting depth is bounded only by memory. A subclass
+     * of {@code AccumulatorReaderMacro} may override {@code apply}, so
+     * it is still called, and reads recursively. The stack is kept for
+     * the next read. The forms read are the same, except that
+     * collections left open at the end of input are closed as they
+     * stand.</p>
+     *
+     * @param iterative True to read collections iteratively.
+     */
+    public void setIterativeLists(final boolean iterative) {
+        this.iterativeLists = iterative;
+    }
+
+    /**
+     * Read numeric literals as numbers rather than strings.
+     *
+     * <p>Tokens which are integers become {@code Long}s (or
+     * {@code BigInteger}s, if too large), and those with a decimal point
+     * or exponent become {@code Double}s, parsed straight from the
+     * character window; see {@code NumberParser} for the syntax. Small
+     * integers are boxed from a cache. Stop tokens are still compared
+     * against the tokens as read, so a numeric stop token will no longer
+     * match.</p>
+     *
+     * @param recognize True to recognize numbers.
+     */
+    public void setNumericLiterals(final boolean recognize) {
+        this.numbers = recognize ? new NumberParser() : null;
+    }
+
+    /**
+     * Compile the reader macro bindings into a dispatch table.
+     *
+     * <p>Normally each character read is looked up in the bindings, and
+     * its reader macro called through the {@code ReaderMacro} interface,
+     * which is slow once several classes of reader macro are bound. A
+     * compiled table instead classifies every character below 256 up
+     * front, and the read loop branches on that: whitespace and token
+     * characters without a lookup, {@code SingleCharReaderMacro}
+     * producing its token without a call, and
+     * {@code AccumulatorReaderMacro} reading its collection within the
+     * read table. Other reader macros are still called. The forms read
+     * are the same, but inlined reader macros are not timed by
+     * {@link #setMetrics metrics}. Adding a reader macro recompiles the
+     * table.</p>
+     *
+     * @param compile True to compile the bindings.
+     */
+    public void setCompiledLexer(final boolean compile) {
+        this.lexer = compile ? new CompiledLexer(this.macroBindings) : null;
+    }
+
+    /**
+     * A predicate.
+     *
+     * @return True if the reader macro bindings are compiled.
+     */
+    public boolean isCompiledLexer() {
+        return null != this.lexer;
+    }
+
+    /**
+     * Use a lexer already compiled from the shared bindings.
+     *
+     * @param compiled The lexer, compiled from this table's bindings.
+     */
+    void useLexer(final CompiledLexer compiled) {
+        this.lexer = compiled;
+    }
+
+    /**
+     * Count the characters and forms read, time reader macro calls, and
+     * report slow forms to Flight Recorder.
+     *
+     * <p>Without metrics, none of this is measured. The metrics may be
+     * shared by read tables on several threads.</p>
+     *
+     * @param readerMetrics The metrics to update, or {@code null} for
+     * none.
+     * @see ReaderMetrics
+     */
+    public void setMetrics(final ReaderMetrics readerMetrics) {
+        this.metrics = readerMetrics;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The metrics updated, or {@code null} if none are.
+     */
+    public ReaderMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Report where each top-level form is found.
+     *
+     * <p>The span runs from the first character of the form, after any
+     * whitespace, to the character following it. Only forms returned by
+     * a top-level {@code read()} are reported, not those read by reader
+     * macros on its behalf.</p>
+     *
+     * @param listener The listener, or {@code null} for none.
+     */
+    public void setSpanListener(final FormSpanListener listener) {
+        this.spanListener = listener;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The line of the next character to be read, from 1.
+     */
+    public int getLine() {
+        return this.source.getLine();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The column of the next character to be read, from 1.
+     */
+    public int getColumn() {
+        return this.source.getColumn();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The offset of the next character to be read, in UTF-16
+     *         characters from the start of input.
+     */
+    public long getOffset() {
+        return this.source.getOffset();
+    }
+
+    /**
+     * The position of the next character to be read.
+     *
+     * @return The current position.
+     */
+    public SourcePosition position() {
+        return new SourcePosition(this.source.getOffset(),
+                                  this.source.getLine(),
+                                  this.source.getColumn());
     }
 
     /**
@@ -93,16 +507,7 @@ public class ReadTable extends AbstractReadTable {
      * and {@code -1} if there's nothing left to read.
      */
     private int next() {
-        try {
-            int codepoint = this.source.read();
-            if (-1 == codepoint) {
-                this.finished = true;
-            }
-            return codepoint;
-        } catch (IOException e) {
-            finished = true;
-            return -1;
-        }
+        return this.source.read();
     }
 
     /**
@@ -111,10 +516,7 @@ public class ReadTable extends AbstractReadTable {
      * @param c The code point for the character.
      */
     private void unread(final int c) {
-        try {
-            this.source.unread(c);
-        } catch (IOException e) {
-        }
+        this.source.unread(c);
     }
 
     /**
@@ -124,17 +526,78 @@ public class ReadTable extends AbstractReadTable {
      */
     @Override
     public boolean isFinished() {
-        if (!this.finished) {
-            int peek = next();
-            if (-1 == peek) {
-                this.finished = true;
-            } else {
-                unread(peek);
-            }
-        }
-        return this.finished;
+        return this.source.atEnd();
+    }
+
+
+    /**
+     * Close the underlying input.
+     *
+     * @throws IOException If the underlying input fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+        this.source.close();
+    }
+
+    /**
+     * The exception which cut the input short, since it is otherwise
+     * taken for the end of input.
+     *
+     * @return The exception thrown by the underlying reader, or
+     *         {@code null} if none was.
+     */
+    IOException inputError() {
+        return this.source.error();
+    }
+
+    /**
+     * Start reading another input, as a new read table would.
+     *
+     * <p>The reader macro bindings, options, interner, hash-consing
+     * table and span listener are kept, and so are the character window
+     * and collection stacks, so a reused table allocates nothing to
+     * start over. The previous input is dropped without closing it.</p>
+     *
+     * @param reader The new {@code java.io.Reader} input source.
+     */
+    public void reset(final Reader reader) {
+        this.source.reset(reader);
+        this.clearState();
     }
 
+    /**
+     * Start reading another string, as a new read table would.
+     *
+     * <p>The reader macro bindings, options, interner, hash-consing
+     * table and span listener are kept, and so are the character window
+     * and collection stacks, so a reused table allocates nothing to
+     * start over.</p>
+     *
+     * @param snippet The characters we're lexing and parsing for data.
+     */
+    public void reset(final CharSequence snippet) {
+        this.source.reset(snippet);
+        this.clearState();
+    }
+
+    /**
+     * Drop collections left open, say by a reader macro which threw,
+     * and the position of any form in progress.
+     */
+    private void clearState() {
+        if (null != this.openLists) {
+            Arrays.fill(this.openLists, 0, this.depth, null);
+            Arrays.fill(this.openMacros, 0, this.depth, null);
+        }
+        this.depth = 0;
+        this.primitiveSink = null;
+        this.reading = false;
+        this.captureStart = false;
+        this.startOffset = 0L;
+        this.startLine = 1;
+        this.startColumn = 1;
+    }
 
     /**
      * Read Lisp data from the given input stream.
@@ -143,37 +606,457 @@ public class ReadTable extends AbstractReadTable {
      */
     @Override
     public Object read() {
+        if (this.reading
+            || (null == this.spanListener && null == this.metrics)) {
+            return this.readUnreported();
+        }
+        final Object form;
+        final long begin = this.source.getOffset();
+        final SlowFormEvent event =
+            null == this.metrics ? null : this.metrics.beginForm();
+        final long startNanos = null == this.metrics ? 0L : System.nanoTime();
+        this.reading = true;
+        this.captureStart = true;
+        try {
+            form = this.readUnreported();
+        } finally {
+            this.reading = false;
+            this.captureStart = false;
+        }
+        if (null != this.metrics) {
+            if (null != event) {
+                event.startOffset = this.startOffset;
+                event.line = this.startLine;
+                event.column = this.startColumn;
+            }
+            this.metrics.formRead(event, form,
+                                  this.source.getOffset() - begin,
+                                  System.nanoTime() - startNanos);
+        }
+        if (null != form && null != this.spanListener) {
+            final SourcePosition start = new SourcePosition(
+                this.startOffset, this.startLine, this.startColumn);
+            this.spanListener.formRead(form, new SourceSpan(start,
+                                                            this.position()));
+        }
+        return form;
+    }
+
+    /**
+     * Read the next form into a sink, handing top-level numbers over as
+     * primitives, so they are never boxed.
+     *
+     * <p>Numbers are only recognized when {@link #setNumericLiterals}
+     * is on. Numbers inside collections are boxed as usual, and so are
+     * top-level numbers when a span listener or metrics are set.</p>
+     *
+     * @param sink Receives the form.
+     * @return False if the input has been exhausted.
+     */
+    public boolean readInto(final FormSink sink) {
+        if (null != this.spanListener || null != this.metrics) {
+            final Object form = this.read();
+            if (null == form) {
+                return false;
+            }
+            sink.accept(form);
+            return true;
+        }
+        this.primitiveSink = sink;
+        final Object form;
+        try {
+            form = this.readUnreported();
+        } finally {
+            this.primitiveSink = null;
+        }
+        if (DELIVERED == form) {
+            return true;
+        } else if (null == form) {
+            return false;
+        }
+        sink.accept(form);
+        return true;
+    }
+
+    /**
+     * Read Lisp data, without reporting its span.
+     *
+     * @return New Lisp data, unless the input has been exhausted.
+     */
+    private Object readUnreported() {
+        if (this.iterativeLists) {
+            return this.readIteratively();
+        }
+        return this.readForm();
+    }
+
+    /**
+     * Read a token, or the result of a reader macro. In iterative mode,
+     * an {@code AccumulatorReaderMacro} is not called; instead its
+     * collection is pushed onto the stack, and {@code OPENED} returned.
+     * A subclass is called, since it may override {@code apply}.
+     * When {@code captureStart} is set, the position of the first
+     * character of the form is noted. A number read when
+     * {@code primitiveSink} is set goes to the sink, and
+     * {@code DELIVERED} is returned.
+     *
+     * @return New Lisp data, {@code OPENED}, {@code DELIVERED}, or
+     *         {@code null} if the input has been exhausted.
+     */
+    private Object readForm() {
+        final FormSink direct = this.primitiveSink;
+        this.primitiveSink = null;
+        if (null != this.lexer) {
+            return this.readCompiled(direct);
+        }
         while (true) {
             if (this.isFinished()) {
                 return null;
             }
+            final boolean capturing = this.captureStart;
+            if (capturing) {
+                this.startOffset = this.source.getOffset();
+                this.startLine = this.source.getLine();
+                this.startColumn = this.source.getColumn();
+            }
             final int codepoint = this.next();
-            if (this.macroBindings.containsKey(codepoint)) {
-                ReaderMacro macro = this.macroBindings.get(codepoint);
-                Object result = macro.apply(this.source, this);
+            final ReaderMacro macro = this.macroBindings.get(codepoint);
+            if (null != macro) {
+                this.captureStart = false;
+                if (this.iterativeLists && CompiledLexer.OPEN
+                    == CompiledLexer.kindOf(codepoint, macro)) {
+                    this.push((AccumulatorReaderMacro) macro);
+                    return OPENED;
+                }
+                Object result = this.apply(codepoint, macro);
                 if (null != result) {
                     return result;
                 }
+                this.captureStart = capturing;
             } else if (!Character.isWhitespace(codepoint)) {
+                this.captureStart = false;
                 this.unread(codepoint);
-                return this.buildToken();
+                return this.buildToken(direct);
             }
         }
     }
 
-    private Object buildToken() {
-        StringBuffer buf = new StringBuffer();
+    /**
+     * Read a token, or the result of a reader macro, as
+     * {@code readForm()} does, dispatching on the compiled lexer.
+     *
+     * @param direct Where a number goes, or {@code null}.
+     * @return New Lisp data, {@code OPENED}, {@code DELIVERED}, or
+     *         {@code null} if the input has been exhausted.
+     */
+    private Object readCompiled(final FormSink direct) {
+        final CompiledLexer compiled = this.lexer;
+        while (true) {
+            if (this.isFinished()) {
+                return null;
+            }
+            final boolean capturing = this.captureStart;
+            if (capturing) {
+                this.startOffset = this.source.getOffset();
+                this.startLine = this.source.getLine();
+                this.startColumn = this.source.getColumn();
+            }
+            final int codepoint = this.next();
+            final ReaderMacro macro;
+            if (codepoint < CompiledLexer.SIZE) {
+                switch (compiled.kind(codepoint)) {
+                case CompiledLexer.WHITESPACE:
+                    this.source.skipWhitespace(compiled);
+                    continue;
+                case CompiledLexer.TOKEN:
+                    this.captureStart = false;
+                    this.unread(codepoint);
+                    return this.buildToken(direct);
+                case CompiledLexer.SINGLE:
+                    this.captureStart = false;
+                    return compiled.token(codepoint);
+                case CompiledLexer.OPEN:
+                    this.captureStart = false;
+                    if (this.iterativeLists) {
+                        this.push(compiled.opener(codepoint));
+                        return OPENED;
+                    }
+                    final Object coll =
+                        this.readList(compiled.opener(codepoint));
+                    if (null != coll) {
+                        return coll;
+                    }
+                    this.captureStart = capturing;
+                    continue;
+                default:
+                    macro = compiled.macro(codepoint);
+                    break;
+                }
+            } else {
+                macro = compiled.macro(codepoint);
+                if (null == macro) {
+                    if (!Character.isWhitespace(codepoint)) {
+                        this.captureStart = false;
+                        this.unread(codepoint);
+                        return this.buildToken(direct);
+                    }
+                    continue;
+                }
+            }
+            this.captureStart = false;
+            if (this.iterativeLists && CompiledLexer.OPEN
+                == CompiledLexer.kindOf(codepoint, macro)) {
+                this.push((AccumulatorReaderMacro) macro);
+                return OPENED;
+            }
+            final Object result = this.apply(codepoint, macro);
+            if (null != result) {
+                return result;
+            }
+            this.captureStart = capturing;
+        }
+    }
+
+    /**
+     * Read a collection recursively, as
+     * {@code AccumulatorReaderMacro.apply} would.
+     *
+     * @param macro The reader macro opening it.
+     * @return The collection, or {@code null} at the end of input.
+     */
+    private Object readList(final AccumulatorReaderMacro macro) {
+        if (this.isFinished()) {
+            return null;
+        }
+        final String stop = macro.getStopToken();
+        final ArrayList<Object> coll = new ArrayList<>();
         while (!this.isFinished()) {
-            final int cp = next();
+            final Object entry = this.read();
+            if (stop.equals(entry)) {
+                break;
+            }
+            coll.add(entry);
+        }
+        return this.canonicalize(macro.collect(coll));
+    }
+
+    /**
+     * Read a form, keeping open collections on the explicit stack.
+     *
+     * <p>Collections already open when this is called (i.e., when a
+     * reader macro calls {@code read()} from inside a collection) are
+     * left alone; only those opened here are closed here.</p>
+     *
+     * @return New Lisp data, unless the input has been exhausted.
+     */
+    private Object readIteratively() {
+        final int base = this.depth;
+        while (true) {
+            Object form = this.readForm();
+            if (OPENED == form) {
+                continue;
+            }
+            if (null == form) {
+                if (this.depth == base) {
+                    return null;
+                }
+                form = this.pop();
+            } else if (this.depth > base
+                       && this.openMacros[this.depth - 1].getStopToken()
+                       .equals(form)) {
+                form = this.pop();
+            }
+            if (this.depth == base) {
+                return form;
+            }
+            this.openLists[this.depth - 1].add(form);
+        }
+    }
 
-            if (this.macroBindings.containsKey(cp)
+    /**
+     * Skip over the next form without building it.
+     *
+     * <p>Tokens are compared against stop tokens in place, and
+     * {@code AccumulatorReaderMacro} and {@code SingleCharReaderMacro}
+     * are interpreted rather than called, so nothing is allocated.
+     * Other reader macros, subclasses of those two included, are still
+     * called, and their results counted like forms read.</p>
+     *
+     * @param stats Overwritten with the statistics of the form skipped.
+     * @return False if the input was exhausted before any form.
+     */
+    @Override
+    public boolean skip(final FormStats stats) {
+        stats.clear();
+        boolean started = false;
+        long start = -1L;
+        int open = 0;
+        while (true) {
+            if (this.isFinished()) {
+                if (!started) {
+                    return false;
+                }
+                stats.unclosed(open);
+                break;
+            }
+            if (0 == open) {
+                start = this.source.getOffset();
+            }
+            final int codepoint = this.next();
+            final ReaderMacro macro = this.macroBindings.get(codepoint);
+            final byte kind = CompiledLexer.kindOf(codepoint, macro);
+            final String stop = 0 == open ? null : this.skipStops[open - 1];
+            if (null == macro) {
+                if (Character.isWhitespace(codepoint)) {
+                    continue;
+                }
+                this.unread(codepoint);
+                if (this.skipToken(stop)) {
+                    open--;
+                } else {
+                    stats.atom();
+                }
+            } else if (CompiledLexer.OPEN == kind) {
+                if (this.isFinished()) {
+                    // the macro reads nothing at the end of input
+                    continue;
+                }
+                this.skipPush(open++,
+                              ((AccumulatorReaderMacro) macro).getStopToken());
+                stats.list(open);
+                started = true;
+                continue;
+            } else if (CompiledLexer.SINGLE == kind) {
+                if (((SingleCharReaderMacro) macro).getToken().equals(stop)) {
+                    open--;
+                } else {
+                    stats.atom();
+                }
+            } else {
+                final Object result = this.apply(codepoint, macro);
+                if (null == result) {
+                    continue;
+                } else if (result.equals(stop)) {
+                    open--;
+                } else {
+                    stats.count(result, open);
+                }
+            }
+            started = true;
+            if (0 == open) {
+                break;
+            }
+        }
+        stats.extent(start, this.source.getOffset());
+        return true;
+    }
+
+    /**
+     * Call a reader macro, through the metrics if there are any.
+     *
+     * @param codepoint The character just read.
+     * @param macro The reader macro bound to it.
+     * @return Whatever the macro returns.
+     */
+    private Object apply(final int codepoint, final ReaderMacro macro) {
+        if (null == this.metrics) {
+            return macro.apply(this.source, this);
+        }
+        return this.metrics.apply(codepoint, macro, this.source, this);
+    }
+
+    /**
+     * Note a collection opened while skipping.
+     *
+     * @param index Its depth, from zero.
+     * @param stop The token closing it.
+     */
+    private void skipPush(final int index, final String stop) {
+        if (null == this.skipStops) {
+            this.skipStops = new String[16];
+        } else if (index == this.skipStops.length) {
+            this.skipStops = Arrays.copyOf(this.skipStops, 2 * index);
+        }
+        this.skipStops[index] = stop;
+    }
+
+    /**
+     * Skip over a token, comparing it to a stop token in place.
+     *
+     * @param stop The stop token of the innermost collection, or
+     *        {@code null} at top level.
+     * @return True if the token was {@code stop}.
+     */
+    private boolean skipToken(final String stop) {
+        this.source.markToken();
+        int cp;
+        while (-1 != (cp = next())) {
+            if (null != this.macroBindings.get(cp)
                 || Character.isWhitespace(cp)) {
                 this.unread(cp);
                 break;
             }
+        }
+        return this.source.tokenEquals(stop);
+    }
 
-            buf.appendCodePoint(cp);
+    /**
+     * Open a collection.
+     *
+     * @param macro The reader macro opening it.
+     */
+    private void push(final AccumulatorReaderMacro macro) {
+        if (null == this.openLists) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            final ArrayList<Object>[] lists = new ArrayList[16];
+            this.openLists = lists;
+            this.openMacros = new AccumulatorReaderMacro[16];
+        } else if (this.depth == this.openLists.length) {
+            this.openLists = Arrays.copyOf(this.openLists, 2 * this.depth);
+            this.openMacros = Arrays.copyOf(this.openMacros, 2 * this.depth);
+        }
+        this.openLists[this.depth] = new ArrayList<>();
+        this.openMacros[this.depth] = macro;
+        this.depth++;
+    }
+
+    /**
+     * Close the innermost collection.
+     *
+     * @return The collection, in its macro's representation.
+     */
+    private Object pop() {
+        this.depth--;
+        final ArrayList<Object> coll = this.openLists[this.depth];
+        final AccumulatorReaderMacro macro = this.openMacros[this.depth];
+        this.openLists[this.depth] = null;
+        this.openMacros[this.depth] = null;
+        return this.canonicalize(macro.collect(coll));
+    }
+
+    private Object buildToken(final FormSink direct) {
+        this.source.markToken();
+        if (null == this.lexer) {
+            this.source.scanToken(this.macroBindings);
+        } else {
+            this.source.scanToken(this.lexer);
+        }
+        if (null != this.numbers) {
+            final int kind = this.source.tokenNumber(this.numbers);
+            if (NumberParser.NONE != kind) {
+                if (null == direct || NumberParser.BIG == kind) {
+                    return this.numbers.box(kind);
+                } else if (NumberParser.LONG == kind) {
+                    direct.acceptLong(this.numbers.getLong());
+                } else {
+                    direct.acceptDouble(this.numbers.getDouble());
+                }
+                return DELIVERED;
+            }
+        }
+        if (null == this.interner) {
+            return this.source.tokenText();
         }
-        return buf.toString();
+        return this.source.tokenText(this.interner);
     }
 }
\ No newline at end of file
@@ -0,0 +1,487 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * An immutable read table configuration, built once and shared.
+ *
+ * <p>A {@code ReadTable} is a cursor over one input: it owns the
+ * character window and the position in the input. Its reader macro
+ * bindings, though, are usually the same for every input. A definition
+ * holds those bindings, so they are built once, and each
+ * {@link #newReader(CharSequence)} only allocates the cursor itself.</p>
+ *
+ * <p>Definitions are immutable, so they may be shared freely between
+ * threads, as long as the reader macros bound in them are thread-safe
+ * (as {@code SingleCharReaderMacro} and {@code AccumulatorReaderMacro}
+ * are). {@link #withMacro(int, ReaderMacro)} derives a new definition,
+ * copying the bindings. A read table created from a definition may
+ * still {@code addMacro}; it copies the bindings first, so neither the
+ * definition nor other read tables see the change.</p>
+ *
+ * <pre>
+ * ReadTableDefinition lisp = ReadTableDefinition.builder()
+ *     .addMacro(')', new SingleCharReaderMacro(")"))
+ *     .addMacro('(', new AccumulatorReaderMacro(")"))
+ *     .build();
+ * Object form = lisp.newReader("(a b c)").read();
+ * </pre>
+ */
+public final class ReadTableDefinition {
+    /**
+     * The definition without any reader macros.
+     */
+    private static final ReadTableDefinition EMPTY =
+        new ReadTableDefinition(new MacroTable(), false, false, false);
+
+    /**
+     * The reader macro bindings; never modified once constructed.
+     */
+    private final MacroTable macroBindings;
+
+    /**
+     * Do readers read collections iteratively?
+     */
+    private final boolean iterativeLists;
+
+    /**
+     * Do readers recognize numeric literals?
+     */
+    private final boolean numericLiterals;
+
+    /**
+     * The bindings compiled once for every reader, or {@code null} if
+     * readers look characters up in the bindings.
+     */
+    private final CompiledLexer lexer;
+
+    /**
+     * Does the fingerprint describe the bindings fully?
+     */
+    private final boolean fingerprintComplete;
+
+    /**
+     * Wrap bindings which nobody else will modify.
+     *
+     * @param bindings The reader macro bindings.
+     * @param iterative Do readers read collections iteratively?
+     * @param numeric Do readers recognize numeric literals?
+     * @param compiled Do readers use a compiled lexer?
+     */
+    private ReadTableDefinition(final MacroTable bindings,
+                                final boolean iterative,
+                                final boolean numeric,
+                                final boolean compiled) {
+        this.macroBindings = bindings;
+        this.iterativeLists = iterative;
+        this.numericLiterals = numeric;
+        this.lexer = compiled ? new CompiledLexer(bindings) : null;
+        boolean complete = true;
+        for (int c : bindings.boundCodepoints()) {
+            if (CompiledLexer.CUSTOM
+                == CompiledLexer.kindOf(c, bindings.get(c))) {
+                complete = false;
+                break;
+            }
+        }
+        this.fingerprintComplete = complete;
+    }
+
+    /**
+     * The definition without any reader macros.
+     *
+     * @return The empty definition.
+     */
+    public static ReadTableDefinition empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Start building a definition.
+     *
+     * @return A builder without any reader macros.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Derive a definition with one more binding.
+     *
+     * <p>This will overwrite any existing binding to the given character.</p>
+     *
+     * @param character The UTF-16 character being bound to the reader macro.
+     * @param macro The specific ReaderMacro instance we will invoke upon
+     * reading a {@code character} from input.
+     * @return The new definition; {@code this} is unchanged.
+     */
+    public ReadTableDefinition withMacro(final char character,
+                                         final ReaderMacro macro) {
+        return this.withMacro((int) character, macro);
+    }
+
+    /**
+     * Derive a definition with one more binding.
+     *
+     * <p>This will overwrite any existing binding to the given character.</p>
+     *
+     * @param codepoint The value of the codepoint for the character
+     * being bound to the reader macro.
+     * @param macro The specific ReaderMacro instance we will invoke upon
+     * reading a {@code character} from input.
+     * @return The new definition; {@code this} is unchanged.
+     */
+    public ReadTableDefinition withMacro(final int codepoint,
+                                         final ReaderMacro macro) {
+        final MacroTable bindings = this.macroBindings.copy();
+        bindings.put(codepoint, macro);
+        return new ReadTableDefinition(bindings, this.iterativeLists,
+                                       this.numericLiterals,
+                                       this.isCompiledLexer());
+    }
+
+    /**
+     * Derive a definition whose readers read collections iteratively.
+     *
+     * @param iterative True to read collections iteratively.
+     * @return The new definition; {@code this} is unchanged.
+     * @see ReadTable#setIterativeLists(boolean)
+     */
+    public ReadTableDefinition withIterativeLists(final boolean iterative) {
+        return new ReadTableDefinition(this.macroBindings, iterative,
+                                       this.numericLiterals,
+                                       this.isCompiledLexer());
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return True if readers read collections iteratively.
+     */
+    public boolean isIterativeLists() {
+        return this.iterativeLists;
+    }
+
+    /**
+     * Derive a definition whose readers recognize numeric literals.
+     *
+     * @param numeric True to read numbers as numbers.
+     * @return The new definition; {@code this} is unchanged.
+     * @see ReadTable#setNumericLiterals(boolean)
+     */
+    public ReadTableDefinition withNumericLiterals(final boolean numeric) {
+        return new ReadTableDefinition(this.macroBindings,
+                                       this.iterativeLists, numeric,
+                                       this.isCompiledLexer());
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return True if readers recognize numeric literals.
+     */
+    public boolean isNumericLiterals() {
+        return this.numericLiterals;
+    }
+
+    /**
+     * Derive a definition whose readers use a compiled lexer, compiled
+     * here once for all of them.
+     *
+     * @param compiled True to compile the bindings.
+     * @return The new definition; {@code this} is unchanged.
+     * @see ReadTable#setCompiledLexer(boolean)
+     */
+    public ReadTableDefinition withCompiledLexer(final boolean compiled) {
+        return new ReadTableDefinition(this.macroBindings,
+                                       this.iterativeLists,
+                                       this.numericLiterals, compiled);
+    }
+
+    /**
+     * A predicate.
+     *
+     * @return True if readers use a compiled lexer.
+     */
+    public boolean isCompiledLexer() {
+        return null != this.lexer;
+    }
+
+    /**
+     * The shared bindings, for readers in this package; not to be
+     * modified.
+     *
+     * @return The reader macro bindings.
+     */
+    MacroTable macroTable() {
+        return this.macroBindings;
+    }
+
+    /**
+     * Summarize what readers of this definition would read, so that
+     * forms read under one definition are not mistaken for those of
+     * another. Only {@code SingleCharReaderMacro} and
+     * {@code AccumulatorReaderMacro} bindings are described, classified
+     * as the compiled lexer does; see {@link #isFingerprintComplete()}.
+     * Whether the lexer is compiled does not change the forms, so does
+     * not count.
+     *
+     * @return A 64-bit hash of the bindings and options.
+     */
+    long fingerprint() {
+        long hash = 0xCBF29CE484222325L;
+        hash = (hash ^ (this.numericLiterals ? 1 : 0)) * 0x100000001B3L;
+        hash = (hash ^ (this.iterativeLists ? 1 : 0)) * 0x100000001B3L;
+        for (int c : this.macroBindings.boundCodepoints()) {
+            final ReaderMacro macro = this.macroBindings.get(c);
+            final String description;
+            switch (CompiledLexer.kindOf(c, macro)) {
+            case CompiledLexer.SINGLE:
+                description = "single " + ((SingleCharReaderMacro) macro)
+                    .getToken();
+                break;
+            case CompiledLexer.OPEN:
+                final AccumulatorReaderMacro accumulator =
+                    (AccumulatorReaderMacro) macro;
+                description = "accumulate " + accumulator.getRepresentation()
+                    + " " + accumulator.getStopToken();
+                break;
+            default:
+                description = macro.getClass().getName();
+                break;
+            }
+            hash = (hash ^ c) * 0x100000001B3L;
+            hash = (hash ^ description.hashCode()) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Does the fingerprint describe the definition fully? Any other
+     * reader macro may be configured differently, or have side effects
+     * (e.g., {@code LineNumberCounter}), in ways its class does not
+     * tell, so its forms must not be taken from a cache. Decided once,
+     * when the definition is built.
+     *
+     * @return True if every binding is a {@code SingleCharReaderMacro}
+     *         or an {@code AccumulatorReaderMacro}, exactly.
+     */
+    boolean isFingerprintComplete() {
+        return this.fingerprintComplete;
+    }
+
+    /**
+     * Create a reader for a string source.
+     *
+     * @param snippet The string we're lexing and parsing for data.
+     * @return A new read table over {@code snippet}.
+     */
+    public ReadTable newReader(final CharSequence snippet) {
+        return this.newReader(new CharSource(snippet));
+    }
+
+    /**
+     * Create a Lisp-reader for a {@code Reader} object as the input source.
+     *
+     * @param reader The {@code java.io.Reader} input source.
+     * @return A new read table over {@code reader}.
+     */
+    public ReadTable newReader(final Reader reader) {
+        return this.newReader(new CharSource(reader));
+    }
+
+    /**
+     * Create a Lisp-reader for a UTF-8 encoded stream, decoding the
+     * bytes itself.
+     *
+     * @param in The UTF-8 encoded input, closed with the table.
+     * @return A new read table over {@code in}.
+     * @see ReadTable#fromUtf8(InputStream)
+     */
+    public ReadTable newReader(final InputStream in) {
+        return this.newReader(new CharSource(new Utf8Reader(in)));
+    }
+
+    /**
+     * Create a Lisp-reader for a blocking, UTF-8 encoded channel,
+     * decoding the bytes itself.
+     *
+     * @param in The UTF-8 encoded input, closed with the table.
+     * @return A new read table over {@code in}.
+     * @see ReadTable#fromUtf8(ReadableByteChannel)
+     */
+    public ReadTable newReader(final ReadableByteChannel in) {
+        return this.newReader(new CharSource(new Utf8Reader(in)));
+    }
+
+    /**
+     * Create a Lisp-reader for the UTF-8 encoded bytes of a buffer,
+     * decoding the bytes itself.
+     *
+     * @param in The UTF-8 encoded input.
+     * @return A new read table over {@code in}.
+     * @see ReadTable#fromUtf8(ByteBuffer)
+     */
+    public ReadTable newReader(final ByteBuffer in) {
+        return this.newReader(new CharSource(new Utf8Reader(in)));
+    }
+
+    /**
+     * Create a Lisp-reader for a UTF-8 encoded file, memory-mapped.
+     *
+     * @param path The file to read.
+     * @return A new read table over the file, to be closed when done.
+     * @throws IOException If the file cannot be opened or mapped.
+     * @see ReadTable#fromPath(Path)
+     */
+    public ReadTable newReader(final Path path) throws IOException {
+        return this.newReader(new MappedFileReader(path));
+    }
+
+    /**
+     * Create a read table over a character source.
+     *
+     * @param source The input.
+     * @return A new read table sharing this definition's bindings.
+     */
+    ReadTable newReader(final CharSource source) {
+        final ReadTable table = new ReadTable(source, this.macroBindings);
+        table.setIterativeLists(this.iterativeLists);
+        table.setNumericLiterals(this.numericLiterals);
+        if (null != this.lexer) {
+            table.useLexer(this.lexer);
+        }
+        return table;
+    }
+
+    /**
+     * Accumulates bindings for a new definition, without copying them
+     * for every binding added.
+     */
+    public static final class Builder {
+        /**
+         * The bindings so far, or {@code null} once built.
+         */
+        private MacroTable macroBindings = new MacroTable();
+
+        /**
+         * Do readers read collections iteratively?
+         */
+        private boolean iterativeLists = false;
+
+        /**
+         * Do readers recognize numeric literals?
+         */
+        private boolean numericLiterals = false;
+
+        /**
+         * Do readers use a compiled lexer?
+         */
+        private boolean compiledLexer = false;
+
+        /**
+         * Only {@link ReadTableDefinition#builder()} creates builders.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Register a {@code ReaderMacro} to be bound to a specific character.
+         *
+         * <p>This will overwrite any existing binding to the given
+         * character.</p>
+         *
+         * @param character The UTF-16 character being bound to the
+         * reader macro.
+         * @param macro The specific ReaderMacro instance we will invoke upon
+         * reading a {@code character} from input.
+         * @return {@code this} builder.
+         */
+        public Builder addMacro(final char character, final ReaderMacro macro) {
+            return this.addMacro((int) character, macro);
+        }
+
+        /**
+         * Register a {@code ReaderMacro} to be bound to a specific character.
+         *
+         * <p>This will overwrite any existing binding to the given
+         * character.</p>
+         *
+         * @param codepoint The value of the codepoint for the character
+         * being bound to the reader macro.
+         * @param macro The specific ReaderMacro instance we will invoke upon
+         * reading a {@code character} from input.
+         * @return {@code this} builder.
+         */
+        public Builder addMacro(final int codepoint, final ReaderMacro macro) {
+            this.bindings().put(codepoint, macro);
+            return this;
+        }
+
+        /**
+         * Have readers read collections iteratively.
+         *
+         * @param iterative True to read collections iteratively.
+         * @return {@code this} builder.
+         * @see ReadTable#setIterativeLists(boolean)
+         */
+        public Builder iterativeLists(final boolean iterative) {
+            this.iterativeLists = iterative;
+            return this;
+        }
+
+        /**
+         * Have readers recognize numeric literals.
+         *
+         * @param numeric True to read numbers as numbers.
+         * @return {@code this} builder.
+         * @see ReadTable#setNumericLiterals(boolean)
+         */
+        public Builder numericLiterals(final boolean numeric) {
+            this.numericLiterals = numeric;
+            return this;
+        }
+
+        /**
+         * Have readers use a compiled lexer.
+         *
+         * @param compiled True to compile the bindings.
+         * @return {@code this} builder.
+         * @see ReadTable#setCompiledLexer(boolean)
+         */
+        public Builder compiledLexer(final boolean compiled) {
+            this.compiledLexer = compiled;
+            return this;
+        }
+
+        /**
+         * Finish the definition. The builder cannot be used afterwards.
+         *
+         * @return The immutable definition.
+         */
+        public ReadTableDefinition build() {
+            final MacroTable bindings = this.bindings();
+            this.macroBindings = null;
+            return new ReadTableDefinition(bindings, this.iterativeLists,
+                                           this.numericLiterals,
+                                           this.compiledLexer);
+        }
+
+        /**
+         * The bindings, unless already built.
+         *
+         * @return The bindings so far.
+         */
+        private MacroTable bindings() {
+            if (null == this.macroBindings) {
+                throw new IllegalStateException("Definition already built");
+            }
+            return this.macroBindings;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.pqnelson;
+
+import java.io.Reader;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Thread-confined, reusable read tables for parsing many small inputs.
+ *
+ * <p>A new read table allocates its character window and stacks, only
+ * to throw them away after a snippet of a few dozen characters. A pool
+ * keeps one read table per thread for its definition instead, and
+ * {@link ReadTable#reset(CharSequence) resets} it for each input, so
+ * reading a snippet allocates nothing but the forms read.</p>
+ *
+ * <pre>
+ * ReadTablePool pool = new ReadTablePool(lisp);
+ * Object form = pool.read("(a b c)");
+ * </pre>
+ *
+ * <p>A table is {@link #acquire(CharSequence) acquired} and
+ * {@link #release(ReadTable) released} on the same thread, and must not
+ * be used after its release. Should a thread acquire again before
+ * releasing, say from a reader macro, it gets a fresh table, which is
+ * counted as an overflow and not kept. Each thread's table lives as
+ * long as the thread and the pool do, so a pool is best kept for the
+ * life of the application, like the definition it reads.</p>
+ */
+public final class ReadTablePool {
+    /**
+     * The definition every table reads.
+     */
+    private final ReadTableDefinition definition;
+
+    /**
+     * Each thread's table.
+     */
+    private final ThreadLocal<Slot> slots = ThreadLocal.withInitial(Slot::new);
+
+    /**
+     * Number of tables handed out.
+     */
+    private final LongAdder acquisitions = new LongAdder();
+
+    /**
+     * Number of tables created.
+     */
+    private final LongAdder created = new LongAdder();
+
+    /**
+     * Number of tables created because the thread's own was in use.
+     */
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * Create a pool of readers for a definition.
+     *
+     * @param tableDefinition The reader macros and options to read with.
+     */
+    public ReadTablePool(final ReadTableDefinition tableDefinition) {
+        this.definition = tableDefinition;
+    }
+
+    /**
+     * Read the first form of a snippet with this thread's table.
+     *
+     * @param snippet The text.
+     * @return The first form, or {@code null} if there is none.
+     */
+    public Object read(final CharSequence snippet) {
+        final ReadTable table = this.acquire(snippet);
+        try {
+            return table.read();
+        } finally {
+            this.release(table);
+        }
+    }
+
+    /**
+     * Read every form of a snippet with this thread's table.
+     *
+     * @param snippet The text.
+     * @param forms Told about each form, in order.
+     */
+    public void readAll(final CharSequence snippet,
+                        final Consumer<Object> forms) {
+        final ReadTable table = this.acquire(snippet);
+        try {
+            Object form;
+            while (null != (form = table.read())) {
+                forms.accept(form);
+            }
+        } finally {
+            this.release(table);
+        }
+    }
+
+    /**
+     * Take this thread's table, reset to read a snippet.
+     *
+     * @param snippet The text.
+     * @return A table over {@code snippet}, to be released when done.
+     */
+    public ReadTable acquire(final CharSequence snippet) {
+        final Slot slot = this.claim();
+        if (null == slot) {
+            return this.definition.newReader(snippet);
+        }
+        slot.table.reset(snippet);
+        return slot.table;
+    }
+
+    /**
+     * Take this thread's table, reset to read a {@code Reader}.
+     *
+     * @param reader The input; the pool never closes it.
+     * @return A table over {@code reader}, to be released when done.
+     */
+    public ReadTable acquire(final Reader reader) {
+        final Slot slot = this.claim();
+        if (null == slot) {
+            return this.definition.newReader(reader);
+        }
+        slot.table.reset(reader);
+        return slot.table;
+    }
+
+    /**
+     * Give back a table, on the thread which acquired it. The table
+     * drops its input, so the pool does not keep the input alive.
+     *
+     * @param table The table acquired.
+     */
+    public void release(final ReadTable table) {
+        final Slot slot = this.slots.get();
+        if (slot.inUse && slot.table == table) {
+            table.reset("");
+            slot.inUse = false;
+        }
+    }
+
+    /**
+     * Mark this thread's table in use, creating it if need be.
+     *
+     * @return The thread's slot, or {@code null} if its table is
+     *         already in use and a fresh one should be made.
+     */
+    private Slot claim() {
+        this.acquisitions.increment();
+        final Slot slot = this.slots.get();
+        if (slot.inUse) {
+            this.created.increment();
+            this.overflows.increment();
+            return null;
+        }
+        if (null == slot.table) {
+            this.created.increment();
+            slot.table = this.definition.newReader("");
+        }
+        slot.inUse = true;
+        return slot;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of tables handed out.
+     */
+    public long getAcquisitions() {
+        return this.acquisitions.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of tables created, one per thread plus the
+     *         overflows.
+     */
+    public long getCreated() {
+        return this.created.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of tables created because the thread's own was
+     *         still in use.
+     */
+    public long getOverflows() {
+        return this.overflows.sum();
+    }
+
+    /**
+     * A thread's table, and whether it is handed out.
+     */
+    private static final class Slot {
+        /**
+         * The table, or {@code null} until first needed.
+         */
+        private ReadTable table;
+
+        /**
+         * Is the table acquired and not yet released?
+         */
+        private boolean inUse;
+    }
+}
\ No newline at end of file
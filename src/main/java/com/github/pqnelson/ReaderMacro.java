@@ -23,4 +23,16 @@ interface ReaderMacro {
      * if the reader macro was used just for side effects.
      */
     Object apply(Reader stream, AbstractReadTable table);
+
+    /**
+     * Might {@code apply} call {@code table.read()}, to read forms of
+     * its own? A reader which is pushed its input, like
+     * {@code IncrementalReader}, cannot pull forms on demand, so it
+     * refuses reader macros which might.
+     *
+     * @return True unless the reader macro never reads forms.
+     */
+    default boolean readsForms() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,370 @@
+package com.github.pqnelson;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.EventType;
+
+/**
+ * Where reading time goes: counters for read tables which opt in.
+ *
+ * <p>Once set on a {@code ReadTable} with
+ * {@link ReadTable#setMetrics(ReaderMetrics)}, this counts the
+ * characters consumed and the top-level forms read, and for each code
+ * point whose reader macro is called, the calls and the time spent in
+ * them, with a histogram of call latencies. Time in a reader macro
+ * includes the forms it reads in turn. A top-level form taking at least
+ * the slow-form threshold is counted, and when Flight Recorder is
+ * recording, reported as a {@code com.github.pqnelson.SlowForm} event
+ * giving its position, so the inputs behind latency spikes can be
+ * found.</p>
+ *
+ * <p>Counters are {@code LongAdder}s, so one instance may be shared by
+ * read tables on many threads without contention. A read table without
+ * metrics pays only a null check per form and per reader macro
+ * call.</p>
+ */
+public final class ReaderMetrics {
+    /**
+     * Default slow-form threshold: 10 milliseconds.
+     */
+    private static final long DEFAULT_SLOW_NANOS = 10_000_000L;
+
+    /**
+     * Number of latency histogram buckets; the last also counts
+     * anything slower.
+     */
+    private static final int BUCKETS = 40;
+
+    /**
+     * Code points strictly below this have their statistics looked up
+     * in an array, as in {@code MacroTable}.
+     */
+    private static final int DENSE_LIMIT = 256;
+
+    /**
+     * The Flight Recorder event type, to check whether it is enabled
+     * without creating an event.
+     */
+    private static final EventType SLOW_FORM =
+        EventType.getEventType(SlowFormEvent.class);
+
+    /**
+     * Forms taking at least this many nanoseconds are slow.
+     */
+    private final long slowFormNanos;
+
+    /**
+     * Characters consumed by top-level reads.
+     */
+    private final LongAdder chars = new LongAdder();
+
+    /**
+     * Top-level forms read.
+     */
+    private final LongAdder forms = new LongAdder();
+
+    /**
+     * Nanoseconds spent in top-level reads.
+     */
+    private final LongAdder readNanos = new LongAdder();
+
+    /**
+     * Top-level forms at least {@code slowFormNanos} to read.
+     */
+    private final LongAdder slowForms = new LongAdder();
+
+    /**
+     * Statistics of code points below {@code DENSE_LIMIT}.
+     */
+    private final AtomicReferenceArray<MacroStats> dense =
+        new AtomicReferenceArray<>(DENSE_LIMIT);
+
+    /**
+     * Statistics of the other code points.
+     */
+    private final ConcurrentHashMap<Integer, MacroStats> sparse =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Create metrics with the default slow-form threshold of 10 ms.
+     */
+    public ReaderMetrics() {
+        this(DEFAULT_SLOW_NANOS);
+    }
+
+    /**
+     * Create metrics with the given slow-form threshold.
+     *
+     * @param slowNanos Forms taking at least this many nanoseconds to
+     * read are slow.
+     */
+    public ReaderMetrics(final long slowNanos) {
+        this.slowFormNanos = slowNanos;
+    }
+
+    /**
+     * Start timing a top-level form for Flight Recorder.
+     *
+     * @return A begun event, or {@code null} if the event is not being
+     *         recorded.
+     */
+    SlowFormEvent beginForm() {
+        if (!SLOW_FORM.isEnabled()) {
+            return null;
+        }
+        final SlowFormEvent event = new SlowFormEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Count a top-level read.
+     *
+     * @param event The event from {@link #beginForm()}, its position
+     * filled in, or {@code null}.
+     * @param form The form read, or {@code null} at the end of input.
+     * @param consumed The number of characters consumed.
+     * @param nanos The time taken.
+     */
+    void formRead(final SlowFormEvent event, final Object form,
+                  final long consumed, final long nanos) {
+        this.chars.add(consumed);
+        this.readNanos.add(nanos);
+        if (null == form) {
+            return;
+        }
+        this.forms.increment();
+        if (nanos < this.slowFormNanos) {
+            return;
+        }
+        this.slowForms.increment();
+        if (null != event) {
+            event.end();
+            event.chars = consumed;
+            event.formType = form.getClass().getSimpleName();
+            event.commit();
+        }
+    }
+
+    /**
+     * Call a reader macro, timing it.
+     *
+     * @param codepoint The character the macro is bound to.
+     * @param macro The reader macro.
+     * @param stream The input, for the macro.
+     * @param table The read table, for the macro.
+     * @return Whatever the macro returns.
+     */
+    Object apply(final int codepoint, final ReaderMacro macro,
+                 final Reader stream, final AbstractReadTable table) {
+        final long start = System.nanoTime();
+        try {
+            return macro.apply(stream, table);
+        } finally {
+            this.stats(codepoint).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The statistics of a code point, created when first needed.
+     *
+     * @param codepoint The code point.
+     * @return Its statistics.
+     */
+    private MacroStats stats(final int codepoint) {
+        if (codepoint >= 0 && codepoint < DENSE_LIMIT) {
+            final MacroStats stats = this.dense.get(codepoint);
+            if (null != stats) {
+                return stats;
+            }
+            this.dense.compareAndSet(codepoint, null, new MacroStats());
+            return this.dense.get(codepoint);
+        }
+        return this.sparse.computeIfAbsent(codepoint, c -> new MacroStats());
+    }
+
+    /**
+     * The statistics of a code point, if it has any.
+     *
+     * @param codepoint The code point.
+     * @return Its statistics, or {@code null}.
+     */
+    private MacroStats find(final int codepoint) {
+        if (codepoint >= 0 && codepoint < DENSE_LIMIT) {
+            return this.dense.get(codepoint);
+        }
+        return this.sparse.get(codepoint);
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return Forms taking at least this many nanoseconds are slow.
+     */
+    public long getSlowFormThreshold() {
+        return this.slowFormNanos;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The characters consumed by top-level reads, including
+     *         whitespace.
+     */
+    public long getChars() {
+        return this.chars.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of top-level forms read.
+     */
+    public long getForms() {
+        return this.forms.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The nanoseconds spent in top-level reads.
+     */
+    public long getReadNanos() {
+        return this.readNanos.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of top-level forms which were slow to read.
+     */
+    public long getSlowForms() {
+        return this.slowForms.sum();
+    }
+
+    /**
+     * The code points whose reader macros have been called.
+     *
+     * @return The code points, in ascending order.
+     */
+    public int[] getCodepoints() {
+        int[] result = new int[DENSE_LIMIT + this.sparse.size()];
+        int n = 0;
+        for (int c = 0; c < DENSE_LIMIT; c++) {
+            if (null != this.dense.get(c)) {
+                result[n++] = c;
+            }
+        }
+        for (Integer c : this.sparse.keySet()) {
+            if (n == result.length) {
+                result = Arrays.copyOf(result, 2 * n);
+            }
+            result[n++] = c;
+        }
+        result = Arrays.copyOf(result, n);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @param codepoint The code point a reader macro is bound to.
+     * @return The number of times the macro was called.
+     */
+    public long getInvocations(final int codepoint) {
+        final MacroStats stats = this.find(codepoint);
+        return null == stats ? 0L : stats.calls.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @param codepoint The code point a reader macro is bound to.
+     * @return The nanoseconds spent in the macro.
+     */
+    public long getMacroNanos(final int codepoint) {
+        final MacroStats stats = this.find(codepoint);
+        return null == stats ? 0L : stats.nanos.sum();
+    }
+
+    /**
+     * The latency histogram of a reader macro. Bucket {@code i} counts
+     * the calls taking from {@code 2^i} up to {@code 2^(i+1)}
+     * nanoseconds; bucket 0 also counts those too quick to measure, and
+     * the last bucket those slower still.
+     *
+     * @param codepoint The code point a reader macro is bound to.
+     * @return A copy of the histogram.
+     */
+    public long[] getLatencyHistogram(final int codepoint) {
+        final long[] result = new long[BUCKETS];
+        final MacroStats stats = this.find(codepoint);
+        if (null != stats) {
+            for (int i = 0; i < BUCKETS; i++) {
+                result[i] = stats.buckets[i].sum();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reset every counter to zero.
+     */
+    public void clear() {
+        this.chars.reset();
+        this.forms.reset();
+        this.readNanos.reset();
+        this.slowForms.reset();
+        for (int c = 0; c < DENSE_LIMIT; c++) {
+            this.dense.set(c, null);
+        }
+        this.sparse.clear();
+    }
+
+    /**
+     * Calls to the reader macro bound to one code point.
+     */
+    private static final class MacroStats {
+        /**
+         * Number of calls.
+         */
+        private final LongAdder calls = new LongAdder();
+
+        /**
+         * Nanoseconds spent in the calls.
+         */
+        private final LongAdder nanos = new LongAdder();
+
+        /**
+         * Calls by latency, in powers of two nanoseconds.
+         */
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        /**
+         * Create empty statistics.
+         */
+        MacroStats() {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Count a call.
+         *
+         * @param elapsed The nanoseconds it took.
+         */
+        void record(final long elapsed) {
+            this.calls.increment();
+            this.nanos.add(elapsed);
+            final int bucket = elapsed <= 0 ? 0
+                : 63 - Long.numberOfLeadingZeros(elapsed);
+            this.buckets[Math.min(bucket, BUCKETS - 1)].increment();
+        }
+    }
+}
\ No newline at end of file
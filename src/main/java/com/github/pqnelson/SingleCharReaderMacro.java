@@ -35,6 +35,15 @@ public class SingleCharReaderMacro implements ReaderMacro {
         this.token = character;
     }
 
+    /**
+     * A getter method.
+     *
+     * @return The token produced by {@code this} reader macro.
+     */
+    String getToken() {
+        return this.token;
+    }
+
     /**
      * Returns the token when encountered.
      *
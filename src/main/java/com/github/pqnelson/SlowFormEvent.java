@@ -0,0 +1,52 @@
+package com.github.pqnelson;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a top-level form which took longer to read
+ * than its {@link ReaderMetrics} threshold.
+ *
+ * <p>The event's duration is the time spent in {@code read()}, and its
+ * position says where in the input to look for the offending form.</p>
+ */
+@Name("com.github.pqnelson.SlowForm")
+@Label("Slow Form")
+@Category("LispReader")
+@Description("A top-level form slow to read")
+@StackTrace(false)
+final class SlowFormEvent extends Event {
+    /**
+     * Offset of the first character read, in UTF-16 characters.
+     */
+    @Label("Start Offset")
+    long startOffset;
+
+    /**
+     * Line of the first character read.
+     */
+    @Label("Line")
+    int line;
+
+    /**
+     * Column of the first character read.
+     */
+    @Label("Column")
+    int column;
+
+    /**
+     * Characters consumed, including leading whitespace.
+     */
+    @Label("Characters")
+    long chars;
+
+    /**
+     * Simple class name of the form read.
+     */
+    @Label("Form Type")
+    String formType;
+}
\ No newline at end of file
@@ -0,0 +1,370 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the forms read from short, often repeated snippets.
+ *
+ * <p>Reading the same snippet twice gives the same forms, so a snippet
+ * seen before is answered from the cache, without lexing it again.
+ * Entries are keyed by the snippet and the read table definition it was
+ * read with (by identity, since definitions are immutable and meant to
+ * be shared); definitions with custom reader macros are not cached,
+ * see {@link #readAll}. The forms returned are deeply immutable: every
+ * list is a compact immutable list, or cons cells if the reader made
+ * them so, and may be shared freely.</p>
+ *
+ * <p>The cache is split into stripes, each an LRU map guarded by its
+ * own lock, so threads looking up different snippets rarely contend.
+ * Snippets are read outside the lock; two threads missing on the same
+ * snippet at once both read it. Each stripe evicts its least recently
+ * used entries once their weight, the characters of the snippet plus
+ * the objects in its forms, passes its share of the limit.</p>
+ */
+public final class SnippetCache {
+    /**
+     * Number of stripes, by default.
+     */
+    private static final int DEFAULT_STRIPES = 16;
+
+    /**
+     * The stripes; a power of two of them.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * The most weight each stripe may hold.
+     */
+    private final long stripeWeight;
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of lookups which read the snippet.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of entries evicted to make room.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache of about the given total weight.
+     *
+     * @param maxWeight The most characters plus objects to retain.
+     */
+    public SnippetCache(final long maxWeight) {
+        this(maxWeight, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create a cache of about the given total weight, split into
+     * stripes.
+     *
+     * @param maxWeight The most characters plus objects to retain.
+     * @param stripeCount The number of independently locked stripes,
+     * rounded up to a power of two.
+     */
+    public SnippetCache(final long maxWeight, final int stripeCount) {
+        if (maxWeight <= 0 || stripeCount <= 0) {
+            throw new IllegalArgumentException("Weight and stripes must be"
+                                               + " positive");
+        }
+        int n = 1;
+        while (n < stripeCount) {
+            n <<= 1;
+        }
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeWeight = Math.max(1L, maxWeight / n);
+    }
+
+    /**
+     * Read the first form of a snippet.
+     *
+     * @param definition The read table definition to read with.
+     * @param snippet The text.
+     * @return The first form, or {@code null} if there is none.
+     */
+    public Object read(final ReadTableDefinition definition,
+                       final String snippet) {
+        final List<Object> forms = this.readAll(definition, snippet);
+        return forms.isEmpty() ? null : forms.get(0);
+    }
+
+    /**
+     * Read every form of a snippet.
+     *
+     * <p>A definition binding any reader macro other than a
+     * {@code SingleCharReaderMacro} or an {@code AccumulatorReaderMacro}
+     * is not cached: such a macro may have side effects, as a
+     * {@code LineNumberCounter} does, or read differently each time, and
+     * a hit would skip it. Its snippets are read afresh every time, and
+     * counted neither as hits nor as misses.</p>
+     *
+     * @param definition The read table definition to read with.
+     * @param snippet The text.
+     * @return The forms, immutable.
+     */
+    public List<Object> readAll(final ReadTableDefinition definition,
+                                final String snippet) {
+        if (!definition.isFingerprintComplete()) {
+            return load(definition, snippet).forms;
+        }
+        final Key key = new Key(definition, snippet);
+        final Stripe stripe = this.stripes[
+            (key.hash ^ (key.hash >>> 16)) & (this.stripes.length - 1)];
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.get(key);
+        }
+        if (null != entry) {
+            this.hits.increment();
+            return entry.forms;
+        }
+        this.misses.increment();
+        entry = load(definition, snippet);
+        if (entry.weight > this.stripeWeight) {
+            return entry.forms;
+        }
+        synchronized (stripe) {
+            final Entry old = stripe.put(key, entry);
+            if (null != old) {
+                stripe.weight -= old.weight;
+            }
+            stripe.weight += entry.weight;
+            final Iterator<Entry> lru = stripe.values().iterator();
+            while (stripe.weight > this.stripeWeight) {
+                stripe.weight -= lru.next().weight;
+                lru.remove();
+                this.evictions.increment();
+            }
+        }
+        return entry.forms;
+    }
+
+    /**
+     * Read a snippet afresh, making its forms immutable.
+     *
+     * @param definition The read table definition to read with.
+     * @param snippet The text.
+     * @return The entry to cache.
+     */
+    private static Entry load(final ReadTableDefinition definition,
+                              final String snippet) {
+        final ReadTable table = definition.newReader(snippet);
+        final List<Object> forms = new ArrayList<>();
+        Object form;
+        while (null != (form = table.read())) {
+            forms.add(form);
+        }
+        final long[] objects = new long[1];
+        final Object[] frozen = new Object[forms.size()];
+        int i = 0;
+        for (Object f : forms) {
+            frozen[i++] = freeze(f, objects);
+        }
+        return new Entry(CompactLists.of(frozen, frozen.length),
+                         snippet.length() + objects[0] + 1);
+    }
+
+    /**
+     * Make a form deeply immutable, counting its objects.
+     *
+     * @param form The form.
+     * @param objects Incremented for each atom and list.
+     * @return The immutable form.
+     */
+    private static Object freeze(final Object form, final long[] objects) {
+        objects[0]++;
+        if (!(form instanceof List)) {
+            return form;
+        }
+        final List<?> list = (List<?>) form;
+        final Object[] elements = new Object[list.size()];
+        int i = 0;
+        boolean changed = !(form instanceof ImmutableList);
+        for (Object element : list) {
+            elements[i] = freeze(element, objects);
+            changed |= elements[i] != element;
+            i++;
+        }
+        if (!changed) {
+            return form;
+        }
+        return form instanceof Cons ? Cons.of(elements, elements.length)
+            : CompactLists.of(elements, elements.length);
+    }
+
+    /**
+     * The total weight held.
+     *
+     * @return The characters plus objects retained.
+     */
+    public long weight() {
+        long total = 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                total += stripe.weight;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Forget every entry. The counters are kept.
+     */
+    public void clear() {
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+                stripe.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lookups answered from the cache.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lookups which read the snippet.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of entries evicted to make room.
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * A snippet and the definition it was read with.
+     */
+    private static final class Key {
+        /**
+         * The definition, compared by identity.
+         */
+        private final ReadTableDefinition definition;
+
+        /**
+         * The text.
+         */
+        private final String snippet;
+
+        /**
+         * The combined hash.
+         */
+        private final int hash;
+
+        /**
+         * Create a key.
+         *
+         * @param readers The definition.
+         * @param text The text.
+         */
+        Key(final ReadTableDefinition readers, final String text) {
+            this.definition = readers;
+            this.snippet = text;
+            this.hash = 31 * System.identityHashCode(readers) + text.hashCode();
+        }
+
+        /**
+         * Keys are equal for the same text read with the very same
+         * definition.
+         *
+         * @param other The object to compare with.
+         * @return True if {@code other} is an equal key.
+         */
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) other;
+            return this.definition == that.definition
+                && this.snippet.equals(that.snippet);
+        }
+
+        /**
+         * A getter method.
+         *
+         * @return The combined hash, computed once.
+         */
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /**
+     * The cached forms of a snippet.
+     */
+    private static final class Entry {
+        /**
+         * The forms, immutable.
+         */
+        private final List<Object> forms;
+
+        /**
+         * The characters plus objects retained.
+         */
+        private final long weight;
+
+        /**
+         * Create an entry.
+         *
+         * @param frozen The forms, immutable.
+         * @param cost The characters plus objects retained.
+         */
+        Entry(final List<Object> frozen, final long cost) {
+            this.forms = frozen;
+            this.weight = cost;
+        }
+    }
+
+    /**
+     * One stripe: an LRU map and its weight, guarded by itself.
+     */
+    private static final class Stripe extends LinkedHashMap<Key, Entry> {
+        /**
+         * Serialization is not supported, but {@code LinkedHashMap} is
+         * {@code Serializable}.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Total weight of the entries.
+         */
+        private long weight = 0;
+
+        /**
+         * Create an empty stripe, ordered by access.
+         */
+        Stripe() {
+            super(16, 0.75f, true);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.github.pqnelson;
+
+/**
+ * A position in the input of a read table.
+ */
+public final class SourcePosition {
+    /**
+     * Offset from the start of input, in UTF-16 characters.
+     */
+    private final long offset;
+
+    /**
+     * The line, from 1.
+     */
+    private final int line;
+
+    /**
+     * The column, from 1.
+     */
+    private final int column;
+
+    /**
+     * Create a position.
+     *
+     * @param charOffset Offset from the start of input, in UTF-16 characters.
+     * @param lineNumber The line, from 1.
+     * @param columnNumber The column, from 1.
+     */
+    public SourcePosition(final long charOffset, final int lineNumber,
+                          final int columnNumber) {
+        this.offset = charOffset;
+        this.line = lineNumber;
+        this.column = columnNumber;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The offset from the start of input, in UTF-16 characters.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The line, from 1.
+     */
+    public int getLine() {
+        return this.line;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The column, from 1.
+     */
+    public int getColumn() {
+        return this.column;
+    }
+
+    /**
+     * Positions are equal when their offset, line and column are.
+     *
+     * @param other The object to compare with.
+     * @return True if {@code other} is the same position.
+     */
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SourcePosition)) {
+            return false;
+        }
+        final SourcePosition that = (SourcePosition) other;
+        return this.offset == that.offset && this.line == that.line
+            && this.column == that.column;
+    }
+
+    /**
+     * Hash consistently with {@code equals}; the column follows from
+     * the offset and line.
+     *
+     * @return The hash of the offset and line.
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.offset) * 31 + this.line;
+    }
+
+    /**
+     * Format as {@code line:column}, the way compilers report errors.
+     *
+     * @return The human-readable position.
+     */
+    @Override
+    public String toString() {
+        return this.line + ":" + this.column;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.github.pqnelson;
+
+/**
+ * Where a form was found in the input of a read table: from its first
+ * character, up to the character following it.
+ */
+public final class SourceSpan {
+    /**
+     * The position of the first character of the form.
+     */
+    private final SourcePosition start;
+
+    /**
+     * The position just past the last character of the form.
+     */
+    private final SourcePosition end;
+
+    /**
+     * Create a span.
+     *
+     * @param from The position of the first character of the form.
+     * @param to The position just past the last character of the form.
+     */
+    public SourceSpan(final SourcePosition from, final SourcePosition to) {
+        this.start = from;
+        this.end = to;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The position of the first character of the form.
+     */
+    public SourcePosition getStart() {
+        return this.start;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The position just past the last character of the form.
+     */
+    public SourcePosition getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Spans are equal when they start and end at the same positions.
+     *
+     * @param other The object to compare with.
+     * @return True if {@code other} is the same span.
+     */
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SourceSpan)) {
+            return false;
+        }
+        final SourceSpan that = (SourceSpan) other;
+        return this.start.equals(that.start) && this.end.equals(that.end);
+    }
+
+    /**
+     * Hash consistently with {@code equals}.
+     *
+     * @return The hash of the start and end.
+     */
+    @Override
+    public int hashCode() {
+        return this.start.hashCode() * 31 + this.end.hashCode();
+    }
+
+    /**
+     * Format as {@code line:column-line:column}.
+     *
+     * @return The human-readable span.
+     */
+    @Override
+    public String toString() {
+        return this.start + "-" + this.end;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.github.pqnelson;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of token strings, so that repeated symbols share one
+ * {@code String} instead of each occurrence allocating its own.
+ *
+ * <p>Tokens are looked up straight from the read table's character
+ * window; a {@code String} is only created on a miss. The table is
+ * 4-way set associative: a token hashes to one set of four slots, and
+ * a miss in a full set evicts the least recently used of the four. This
+ * keeps both lookup and eviction to a handful of array accesses, at the
+ * price of being only approximately LRU over the whole table.</p>
+ *
+ * <p>Tokens longer than {@link #MAX_TOKEN_LENGTH} are never interned;
+ * long atoms rarely repeat, and would only push out short ones.</p>
+ *
+ * <p>An interner is not thread-safe. Give each read table its own, or
+ * share one between read tables used by the same thread.</p>
+ */
+public final class TokenInterner {
+    /**
+     * The longest token worth interning.
+     */
+    public static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * Number of slots in each set.
+     */
+    private static final int WAYS = 4;
+
+    /**
+     * The cached strings, {@code WAYS} consecutive slots per set, each
+     * set ordered from most to least recently used.
+     */
+    private final String[] slots;
+
+    /**
+     * Mask selecting a set from a hash.
+     */
+    private final int setMask;
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private long hits = 0;
+
+    /**
+     * Number of lookups which had to create a string.
+     */
+    private long misses = 0;
+
+    /**
+     * Number of strings pushed out to make room.
+     */
+    private long evictions = 0;
+
+    /**
+     * Create an interner holding at most about {@code capacity} tokens.
+     *
+     * @param capacity The number of tokens to keep, rounded up to a
+     * power of two no smaller than four.
+     */
+    public TokenInterner(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got "
+                                               + capacity);
+        }
+        int sets = 1;
+        while (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        this.slots = new String[sets * WAYS];
+        this.setMask = sets - 1;
+    }
+
+    /**
+     * Find or create the string for a range of characters.
+     *
+     * @param buf The characters of the token.
+     * @param offset Index of the first character of the token.
+     * @param length Length of the token.
+     * @return A string equal to the token, shared with earlier equal
+     *         tokens while it stays in the cache.
+     */
+    public String intern(final char[] buf, final int offset, final int length) {
+        if (length > MAX_TOKEN_LENGTH) {
+            this.misses++;
+            return new String(buf, offset, length);
+        }
+        int hash = 0;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        final int base = ((hash ^ (hash >>> 16)) & this.setMask) * WAYS;
+        for (int way = 0; way < WAYS; way++) {
+            final String candidate = this.slots[base + way];
+            if (null == candidate) {
+                break;
+            }
+            if (candidate.hashCode() == hash
+                && matches(candidate, buf, offset, length)) {
+                // move to the front of the set
+                System.arraycopy(this.slots, base, this.slots, base + 1, way);
+                this.slots[base] = candidate;
+                this.hits++;
+                return candidate;
+            }
+        }
+        this.misses++;
+        if (null != this.slots[base + WAYS - 1]) {
+            this.evictions++;
+        }
+        final String token = new String(buf, offset, length);
+        System.arraycopy(this.slots, base, this.slots, base + 1, WAYS - 1);
+        this.slots[base] = token;
+        return token;
+    }
+
+    /**
+     * Compare a string with a range of characters.
+     *
+     * @param s The cached string.
+     * @param buf The characters of the token.
+     * @param offset Index of the first character of the token.
+     * @param length Length of the token.
+     * @return True if they hold the same characters.
+     */
+    private static boolean matches(final String s, final char[] buf,
+                                   final int offset, final int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != buf[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The number of slots, i.e., the most tokens kept at once.
+     *
+     * @return The capacity of the interner.
+     */
+    public int capacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lookups answered by an existing string.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of lookups which created a new string,
+     *         including tokens too long to intern.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * A getter method.
+     *
+     * @return The number of strings evicted to make room for new ones.
+     */
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Forget every cached string and zero the counters.
+     */
+    public void clear() {
+        Arrays.fill(this.slots, null);
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,422 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reader decoding UTF-8 bytes itself, with a fast lane for ASCII.
+ *
+ * <p>An {@code InputStreamReader} runs every byte through a
+ * {@code CharsetDecoder}, though nearly all Lisp source is ASCII. This
+ * reader copies runs of ASCII out in bulk, through the ASCII decoder,
+ * whose loop the JIT replaces with a vectorized copy that stops at the
+ * first byte with its high bit set; only such bytes are decoded here,
+ * as multi-byte sequences. Malformed input is
+ * replaced with U+FFFD, one for each maximal invalid subsequence, as an
+ * {@code InputStreamReader} would, and a sequence split across reads of
+ * the underlying input is decoded once the rest arrives.</p>
+ *
+ * <p>The bytes come from an {@code InputStream}, a blocking
+ * {@code ReadableByteChannel}, or a {@code ByteBuffer}; a buffer
+ * backed by an array is decoded in place, without copying.</p>
+ */
+final class Utf8Reader extends Reader {
+    /**
+     * Size of the byte buffer, for streams and channels.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * ASCII runs are copied by hand for this many bytes, and beyond that
+     * by the ASCII decoder, which costs a call but then copies many
+     * times faster.
+     */
+    private static final int SHORT_RUN = 16;
+
+    /**
+     * The bytes to decode, in {@code [position, limit)}.
+     */
+    private final byte[] bytes;
+
+    /**
+     * Index of the next byte to decode.
+     */
+    private int position;
+
+    /**
+     * One past the last byte available.
+     */
+    private int limit;
+
+    /**
+     * The stream to read bytes from, or {@code null}.
+     */
+    private final InputStream stream;
+
+    /**
+     * The channel to read bytes from, or {@code null}.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * {@code bytes} as a buffer, for the channel to read into.
+     */
+    private final ByteBuffer channelView;
+
+    /**
+     * The buffer to copy bytes from, when not backed by an array, or
+     * {@code null}.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Copies ASCII runs, and reports the first other byte as malformed.
+     */
+    private final CharsetDecoder ascii =
+        StandardCharsets.US_ASCII.newDecoder();
+
+    /**
+     * {@code bytes} as a buffer, for {@code ascii}.
+     */
+    private final ByteBuffer byteView;
+
+    /**
+     * The caller's array as a buffer, for {@code ascii}, or
+     * {@code null}.
+     */
+    private CharBuffer charView = null;
+
+    /**
+     * Has the underlying input been exhausted?
+     */
+    private boolean exhausted = false;
+
+    /**
+     * The low surrogate of a pair whose high surrogate filled the
+     * caller's array, or {@code -1}.
+     */
+    private int pendingLow = -1;
+
+    /**
+     * Decode a stream.
+     *
+     * @param in The UTF-8 encoded input.
+     */
+    Utf8Reader(final InputStream in) {
+        this.stream = in;
+        this.channel = null;
+        this.channelView = null;
+        this.buffer = null;
+        this.bytes = new byte[BUFFER_SIZE];
+        this.byteView = ByteBuffer.wrap(this.bytes);
+    }
+
+    /**
+     * Decode a blocking channel.
+     *
+     * @param in The UTF-8 encoded input.
+     */
+    Utf8Reader(final ReadableByteChannel in) {
+        this.stream = null;
+        this.channel = in;
+        this.buffer = null;
+        this.bytes = new byte[BUFFER_SIZE];
+        this.channelView = ByteBuffer.wrap(this.bytes);
+        this.byteView = this.channelView.duplicate();
+    }
+
+    /**
+     * Decode the bytes of a buffer from its position to its limit. The
+     * buffer itself is left as it is.
+     *
+     * @param in The UTF-8 encoded input.
+     */
+    Utf8Reader(final ByteBuffer in) {
+        this.stream = null;
+        this.channel = null;
+        this.channelView = null;
+        if (in.hasArray()) {
+            this.buffer = null;
+            this.bytes = in.array();
+            this.position = in.arrayOffset() + in.position();
+            this.limit = in.arrayOffset() + in.limit();
+            this.exhausted = true;
+        } else {
+            this.buffer = in.duplicate();
+            this.bytes = new byte[Math.min(BUFFER_SIZE,
+                                           Math.max(16, in.remaining()))];
+        }
+        this.byteView = ByteBuffer.wrap(this.bytes);
+    }
+
+    /**
+     * Move the bytes left to the front, and read more after them.
+     *
+     * @return False if the input is exhausted.
+     * @throws IOException If the underlying input fails.
+     */
+    private boolean fill() throws IOException {
+        if (this.exhausted) {
+            return false;
+        }
+        final int rest = this.limit - this.position;
+        System.arraycopy(this.bytes, this.position, this.bytes, 0, rest);
+        this.position = 0;
+        this.limit = rest;
+        final int room = this.bytes.length - rest;
+        int n;
+        if (null != this.stream) {
+            do {
+                n = this.stream.read(this.bytes, rest, room);
+            } while (0 == n);
+        } else if (null != this.channel) {
+            this.channelView.limit(this.bytes.length).position(rest);
+            do {
+                n = this.channel.read(this.channelView);
+            } while (0 == n);
+        } else {
+            n = Math.min(room, this.buffer.remaining());
+            this.buffer.get(this.bytes, rest, n);
+            if (0 == n) {
+                n = -1;
+            }
+        }
+        if (n < 0) {
+            this.exhausted = true;
+            return false;
+        }
+        this.limit += n;
+        return true;
+    }
+
+    /**
+     * Read characters into a portion of an array.
+     *
+     * @param cbuf Destination buffer.
+     * @param off Offset at which to start storing characters.
+     * @param len Maximum number of characters to read.
+     * @return The number of characters read, or {@code -1} at the end.
+     * @throws IOException If the underlying input fails.
+     */
+    @Override
+    public int read(final char[] cbuf, final int off, final int len)
+        throws IOException {
+        if (0 == len) {
+            return 0;
+        }
+        final int end = off + len;
+        int out = off;
+        if (this.pendingLow >= 0) {
+            cbuf[out++] = (char) this.pendingLow;
+            this.pendingLow = -1;
+        }
+        while (out < end) {
+            if (this.position >= this.limit) {
+                if (out > off || !this.fill()) {
+                    break;
+                }
+                continue;
+            }
+            final byte[] in = this.bytes;
+            final int available = this.limit;
+            final int stop = Math.min(available, this.position + end - out);
+            final int prefix = Math.min(stop, this.position + SHORT_RUN);
+            int p = this.position;
+            while (p < prefix && in[p] >= 0) {
+                cbuf[out++] = (char) in[p++];
+            }
+            this.position = p;
+            if (p == prefix && p < stop) {
+                out = this.asciiRun(cbuf, out, stop);
+                p = this.position;
+            }
+            if (out == end || p == available) {
+                continue;
+            }
+            out = this.twoAndThree(cbuf, out, end);
+            p = this.position;
+            if (out == end || p == available || in[p] >= 0) {
+                continue;
+            }
+            final int lead = in[p] & 0xFF;
+            final int length = sequenceLength(lead);
+            if (available - p < length && !this.exhausted) {
+                if (out > off) {
+                    break;
+                }
+                this.fill();
+                continue;
+            }
+            final int codepoint = this.decode(lead, length);
+            if (codepoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                cbuf[out++] = (char) codepoint;
+            } else {
+                cbuf[out++] = Character.highSurrogate(codepoint);
+                if (out < end) {
+                    cbuf[out++] = Character.lowSurrogate(codepoint);
+                } else {
+                    this.pendingLow = Character.lowSurrogate(codepoint);
+                }
+            }
+        }
+        return out == off ? -1 : out - off;
+    }
+
+    /**
+     * Copy a run of ASCII bytes, from {@code position} on, out as
+     * characters, stopping at the first other byte.
+     *
+     * @param cbuf Destination buffer.
+     * @param off Offset at which to start storing characters.
+     * @param stop Index of the byte to stop at, at the latest.
+     * @return The offset after the last character stored.
+     */
+    private int asciiRun(final char[] cbuf, final int off, final int stop) {
+        if (null == this.charView || cbuf != this.charView.array()) {
+            this.charView = CharBuffer.wrap(cbuf);
+        }
+        this.byteView.limit(stop).position(this.position);
+        this.charView.limit(cbuf.length).position(off);
+        this.ascii.decode(this.byteView, this.charView, false);
+        this.position = this.byteView.position();
+        return this.charView.position();
+    }
+
+    /**
+     * Decode a run of well-formed two- and three-byte sequences, from
+     * {@code position} on, stopping at anything else: ASCII, a
+     * four-byte or malformed sequence, or one cut off at the limit.
+     *
+     * @param cbuf Destination buffer.
+     * @param off Offset at which to start storing characters.
+     * @param end Offset at which to stop storing characters.
+     * @return The offset after the last character stored.
+     */
+    private int twoAndThree(final char[] cbuf, final int off,
+                            final int end) {
+        final byte[] in = this.bytes;
+        final int available = this.limit;
+        int p = this.position;
+        int out = off;
+        while (out < end) {
+            final int lead = in[p];
+            if (lead >= -62 && lead < -32 && p + 1 < available) {
+                // 0xC2 to 0xDF
+                final int b1 = in[p + 1];
+                if (b1 >= -64) {
+                    break;
+                }
+                cbuf[out++] = (char) (((lead & 0x1F) << 6) | (b1 & 0x3F));
+                p += 2;
+            } else if (lead >= -32 && lead < -16 && p + 2 < available) {
+                // 0xE0 to 0xEF
+                final int b1 = in[p + 1];
+                final int b2 = in[p + 2];
+                if (b1 >= -64 || b2 >= -64) {
+                    break;
+                }
+                final char c = (char) (((lead & 0x0F) << 12)
+                                       | ((b1 & 0x3F) << 6) | (b2 & 0x3F));
+                if (c < 0x800 || Character.isSurrogate(c)) {
+                    break;
+                }
+                cbuf[out++] = c;
+                p += 3;
+            } else {
+                break;
+            }
+            if (p == available) {
+                break;
+            }
+        }
+        this.position = p;
+        return out;
+    }
+
+    /**
+     * The length of the sequence a lead byte starts.
+     *
+     * @param lead A byte with its high bit set, as unsigned.
+     * @return Two to four, or zero if it cannot start a sequence.
+     */
+    private static int sequenceLength(final int lead) {
+        if (lead < 0xC2) {
+            return 0;
+        } else if (lead < 0xE0) {
+            return 2;
+        } else if (lead < 0xF0) {
+            return 3;
+        } else if (lead < 0xF5) {
+            return 4;
+        }
+        return 0;
+    }
+
+    /**
+     * Decode the multi-byte sequence at {@code position}, consuming it,
+     * or consuming its longest valid prefix if it is malformed.
+     *
+     * @param lead The lead byte, as unsigned.
+     * @param length The sequence length the lead byte announces, or
+     * zero.
+     * @return The code point, or U+FFFD.
+     */
+    private int decode(final int lead, final int length) {
+        final int p = this.position;
+        if (0 == length) {
+            this.position = p + 1;
+            return 0xFFFD;
+        }
+        int lo = 0x80;
+        int hi = 0xBF;
+        if (0xE0 == lead) {
+            lo = 0xA0;
+        } else if (0xF0 == lead) {
+            lo = 0x90;
+        } else if (0xF4 == lead) {
+            hi = 0x8F;
+        }
+        int codepoint = lead & (0xFF >>> (length + 1));
+        final int available = Math.min(length, this.limit - p);
+        int i = 1;
+        for (; i < available; i++) {
+            final int b = this.bytes[p + i] & 0xFF;
+            if (b < lo || b > hi) {
+                break;
+            }
+            codepoint = (codepoint << 6) | (b & 0x3F);
+            lo = 0x80;
+            hi = 0xBF;
+        }
+        this.position = p + i;
+        if (i < length
+            || (3 == length && Character.isSurrogate((char) codepoint))) {
+            // an encoded surrogate is malformed as a whole, as the JDK
+            // decoder has it
+            return 0xFFFD;
+        }
+        return codepoint;
+    }
+
+    /**
+     * Close the underlying stream or channel.
+     *
+     * @throws IOException If closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        this.exhausted = true;
+        this.position = this.limit;
+        if (null != this.stream) {
+            this.stream.close();
+        } else if (null != this.channel) {
+            this.channel.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchReaderTest {
+    @Test
+    public void orderTest() throws InterruptedException {
+        List<Reader> documents = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            documents.add(new StringReader("(doc " + i + ") tail"));
+        }
+        List<BatchReader.Result> results = new BatchReader(LISP)
+            .readAll(documents);
+        assertEquals(500, results.size());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(results.get(i).isSuccess());
+            assertEquals(List.of(List.of("doc", Integer.toString(i)), "tail"),
+                         results.get(i).getForms());
+        }
+    }
+
+    @Test
+    public void failureTest() throws InterruptedException {
+        Reader broken = new Reader() {
+                private boolean first = true;
+
+                @Override
+                public int read(final char[] cbuf, final int off,
+                                final int len) throws IOException {
+                    if (this.first) {
+                        this.first = false;
+                        "ok (partial".getChars(0, 11, cbuf, off);
+                        return 11;
+                    }
+                    throw new IOException("connection reset");
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        List<BatchReader.Result> results = new BatchReader(LISP)
+            .readAll(List.of(new StringReader("a"), broken,
+                             new StringReader("(b)")));
+        assertEquals(List.of("a"), results.get(0).getForms());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("connection reset",
+                     results.get(1).getFailure().getMessage());
+        assertEquals("ok", results.get(1).getForms().get(0));
+        assertNull(results.get(2).getFailure());
+        assertEquals(List.of(List.of("b")), results.get(2).getForms());
+    }
+
+    @Test
+    public void errorTest() throws InterruptedException {
+        ReadTableDefinition failing = LISP.withMacro('!', (reader, table) -> {
+                throw new AssertionError("bad macro");
+            });
+        List<BatchReader.Result> results = new BatchReader(failing)
+            .readAll(List.of(new StringReader("a ! b"),
+                             new StringReader("(c)")));
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getFailure() instanceof AssertionError);
+        assertEquals(List.of("a"), results.get(0).getForms());
+        assertEquals(List.of(List.of("c")), results.get(1).getForms());
+    }
+
+    @Test
+    public void tableReuseTest() throws InterruptedException {
+        Set<AbstractReadTable> tables =
+            Collections.synchronizedSet(Collections.newSetFromMap(
+                new IdentityHashMap<>()));
+        ReadTableDefinition noting = LISP.withMacro('!', (reader, table) -> {
+                tables.add(table);
+                return null;
+            });
+        List<Reader> documents = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            documents.add(new StringReader("! (x " + i + ")"));
+        }
+        // a new thread per task, as with virtual threads
+        List<BatchReader.Result> results =
+            new BatchReader(noting, task -> new Thread(task).start(), 3)
+            .readAll(documents);
+        assertEquals(List.of(List.of("x", "99")), results.get(99).getForms());
+        assertTrue(tables.size() <= 3);
+    }
+
+    @Test
+    public void concurrencyCapTest() throws InterruptedException {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ReadTableDefinition slow = LISP.withMacro('!', (reader, table) -> {
+                peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                active.decrementAndGet();
+                return null;
+            });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Reader> documents = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                documents.add(new StringReader("! x"));
+            }
+            List<BatchReader.Result> results =
+                new BatchReader(slow, executor, 2).readAll(documents);
+            assertTrue(peak.get() <= 2);
+            assertEquals(List.of("x"), results.get(39).getForms());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
\ No newline at end of file
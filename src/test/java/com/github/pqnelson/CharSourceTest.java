@@ -0,0 +1,141 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CharSourceTest {
+    /**
+     * Peeking does not consume, and the end of input is sticky.
+     */
+    @Test
+    public void peekTest() {
+        CharSource source = new CharSource("ab");
+        assertEquals('a', source.peek());
+        assertEquals('a', source.read());
+        assertEquals('b', source.read());
+        assertEquals(-1, source.peek());
+        assertTrue(source.atEnd());
+        assertEquals(-1, source.read());
+    }
+
+    /**
+     * Pushing back works before anything was read, as with
+     * {@code PushbackReader}.
+     */
+    @Test
+    public void unreadAtStartTest() {
+        CharSource source = new CharSource(new StringReader("bc"));
+        source.unread('a');
+        assertFalse(source.atEnd());
+        assertEquals('a', source.read());
+        assertEquals('b', source.read());
+        source.unread('b');
+        assertEquals('b', source.read());
+        assertEquals('c', source.read());
+        assertTrue(source.atEnd());
+    }
+
+    /**
+     * A token longer than the window survives refilling from a reader.
+     */
+    @Test
+    public void longTokenTest() {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            expected.append((char) ('a' + i % 26));
+        }
+        CharSource source = new CharSource(new StringReader(expected + " x"));
+        source.markToken();
+        while (' ' != source.peek()) {
+            source.read();
+        }
+        assertEquals(expected.toString(), source.tokenText());
+        assertEquals(' ', source.read());
+        assertEquals('x', source.read());
+    }
+
+    /**
+     * Reset returns to the mark, even across a refill.
+     */
+    @Test
+    public void markResetTest() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append((char) ('0' + i % 10));
+        }
+        CharSource source = new CharSource(new StringReader(text.toString()));
+        source.read();
+        source.mark(0);
+        for (int i = 0; i < 9000; i++) {
+            source.read();
+        }
+        source.reset();
+        assertEquals('1', source.read());
+    }
+
+    /**
+     * Line, column and offset follow reads, across refills, and a
+     * pushed back newline restores the line.
+     */
+    @Test
+    public void positionTest() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append("ab\n");
+        }
+        CharSource source = new CharSource(new StringReader(text.toString()));
+        assertEquals(1, source.getLine());
+        assertEquals(1, source.getColumn());
+        for (int i = 0; i < 2 * 3000 + 3000 - 1; i++) {
+            source.read();
+        }
+        assertEquals(3000, source.getLine());
+        assertEquals(3, source.getColumn());
+        assertEquals(8999L, source.getOffset());
+        int c = source.read();
+        assertEquals(3001, source.getLine());
+        assertEquals(1, source.getColumn());
+        source.unread(c);
+        assertEquals(3000, source.getLine());
+        assertEquals(3, source.getColumn());
+        assertEquals(8999L, source.getOffset());
+    }
+
+    @Test
+    public void bulkScanTest() {
+        MacroTable bindings = new MacroTable();
+        bindings.put('(', new SingleCharReaderMacro("("));
+        CompiledLexer lexer = new CompiledLexer(bindings);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append(" \n");
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            token.append((char) ('a' + i % 26));
+        }
+        text.append(token).append("(x\u00e9y\u3000z");
+        CharSource source = new CharSource(new StringReader(text.toString()));
+        source.skipWhitespace(lexer);
+        assertEquals(5001, source.getLine());
+        assertEquals(1, source.getColumn());
+        source.markToken();
+        source.scanToken(lexer);
+        assertEquals(token.toString(), source.tokenText());
+        assertEquals('(', source.read());
+        source.markToken();
+        source.scanToken(bindings);
+        assertEquals("x\u00e9y", source.tokenText());
+        assertEquals('\u3000', source.read());
+        source.markToken();
+        source.scanToken(lexer);
+        assertEquals("z", source.tokenText());
+        assertTrue(source.atEnd());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactListsTest {
+    /**
+     * Every size behaves like the list it was built from.
+     */
+    @Test
+    public void listSemanticsTest() {
+        for (int n = 0; n < 9; n++) {
+            List<Object> expected = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                expected.add("e" + i);
+            }
+            Object[] elements = expected.toArray(new Object[n + 3]);
+            List<Object> compact = CompactLists.of(elements, n);
+            assertEquals(expected, compact);
+            assertEquals(compact, expected);
+            assertEquals(expected.hashCode(), compact.hashCode());
+            assertEquals(n, compact.size());
+            assertTrue(compact instanceof RandomAccess);
+            assertThrows(IndexOutOfBoundsException.class,
+                         () -> compact.get(compact.size()));
+            assertThrows(UnsupportedOperationException.class,
+                         () -> compact.add("x"));
+        }
+    }
+
+    /**
+     * Reading produces compact lists when asked to.
+     */
+    @Test
+    public void readTableTest() {
+        ReadTable r = new ReadTable("(a (b c) (d e f g h i))");
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")",
+                                                   ListRepresentation.COMPACT));
+        List<?> form = (List<?>) r.read();
+        assertEquals(List.of("a", List.of("b", "c"),
+                             List.of("d", "e", "f", "g", "h", "i")), form);
+        assertThrows(UnsupportedOperationException.class,
+                     () -> form.remove(0));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CompiledLexerTest {
+    /**
+     * Input exercising every kind of character.
+     */
+    private static final String TEXT =
+        " (defun f (x)\n  '(1 2.5 x) «a b» [v w] ) ; tail\n(unclosed (x";
+
+    /**
+     * A read table with lists, a quote, vectors as a subclass of
+     * {@code AccumulatorReaderMacro}, a non-Latin-1 bracket and a line
+     * counter.
+     *
+     * @param compiled Use a compiled lexer?
+     * @param iterative Read lists iteratively?
+     * @return The read table.
+     */
+    private static ReadTable table(final boolean compiled,
+                                   final boolean iterative) {
+        ReadTable r = new ReadTable(TEXT);
+        r.setCompiledLexer(compiled);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        r.addMacro('\'', new SingleCharReaderMacro("quote") {
+            });
+        r.addMacro(']', new SingleCharReaderMacro("]"));
+        r.addMacro('[', new AccumulatorReaderMacro("]",
+                                                   ListRepresentation.COMPACT) {
+            });
+        r.addMacro('»', new SingleCharReaderMacro("»"));
+        r.addMacro('«', new AccumulatorReaderMacro("»"));
+        r.addMacro('\n', new LineNumberCounter());
+        r.setIterativeLists(iterative);
+        r.setNumericLiterals(true);
+        return r;
+    }
+
+    /**
+     * Read every form.
+     *
+     * @param r The read table.
+     * @return The forms.
+     */
+    private static List<Object> readAll(final ReadTable r) {
+        List<Object> forms = new ArrayList<>();
+        Object form;
+        while (null != (form = r.read())) {
+            forms.add(form);
+        }
+        return forms;
+    }
+
+    @Test
+    public void sameFormsTest() {
+        for (boolean iterative : new boolean[] {false, true}) {
+            ReadTable compiled = table(true, iterative);
+            assertTrue(compiled.isCompiledLexer());
+            List<Object> expected = readAll(table(false, iterative));
+            assertEquals(expected, readAll(compiled));
+            assertEquals(List.of("defun", "f", List.of("x"), "quote",
+                                 List.of(1L, 2.5, "x"), List.of("a", "b"),
+                                 List.of("v", "w")),
+                         expected.get(0));
+        }
+    }
+
+    @Test
+    public void spanTest() {
+        List<String> spans = new ArrayList<>();
+        ReadTable r = table(true, false);
+        r.setSpanListener((form, span) -> spans.add(span.toString()));
+        readAll(r);
+        List<String> expected = new ArrayList<>();
+        ReadTable generic = table(false, false);
+        generic.setSpanListener((form, span) -> expected.add(span.toString()));
+        readAll(generic);
+        assertEquals(expected, spans);
+    }
+
+    @Test
+    public void recompileTest() {
+        ReadTable r = new ReadTable("a;b c");
+        r.setCompiledLexer(true);
+        assertEquals("a;b", r.read());
+        r.addMacro(';', new SingleCharReaderMacro(";"));
+        r.reset("a;b c");
+        assertEquals("a", r.read());
+        assertEquals(";", r.read());
+        r.setCompiledLexer(false);
+        assertFalse(r.isCompiledLexer());
+        assertEquals("b", r.read());
+    }
+
+    @Test
+    public void definitionTest() {
+        ReadTableDefinition lisp = ReadTableDefinition.builder()
+            .addMacro(')', new SingleCharReaderMacro(")"))
+            .addMacro('(', new AccumulatorReaderMacro(")"))
+            .compiledLexer(true)
+            .build();
+        assertTrue(lisp.isCompiledLexer());
+        assertTrue(lisp.withIterativeLists(true).isCompiledLexer());
+        assertFalse(lisp.withCompiledLexer(false).isCompiledLexer());
+        assertEquals(lisp.fingerprint(),
+                     lisp.withCompiledLexer(false).fingerprint());
+        ReadTable r = lisp.newReader("(a (b))");
+        assertTrue(r.isCompiledLexer());
+        assertEquals(List.of("a", List.of("b")), r.read());
+        r.addMacro('[', new AccumulatorReaderMacro("]"));
+        r.addMacro(']', new SingleCharReaderMacro("]"));
+        r.reset("[a]");
+        assertEquals(List.of("a"), r.read());
+        assertEquals("[a]", lisp.newReader("[a]").read());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ConsTest {
+    @Test
+    public void listSemanticsTest() {
+        List<Object> list = Cons.of(new Object[] {"a", "b", "c"}, 3);
+        assertEquals(List.of("a", "b", "c"), list);
+        assertEquals(List.of("a", "b", "c").hashCode(), list.hashCode());
+        assertEquals("b", list.get(1));
+        assertEquals(3, list.size());
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(list));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(UnsupportedOperationException.class,
+                     () -> list.set(0, "z"));
+        assertTrue(Cons.of(new Object[0], 0).isEmpty());
+    }
+
+    @Test
+    public void listIteratorTest() {
+        final int n = 200000;
+        Object[] elements = new Object[n];
+        for (int i = 0; i < n; i++) {
+            elements[i] = i;
+        }
+        List<Object> list = Cons.of(elements, n);
+        // walking the chain for each element would take minutes
+        ListIterator<Object> it = list.listIterator();
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, it.next());
+        }
+        while (it.hasPrevious()) {
+            assertEquals(it.previousIndex(), it.previous());
+        }
+        assertThrows(UnsupportedOperationException.class, () -> it.set(0));
+        List<Object> tail = list.subList(n - 3, n);
+        assertEquals(List.of(n - 3, n - 2, n - 1), tail);
+        assertEquals(List.of(n - 1), new ArrayList<>(list.subList(n - 1, n)));
+        assertThrows(UnsupportedOperationException.class, () -> tail.clear());
+        assertEquals(n - 2, list.listIterator(n - 2).next());
+    }
+
+    @Test
+    public void sharedStructureTest() {
+        Cons tail = new Cons("b", null);
+        Cons list = new Cons("a", tail);
+        assertEquals("a", list.first());
+        assertSame(tail, list.rest());
+        assertTrue(tail.rest().isEmpty());
+    }
+
+    /**
+     * Every way of reading lists produces cons cells when asked to.
+     */
+    @Test
+    public void readersTest() {
+        String text = "(a (b c) ()) d";
+        AccumulatorReaderMacro open =
+            new AccumulatorReaderMacro(")", ListRepresentation.CONS);
+        List<Object> expected = List.of(List.of("a", List.of("b", "c"),
+                                                List.of()), "d");
+        for (boolean iterative : new boolean[] {false, true}) {
+            ReadTable r = new ReadTable(text);
+            r.addMacro(')', new SingleCharReaderMacro(")"));
+            r.addMacro('(', open);
+            r.setIterativeLists(iterative);
+            Object form = r.read();
+            assertTrue(form instanceof Cons);
+            assertEquals(expected.get(0), form);
+            assertEquals("d", r.read());
+        }
+        List<Object> forms = new ArrayList<>();
+        IncrementalReader incremental = new IncrementalReader(forms::add);
+        incremental.addMacro(')', new SingleCharReaderMacro(")"));
+        incremental.addMacro('(', open);
+        incremental.feed(text);
+        incremental.finish();
+        assertTrue(forms.get(0) instanceof Cons);
+        assertEquals(expected, forms);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.github.pqnelson;
+
+/**
+ * Read table setups shared by the tests.
+ */
+final class Fixtures {
+    /**
+     * The usual list syntax: {@code (} opens a list, which {@code )}
+     * closes.
+     */
+    static final ReadTableDefinition LISP = ReadTableDefinition.builder()
+        .addMacro(')', new SingleCharReaderMacro(")"))
+        .addMacro('(', new AccumulatorReaderMacro(")"))
+        .build();
+
+    /**
+     * Not instantiated.
+     */
+    private Fixtures() {
+    }
+}
\ No newline at end of file
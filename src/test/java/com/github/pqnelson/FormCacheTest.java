@@ -0,0 +1,97 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FormCacheTest {
+    /**
+     * The usual list syntax, with numbers.
+     */
+    private static final ReadTableDefinition LISP =
+        Fixtures.LISP.withNumericLiterals(true);
+
+    @Test
+    public void hitAndMissTest(@TempDir final Path dir) throws IOException {
+        Path source = dir.resolve("boot.lisp");
+        Files.writeString(source, "(define x 1) (define y 2.5)\nλ",
+                          StandardCharsets.UTF_8);
+        FormCache cache = new FormCache(LISP);
+        List<Object> expected = List.of(List.of("define", "x", 1L),
+                                        List.of("define", "y", 2.5), "λ");
+        assertEquals(expected, cache.read(source));
+        assertTrue(Files.exists(FormCache.sidecar(source)));
+        assertEquals(expected, cache.read(source));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+
+        // same size and time, different contents
+        FileTime modified = Files.getLastModifiedTime(source);
+        Files.writeString(source, "(define x 3) (define y 2.5)\nλ",
+                          StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(source, modified);
+        assertEquals(List.of("define", "x", 3L), cache.read(source).get(0));
+        assertEquals(2L, cache.getMisses());
+        cache.read(source);
+        assertEquals(2L, cache.getHits());
+    }
+
+    @Test
+    public void definitionChangeTest(@TempDir final Path dir)
+        throws IOException {
+        Path source = dir.resolve("boot.lisp");
+        Files.writeString(source, "(a 1)", StandardCharsets.UTF_8);
+        new FormCache(LISP).read(source);
+        FormCache other = new FormCache(LISP.withNumericLiterals(false));
+        assertEquals(List.of(List.of("a", "1")), other.read(source));
+        assertEquals(1L, other.getMisses());
+    }
+
+    @Test
+    public void customMacroTest(@TempDir final Path dir) throws IOException {
+        Path source = dir.resolve("boot.lisp");
+        Files.writeString(source, "(a #)\n(b)\n", StandardCharsets.UTF_8);
+        LineNumberCounter lines = new LineNumberCounter();
+        ReadTableDefinition custom = ReadTableDefinition.builder()
+            .addMacro(')', new SingleCharReaderMacro(")"))
+            .addMacro('(', new AccumulatorReaderMacro(")"))
+            .addMacro('#', (stream, table) -> Optional.of("opaque"))
+            .addMacro('\n', lines)
+            .build();
+        FormCache cache = new FormCache(custom);
+        List<Object> expected = List.of(List.of("a", Optional.of("opaque")),
+                                        List.of("b"));
+        assertEquals(expected, cache.read(source));
+        assertEquals(expected, cache.read(source));
+        // lexed both times, so the line counter saw every line
+        assertEquals(5, lines.getLine());
+        assertEquals(0L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+        assertFalse(Files.exists(FormCache.sidecar(source)));
+    }
+
+    @Test
+    public void corruptSidecarTest(@TempDir final Path dir) throws IOException {
+        Path source = dir.resolve("boot.lisp");
+        Files.writeString(source, "(a b)", StandardCharsets.UTF_8);
+        FormCache cache = new FormCache(LISP);
+        cache.read(source);
+        byte[] sidecar = Files.readAllBytes(FormCache.sidecar(source));
+        Files.write(FormCache.sidecar(source),
+                    Arrays.copyOf(sidecar, sidecar.length - 2));
+        assertEquals(List.of(List.of("a", "b")), cache.read(source));
+        assertEquals(2L, cache.getMisses());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FormCodecTest {
+    @Test
+    public void roundTripTest() throws IOException {
+        List<Object> forms = List.of(
+            "defun", 0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 2.5, -0.0,
+            new BigInteger("123456789012345678901234567890"),
+            new ArrayList<>(List.of("λ", new ArrayList<>(), "😀")),
+            CompactLists.of(new Object[] {"a", "b", "c"}, 3),
+            Cons.of(new Object[] {"x", 7L}, 2), "defun");
+        List<Object> decoded = FormCodec.decode(
+            ByteBuffer.wrap(FormCodec.encode(forms)));
+        assertEquals(forms, decoded);
+        assertTrue(decoded.get(8) instanceof ArrayList);
+        assertTrue(decoded.get(9) instanceof ImmutableList);
+        assertTrue(decoded.get(10) instanceof Cons);
+        assertSame(decoded.get(0), decoded.get(11));
+    }
+
+    @Test
+    public void emptyListTest() throws IOException {
+        for (ListRepresentation lists : ListRepresentation.values()) {
+            ReadTable r = new ReadTable("()");
+            r.addMacro(')', new SingleCharReaderMacro(")"));
+            r.addMacro('(', new AccumulatorReaderMacro(")", lists));
+            Object read = r.read();
+            Object decoded = FormCodec.decode(ByteBuffer.wrap(
+                FormCodec.encode(List.of(read)))).get(0);
+            assertEquals(read, decoded);
+            assertEquals(read.getClass(), decoded.getClass());
+        }
+    }
+
+    @Test
+    public void deepNestingTest() throws IOException {
+        Object form = "x";
+        for (int i = 0; i < 100000; i++) {
+            form = new ArrayList<>(List.of(form));
+        }
+        List<Object> decoded = FormCodec.decode(
+            ByteBuffer.wrap(FormCodec.encode(List.of(form))));
+        Object inner = decoded.get(0);
+        int depth = 0;
+        while (inner instanceof List) {
+            inner = ((List<?>) inner).get(0);
+            depth++;
+        }
+        assertEquals(100000, depth);
+        assertEquals("x", inner);
+    }
+
+    @Test
+    public void invalidTest() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> FormCodec.encode(List.of(new Object())));
+        byte[] encoded = FormCodec.encode(List.of(List.of("a", "b")));
+        assertThrows(IOException.class, () -> FormCodec.decode(
+            ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))));
+        assertThrows(IOException.class, () -> FormCodec.decode(
+            ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FormIndexTest {
+    /**
+     * Lists, bare atoms, blank lines and multi-byte characters.
+     */
+    private static final String TEXT =
+        "(défun λ (x)\n  (* x x))\n\nfoo 😀 (bar)\n\n(baz\n qux)";
+
+    @Test
+    public void offsetsTest() {
+        FormIndex index = FormIndex.build(TEXT, LISP);
+        assertEquals(5, index.formCount());
+        assertEquals(7, index.lineCount());
+        assertEquals(0L, index.formStart(0));
+        assertEquals(TEXT.indexOf("foo"), index.formStart(1));
+        assertEquals(TEXT.indexOf("(baz"), index.formStart(4));
+        assertEquals(TEXT.substring(0, TEXT.indexOf("(bar"))
+                     .getBytes(StandardCharsets.UTF_8).length,
+                     index.formByteStart(3));
+        assertEquals(TEXT.getBytes(StandardCharsets.UTF_8).length,
+                     index.byteLength());
+        assertEquals(new SourcePosition(TEXT.indexOf("qux"), 7, 2),
+                     index.positionOf(TEXT.indexOf("qux")));
+    }
+
+    @Test
+    public void formAtLineTest() {
+        FormIndex index = FormIndex.build(TEXT, LISP);
+        assertEquals(0, index.formAtLine(1));
+        assertEquals(0, index.formAtLine(2));
+        assertEquals(0, index.formAtLine(3));
+        assertEquals(1, index.formAtLine(4));
+        assertEquals(3, index.formAtLine(5));
+        assertEquals(4, index.formAtLine(7));
+        assertEquals(-1, FormIndex.build("\n\nx", LISP).formAtLine(1));
+    }
+
+    @Test
+    public void openTest() {
+        FormIndex index = FormIndex.build(TEXT, LISP);
+        List<Object> all = LISP.newReader(TEXT).stream()
+            .collect(Collectors.toList());
+        for (int i = 0; i < index.formCount(); i++) {
+            ReadTable table = index.open(TEXT, LISP, i);
+            assertEquals(all.subList(i, all.size()),
+                         table.stream().collect(Collectors.toList()));
+        }
+        ReadTable table = index.open(TEXT, LISP, 4);
+        assertEquals(6, table.getLine());
+        assertEquals(1, table.getColumn());
+        assertEquals((long) TEXT.indexOf("(baz"), table.getOffset());
+    }
+
+    @Test
+    public void fileTest(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("forms.lisp");
+        Files.writeString(file, TEXT, StandardCharsets.UTF_8);
+        FormIndex built = FormIndex.build(file, LISP);
+        built.write(FormIndex.sidecar(file));
+        FormIndex index = FormIndex.read(dir.resolve("forms.lisp.forms"));
+        assertEquals(built.formCount(), index.formCount());
+        assertEquals(Files.size(file), index.byteLength());
+        try (ReadTable table = index.open(file, LISP, 3)) {
+            assertEquals(List.of("bar"), table.read());
+            assertEquals(4, table.getLine());
+        }
+    }
+
+    @Test
+    public void malformedFileTest(@TempDir final Path dir)
+        throws IOException {
+        Path file = dir.resolve("bad.lisp");
+        Files.write(file, new byte[] {'(', 'a', (byte) 0xC3, ')', ' ', 'b'});
+        assertThrows(IOException.class, () -> FormIndex.build(file, LISP));
+    }
+
+    @Test
+    public void staleTest(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("forms.lisp");
+        Files.writeString(file, TEXT, StandardCharsets.UTF_8);
+        FormIndex index = FormIndex.build(file, LISP);
+        Files.writeString(file, "(new) " + TEXT, StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> index.open(file, LISP, 1));
+    }
+
+    @Test
+    public void corruptSidecarTest(@TempDir final Path dir)
+        throws IOException {
+        Path file = dir.resolve("forms.lisp");
+        Files.writeString(file, TEXT, StandardCharsets.UTF_8);
+        Path sidecar = FormIndex.sidecar(file);
+        FormIndex.build(file, LISP).write(sidecar);
+        byte[] good = Files.readAllBytes(sidecar);
+        byte[] counts = good.clone();
+        // the form count, negative, then huge
+        counts[24] = (byte) 0x80;
+        Files.write(sidecar, counts);
+        assertThrows(IOException.class, () -> FormIndex.read(sidecar));
+        counts[24] = 0x7F;
+        Files.write(sidecar, counts);
+        assertThrows(IOException.class, () -> FormIndex.read(sidecar));
+        Files.write(sidecar, Arrays.copyOf(good, good.length - 1));
+        assertThrows(IOException.class, () -> FormIndex.read(sidecar));
+        byte[] offsets = good.clone();
+        // the byte offset of the first form
+        offsets[40] = (byte) 0x80;
+        Files.write(sidecar, offsets);
+        assertThrows(IOException.class, () -> FormIndex.read(sidecar));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FormPublisherTest {
+    /**
+     * Runs each task at once, on the calling thread.
+     */
+    private static final Executor DIRECT = Runnable::run;
+
+    /**
+     * Records every signal, and requests only when told to.
+     */
+    private static class Recorder implements Flow.Subscriber<Object> {
+        final List<Object> forms = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Flow.Subscription subscription;
+        long initial;
+        boolean completed = false;
+        Throwable error = null;
+
+        Recorder(final long initialRequest) {
+            this.initial = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription s) {
+            this.subscription = s;
+            if (this.initial > 0) {
+                s.request(this.initial);
+            }
+        }
+
+        @Override
+        public void onNext(final Object form) {
+            this.forms.add(form);
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            this.error = e;
+            this.done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+            this.done.countDown();
+        }
+    }
+
+    @Test
+    public void demandTest() {
+        ReadTable table = LISP.newReader("a b c d e f g");
+        Recorder recorder = new Recorder(2);
+        new FormPublisher(table, DIRECT, 0).subscribe(recorder);
+        assertEquals(List.of("a", "b"), recorder.forms);
+        // nothing was read ahead
+        assertEquals("c", table.read());
+        recorder.subscription.request(1);
+        assertEquals(List.of("a", "b", "d"), recorder.forms);
+        assertFalse(recorder.completed);
+    }
+
+    @Test
+    public void prefetchTest() {
+        ReadTable table = LISP.newReader("a b c d e f g");
+        Recorder recorder = new Recorder(1);
+        new FormPublisher(table, DIRECT, 3).subscribe(recorder);
+        assertEquals(List.of("a"), recorder.forms);
+        // b, c and d were read ahead, and are delivered in order
+        assertEquals("e", table.read());
+        recorder.subscription.request(4);
+        assertEquals(List.of("a", "b", "c", "d", "f"), recorder.forms);
+    }
+
+    @Test
+    public void completeTest() throws InterruptedException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("(form ").append(i).append(") ");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Recorder recorder = new Recorder(Long.MAX_VALUE);
+            new FormPublisher(LISP.newReader(text.toString()),
+                              pool, 16).subscribe(recorder);
+            assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+            assertTrue(recorder.completed);
+            assertNull(recorder.error);
+            assertEquals(10000, recorder.forms.size());
+            assertEquals(List.of("form", "9999"), recorder.forms.get(9999));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelTest() {
+        final boolean[] closed = {false};
+        Reader input = new StringReader("a b c d e") {
+                @Override
+                public void close() {
+                    closed[0] = true;
+                    super.close();
+                }
+            };
+        Recorder recorder = new Recorder(2) {
+                @Override
+                public void onNext(final Object form) {
+                    super.onNext(form);
+                    this.subscription.cancel();
+                }
+            };
+        new FormPublisher(LISP.newReader(input), DIRECT, 4).subscribe(recorder);
+        assertEquals(List.of("a"), recorder.forms);
+        assertTrue(closed[0]);
+        recorder.subscription.request(10);
+        assertEquals(List.of("a"), recorder.forms);
+        assertFalse(recorder.completed);
+        assertNull(recorder.error);
+    }
+
+    @Test
+    public void inputErrorTest() {
+        Reader broken = new Reader() {
+                private boolean first = true;
+
+                @Override
+                public int read(final char[] cbuf, final int off,
+                                final int len) throws IOException {
+                    if (this.first) {
+                        this.first = false;
+                        "ok (partial".getChars(0, 11, cbuf, off);
+                        return 11;
+                    }
+                    throw new IOException("connection reset");
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        new FormPublisher(LISP.newReader(broken), DIRECT, 0)
+            .subscribe(recorder);
+        assertEquals("ok", recorder.forms.get(0));
+        assertFalse(recorder.completed);
+        assertTrue(recorder.error instanceof IOException);
+    }
+
+    @Test
+    public void badRequestTest() {
+        Recorder recorder = new Recorder(0);
+        new FormPublisher(LISP.newReader("a b"), DIRECT, 0)
+            .subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertTrue(recorder.forms.isEmpty());
+    }
+
+    @Test
+    public void oneSubscriberTest() {
+        FormPublisher publisher =
+            new FormPublisher(LISP.newReader("a"), DIRECT, 0);
+        Recorder first = new Recorder(5);
+        Recorder second = new Recorder(5);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        assertTrue(first.completed);
+        assertEquals(List.of("a"), first.forms);
+        assertTrue(second.error instanceof IllegalStateException);
+        assertThrows(IllegalArgumentException.class,
+                     () -> new FormPublisher(LISP.newReader(""), DIRECT,
+                                             -1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class HashConsTableTest {
+    /**
+     * A read table sharing lists through a hash-consing table.
+     *
+     * @param text The input.
+     * @param lists The table.
+     * @param iterative Read collections iteratively?
+     * @return The read table.
+     */
+    private static ReadTable table(final String text, final HashConsTable lists,
+                                   final boolean iterative) {
+        ReadTable r = new ReadTable(text);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        r.setIterativeLists(iterative);
+        r.setHashConsing(lists);
+        return r;
+    }
+
+    @Test
+    public void sharedSubtreesTest() {
+        for (boolean iterative : new boolean[] {false, true}) {
+            HashConsTable lists = new HashConsTable(64);
+            ReadTable r = table("(x (type int) (a (type int))) (a (type int))",
+                                lists, iterative);
+            List<?> first = (List<?>) r.read();
+            List<?> second = (List<?>) r.read();
+            assertEquals(List.of("x", List.of("type", "int"),
+                                 List.of("a", List.of("type", "int"))), first);
+            assertSame(first.get(1), ((List<?>) first.get(2)).get(1));
+            assertSame(first.get(2), second);
+            assertThrows(UnsupportedOperationException.class,
+                         () -> second.clear());
+            assertEquals(3L, lists.getHits());
+            assertEquals(3L, lists.getMisses());
+        }
+    }
+
+    @Test
+    public void distinctListsTest() {
+        HashConsTable lists = new HashConsTable(64);
+        ReadTable r = table("(a b) (a c) (a (b)) (a (c))", lists, false);
+        List<Object> forms = new ArrayList<>();
+        r.stream().forEach(forms::add);
+        assertEquals(List.of(List.of("a", "b"), List.of("a", "c"),
+                             List.of("a", List.of("b")),
+                             List.of("a", List.of("c"))), forms);
+        assertEquals(0L, lists.getHits());
+    }
+
+    @Test
+    public void representationsTest() {
+        for (boolean iterative : new boolean[] {false, true}) {
+            HashConsTable lists = new HashConsTable(64);
+            ReadTable r = table("(a b) [a b] (a b) [a b]", lists, iterative);
+            r.addMacro(']', new SingleCharReaderMacro("]"));
+            r.addMacro('[', new AccumulatorReaderMacro(
+                "]", ListRepresentation.CONS));
+            Object list = r.read();
+            Object cons = r.read();
+            assertTrue(cons instanceof Cons);
+            assertFalse(list instanceof Cons);
+            assertSame(list, r.read());
+            assertSame(cons, r.read());
+        }
+    }
+
+    @Test
+    public void boundedTest() {
+        HashConsTable lists = new HashConsTable(4);
+        assertEquals(4, lists.capacity());
+        List<Object> first = lists.intern(new ArrayList<>(List.of("0")));
+        for (int i = 1; i < 100; i++) {
+            lists.intern(new ArrayList<>(List.of("" + i)));
+        }
+        assertNotSame(first, lists.intern(new ArrayList<>(List.of("0"))));
+    }
+}
\ No newline at end of file
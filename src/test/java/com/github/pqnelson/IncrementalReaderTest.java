@@ -0,0 +1,138 @@
+package com.github.pqnelson;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class IncrementalReaderTest {
+    /**
+     * Some input with nesting, multi-byte characters and newlines.
+     */
+    private static final String TEXT =
+        "(defun f (x) (λ x))\n  café (a (b (c) d) e) naïve\n(end";
+
+    /**
+     * What {@code ReadTable} reads from {@code TEXT}.
+     *
+     * @return The forms read.
+     */
+    private static List<Object> expected() {
+        ReadTable r = new ReadTable(TEXT);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        return r.stream().collect(Collectors.toList());
+    }
+
+    /**
+     * An incremental reader collecting forms into a list.
+     *
+     * @param forms Where the forms go.
+     * @return The reader with lists bound.
+     */
+    private static IncrementalReader reader(final List<Object> forms) {
+        IncrementalReader r = new IncrementalReader(forms::add);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        return r;
+    }
+
+    /**
+     * Feeding one character at a time gives what a pull reader reads.
+     */
+    @Test
+    public void charByCharTest() {
+        List<Object> forms = new ArrayList<>();
+        IncrementalReader r = reader(forms);
+        for (int i = 0; i < TEXT.length(); i++) {
+            r.feed(TEXT.subSequence(i, i + 1));
+        }
+        assertEquals(4, forms.size());
+        assertEquals(expected().get(4), r.finish());
+        assertEquals(expected().subList(0, 4), forms);
+    }
+
+    /**
+     * Feeding one byte at a time splits every multi-byte sequence.
+     */
+    @Test
+    public void byteByByteTest() {
+        List<Object> forms = new ArrayList<>();
+        IncrementalReader r = reader(forms);
+        for (byte b : TEXT.getBytes(StandardCharsets.UTF_8)) {
+            r.feed(ByteBuffer.wrap(new byte[] {b}));
+        }
+        assertEquals(expected().get(4), r.finish());
+        assertEquals(expected().subList(0, 4), forms);
+    }
+
+    /**
+     * A form cut short by the end of the input is returned by
+     * {@code finish()}, not passed on as if it were complete.
+     */
+    @Test
+    public void unterminatedTest() {
+        List<Object> forms = new ArrayList<>();
+        IncrementalReader r = reader(forms);
+        r.feed("x (");
+        assertEquals(List.of(), r.finish());
+        assertEquals(List.of("x"), forms);
+        assertEquals(0, r.getDepth());
+        r.feed("(a (b c");
+        assertEquals(List.of("a", List.of("b", "c")), r.finish());
+        r.feed("y");
+        assertNull(r.finish());
+        assertEquals(List.of("x", "y"), forms);
+    }
+
+    /**
+     * Reader macros which might read forms cannot be served.
+     */
+    @Test
+    public void formReadingMacroTest() {
+        IncrementalReader r = reader(new ArrayList<>());
+        assertThrows(IllegalArgumentException.class,
+                     () -> r.addMacro('\'', (stream, table) -> table.read()));
+        ReadTableDefinition quoting = ReadTableDefinition.builder()
+            .addMacro('\'', (stream, table) -> table.read())
+            .build();
+        assertThrows(IllegalArgumentException.class,
+                     () -> new IncrementalReader(quoting, form -> { }));
+    }
+
+    /**
+     * Forms are delivered as soon as they are complete.
+     */
+    @Test
+    public void partialFormTest() {
+        List<Object> forms = new ArrayList<>();
+        IncrementalReader r = reader(forms);
+        r.feed("(a (b");
+        assertEquals(2, r.getDepth());
+        assertEquals(List.of(), forms);
+        r.feed(") c) d");
+        assertEquals(List.of(List.of("a", List.of("b"), "c")), forms);
+        r.feed(" ");
+        assertEquals("d", forms.get(1));
+    }
+
+    /**
+     * Side-effecting reader macros are still called.
+     */
+    @Test
+    public void lineNumberTest() {
+        IncrementalReader r = reader(new ArrayList<>());
+        LineNumberCounter counter = new LineNumberCounter();
+        r.addMacro('\n', counter);
+        r.feed(TEXT);
+        r.finish();
+        assertEquals(3, counter.getLine());
+    }
+}
\ No newline at end of file
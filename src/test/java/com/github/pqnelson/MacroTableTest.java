@@ -0,0 +1,51 @@
+package com.github.pqnelson;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class MacroTableTest {
+    /**
+     * Unbound code points, including end-of-input, have no macro.
+     */
+    @Test
+    public void unboundTest() {
+        MacroTable table = new MacroTable();
+        assertNull(table.get('('));
+        assertNull(table.get(0x3008));
+        assertNull(table.get(-1));
+    }
+
+    /**
+     * Bindings in the dense Latin-1 range are found and overwritten.
+     */
+    @Test
+    public void denseBindingTest() {
+        MacroTable table = new MacroTable();
+        ReaderMacro open = new AccumulatorReaderMacro(")");
+        ReaderMacro close = new SingleCharReaderMacro(")");
+        table.put('(', open);
+        assertSame(open, table.get('('));
+        table.put('(', close);
+        assertSame(close, table.get('('));
+        assertNull(table.get(')'));
+    }
+
+    /**
+     * Many bindings outside Latin-1 survive the sparse table growing.
+     */
+    @Test
+    public void sparseBindingTest() {
+        MacroTable table = new MacroTable();
+        ReaderMacro[] macros = new ReaderMacro[100];
+        for (int i = 0; i < macros.length; i++) {
+            macros[i] = new SingleCharReaderMacro("" + i);
+            table.put(0x3000 + 7 * i, macros[i]);
+        }
+        for (int i = 0; i < macros.length; i++) {
+            assertSame(macros[i], table.get(0x3000 + 7 * i));
+        }
+        assertNull(table.get(0x3001));
+    }
+}
\ No newline at end of file
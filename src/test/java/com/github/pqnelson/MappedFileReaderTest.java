@@ -0,0 +1,76 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFileReaderTest {
+    /**
+     * Text with one-, two-, three- and four-byte UTF-8 sequences.
+     */
+    private static final String TEXT =
+        "(a éé λ€ 😀 b)\n".repeat(50);
+
+    /**
+     * Decode everything with reads of the given size.
+     *
+     * @param reader The reader to drain.
+     * @param chunk The most characters asked for per read.
+     * @return Everything read.
+     */
+    private static String drain(final MappedFileReader reader,
+                                final int chunk) throws IOException {
+        StringBuilder out = new StringBuilder();
+        char[] buf = new char[chunk];
+        int n;
+        while (-1 != (n = reader.read(buf, 0, chunk))) {
+            out.append(buf, 0, n);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Multi-byte sequences straddling segment boundaries decode intact.
+     */
+    @Test
+    public void segmentBoundaryTest(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("text.lisp");
+        Files.writeString(file, TEXT, StandardCharsets.UTF_8);
+        for (long segment = 1; segment < 12; segment++) {
+            try (MappedFileReader reader = new MappedFileReader(file, segment)) {
+                assertEquals(TEXT, drain(reader, 64));
+            }
+        }
+    }
+
+    /**
+     * One character at a time still delivers both halves of a
+     * surrogate pair.
+     */
+    @Test
+    public void singleCharReadTest(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("text.lisp");
+        Files.writeString(file, TEXT, StandardCharsets.UTF_8);
+        try (MappedFileReader reader = new MappedFileReader(file, 5)) {
+            assertEquals(TEXT, drain(reader, 1));
+        }
+    }
+
+    /**
+     * An empty file is immediately at its end.
+     */
+    @Test
+    public void emptyFileTest(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("empty.lisp");
+        Files.createFile(file);
+        try (MappedFileReader reader = new MappedFileReader(file)) {
+            assertEquals(-1, reader.read());
+        }
+    }
+}
\ No newline at end of file
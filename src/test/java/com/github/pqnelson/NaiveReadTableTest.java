@@ -63,4 +63,18 @@ public class NaiveReadTableTest {
         assertEquals(expected, r.read());
         assertTrue(r.isFinished());
     }
+
+    @Test
+    public void skipTest() {
+        NaiveReadTable r = new NaiveReadTable("  foo bar");
+        FormStats stats = new FormStats();
+        assertTrue(r.skip(stats));
+        assertEquals(2L, stats.getStart());
+        assertEquals(5L, stats.getEnd());
+        assertTrue(r.skip(stats));
+        assertEquals(6L, stats.getStart());
+        assertEquals(9L, stats.getEnd());
+        assertEquals(1L, stats.getAtoms());
+        assertFalse(r.skip(stats));
+    }
 }
\ No newline at end of file
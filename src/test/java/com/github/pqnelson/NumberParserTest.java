@@ -0,0 +1,67 @@
+package com.github.pqnelson;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class NumberParserTest {
+    /**
+     * Parse a whole string.
+     *
+     * @param parser The parser.
+     * @param text The token.
+     * @return The kind of number.
+     */
+    private static int parse(final NumberParser parser, final String text) {
+        return parser.parse(text.toCharArray(), 0, text.length());
+    }
+
+    @Test
+    public void integerTest() {
+        NumberParser parser = new NumberParser();
+        for (String text : new String[] {"0", "-0", "+7", "42", "-1234567",
+                                         "999999999999999999",
+                                         "9223372036854775807",
+                                         "-9223372036854775808",
+                                         "000000000000000000000012"}) {
+            assertEquals(NumberParser.LONG, parse(parser, text), text);
+            assertEquals(Long.parseLong(text), parser.getLong(), text);
+        }
+        assertEquals(NumberParser.BIG, parse(parser, "9223372036854775808"));
+        assertEquals(new BigInteger("9223372036854775808"),
+                     parser.box(NumberParser.BIG));
+    }
+
+    @Test
+    public void doubleTest() {
+        NumberParser parser = new NumberParser();
+        for (String text : new String[] {"1.5", "-.5", "3.", "6.02e23",
+                                         "1E-5", "-2.5e+3", "0.1", "0.3",
+                                         "123456789.123456789",
+                                         "1.7976931348623157e308",
+                                         "4.9e-324", "1e400",
+                                         "0.000000000000000000000000001"}) {
+            assertEquals(NumberParser.DOUBLE, parse(parser, text), text);
+            assertEquals(Double.parseDouble(text), parser.getDouble(), text);
+        }
+    }
+
+    @Test
+    public void notNumberTest() {
+        NumberParser parser = new NumberParser();
+        for (String text : new String[] {"", "-", "+", ".", "e5", "1e",
+                                         "1e+", "1.2.3", "12a", "0x10",
+                                         "1d", "NaN", "--1"}) {
+            assertEquals(NumberParser.NONE, parse(parser, text), text);
+        }
+    }
+
+    @Test
+    public void cacheTest() {
+        assertSame(NumberParser.box(1000L), NumberParser.box(1000L));
+        assertEquals(Long.valueOf(5000L), NumberParser.box(5000L));
+    }
+}
\ No newline at end of file
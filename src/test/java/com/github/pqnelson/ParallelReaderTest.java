@@ -0,0 +1,137 @@
+package com.github.pqnelson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelReaderTest {
+    /**
+     * Bind lists in parentheses, and "{ ... end" blocks.
+     *
+     * @return The reader macro bindings.
+     */
+    private static MacroTable bindings() {
+        MacroTable macros = new MacroTable();
+        macros.put(')', new SingleCharReaderMacro(")"));
+        macros.put('(', new AccumulatorReaderMacro(")"));
+        macros.put('{', new AccumulatorReaderMacro("end"));
+        return macros;
+    }
+
+    /**
+     * The scanner reports where each top-level form starts.
+     */
+    @Test
+    public void formStartsTest() {
+        String text = "foo (a (b) c)\n{x end (y)bar  {end";
+        List<Long> starts = new ArrayList<>();
+        FormBoundaryScanner scanner = new FormBoundaryScanner(bindings());
+        scanner.scan(text, starts::add);
+        assertEquals(List.of(0L, 4L, 14L, 21L, 24L, 29L), starts);
+        assertEquals(0, scanner.getDepth());
+    }
+
+    /**
+     * The scanner counts UTF-8 bytes as it goes, so a form start can be
+     * found in the encoded text.
+     */
+    @Test
+    public void byteOffsetsTest() {
+        String text = "(é λ) 😀 (x)";
+        List<Long> starts = new ArrayList<>();
+        FormBoundaryScanner scanner = new FormBoundaryScanner(bindings());
+        scanner.scan(text, offset -> starts.add(scanner.getByteOffset()));
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(List.of(0L, 8L, 13L), starts);
+        assertEquals((byte) '(', bytes[13]);
+        assertTrue(scanner.isByteExact(bytes.length));
+    }
+
+    /**
+     * The scanner classifies bindings as the compiled lexer does: a
+     * subclass of a built-in reader macro is an unknown macro to both.
+     */
+    @Test
+    public void sameClassificationTest() {
+        MacroTable macros = bindings();
+        macros.put('[', new AccumulatorReaderMacro("]") {
+            });
+        CompiledLexer lexer = new CompiledLexer(macros);
+        assertEquals(CompiledLexer.OPEN, lexer.kind('('));
+        assertEquals(CompiledLexer.CUSTOM, lexer.kind('['));
+        List<Long> starts = new ArrayList<>();
+        FormBoundaryScanner scanner = new FormBoundaryScanner(macros);
+        scanner.scan("[a] (b)", starts::add);
+        assertEquals(List.of(1L, 4L), starts);
+        assertEquals(0, scanner.getDepth());
+    }
+
+    /**
+     * Reading in parallel gives the same forms as reading sequentially.
+     */
+    @Test
+    public void matchesSequentialTest() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            text.append("(form ").append(i).append(" (nested {x ")
+                .append(i % 7).append(" end))\n");
+        }
+        ReadTable sequential = new ReadTable(text.toString());
+        sequential.addMacro(')', new SingleCharReaderMacro(")"));
+        sequential.addMacro('(', new AccumulatorReaderMacro(")"));
+        sequential.addMacro('{', new AccumulatorReaderMacro("end"));
+        List<Object> expected = sequential.stream().collect(Collectors.toList());
+
+        ParallelReader parallel = new ParallelReader(new ForkJoinPool(4));
+        parallel.addMacro(')', new SingleCharReaderMacro(")"));
+        parallel.addMacro('(', new AccumulatorReaderMacro(")"));
+        parallel.addMacro('{', new AccumulatorReaderMacro("end"));
+        assertEquals(40000, expected.size());
+        assertEquals(expected, parallel.readAll(text));
+    }
+
+    /**
+     * A file is cut at byte offsets, which must land between forms
+     * however many multi-byte characters come before them; malformed
+     * input is read in one piece.
+     */
+    @Test
+    public void fileTest(@TempDir final Path dir) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append("(λ ").append(i).append(" {naïve \uD83D\uDE00 ")
+                .append(i % 7).append(" end))\n");
+        }
+        ReadTable sequential = new ReadTable(text.toString());
+        sequential.addMacro(')', new SingleCharReaderMacro(")"));
+        sequential.addMacro('(', new AccumulatorReaderMacro(")"));
+        sequential.addMacro('{', new AccumulatorReaderMacro("end"));
+        List<Object> expected = sequential.stream().collect(Collectors.toList());
+
+        ParallelReader parallel = new ParallelReader(new ForkJoinPool(4));
+        parallel.addMacro(')', new SingleCharReaderMacro(")"));
+        parallel.addMacro('(', new AccumulatorReaderMacro(")"));
+        parallel.addMacro('{', new AccumulatorReaderMacro("end"));
+        Path file = dir.resolve("forms.lisp");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        assertEquals(expected, parallel.readAll(file));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[10] = (byte) 0xFF;
+        Files.write(file, bytes);
+        List<Object> forms = parallel.readAll(file);
+        assertEquals(expected.size(), forms.size());
+        assertEquals(expected.get(19999), forms.get(19999));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.github.pqnelson;
+
+import java.util.List;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ReadTableDefinitionTest {
+    /**
+     * Readers created from one definition read independently.
+     */
+    @Test
+    public void sharedDefinitionTest() {
+        ReadTable first = LISP.newReader("(a b) c");
+        ReadTable second = LISP.newReader("(d)");
+        assertEquals(List.of("a", "b"), first.read());
+        assertEquals(List.of("d"), second.read());
+        assertEquals("c", first.read());
+        assertTrue(second.isFinished());
+    }
+
+    /**
+     * Deriving a definition, or adding a macro to one of its readers,
+     * leaves the original definition alone.
+     */
+    @Test
+    public void copyOnWriteTest() {
+        ReadTableDefinition brackets = LISP
+            .withMacro(']', new SingleCharReaderMacro("]"))
+            .withMacro('[', new AccumulatorReaderMacro("]"));
+        assertEquals(List.of("x", List.of("y")),
+                     brackets.newReader("[x (y)]").read());
+        assertEquals("[x", LISP.newReader("[x (y)]").read());
+
+        ReadTable r = LISP.newReader("{a}");
+        r.addMacro('{', new AccumulatorReaderMacro("}"));
+        r.addMacro('}', new SingleCharReaderMacro("}"));
+        assertEquals(List.of("a"), r.read());
+        assertEquals("{a}", LISP.newReader("{a}").read());
+    }
+
+    /**
+     * Options carry over to the readers.
+     */
+    @Test
+    public void iterativeOptionTest() {
+        ReadTableDefinition iterative = LISP.withIterativeLists(true);
+        assertTrue(iterative.isIterativeLists());
+        assertFalse(LISP.isIterativeLists());
+        String deep = "(".repeat(50000) + ")".repeat(50000);
+        assertTrue(iterative.newReader(deep).read() instanceof List);
+    }
+
+    /**
+     * A builder cannot be reused to change a definition.
+     */
+    @Test
+    public void builderSealedTest() {
+        ReadTableDefinition.Builder builder = ReadTableDefinition.builder();
+        builder.build();
+        assertThrows(IllegalStateException.class,
+                     () -> builder.addMacro('(',
+                                            new AccumulatorReaderMacro(")")));
+    }
+}
\ No newline at end of file
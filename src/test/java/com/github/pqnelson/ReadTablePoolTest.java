@@ -0,0 +1,67 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class ReadTablePoolTest {
+    @Test
+    public void reuseTest() {
+        ReadTablePool pool = new ReadTablePool(LISP);
+        assertEquals(List.of("a", List.of("b")), pool.read("(a (b))"));
+        assertEquals("x", pool.read("x y"));
+        assertNull(pool.read("  "));
+        List<Object> forms = new ArrayList<>();
+        pool.readAll("p (q) r", forms::add);
+        assertEquals(List.of("p", List.of("q"), "r"), forms);
+        assertEquals(4L, pool.getAcquisitions());
+        assertEquals(1L, pool.getCreated());
+        assertEquals(0L, pool.getOverflows());
+    }
+
+    @Test
+    public void nestedAcquireTest() {
+        ReadTablePool pool = new ReadTablePool(LISP);
+        ReadTable outer = pool.acquire("(outer)");
+        ReadTable inner = pool.acquire("(inner)");
+        assertNotSame(outer, inner);
+        assertEquals(List.of("inner"), inner.read());
+        assertEquals(List.of("outer"), outer.read());
+        pool.release(inner);
+        pool.release(outer);
+        assertSame(outer, pool.acquire("again"));
+        assertEquals(2L, pool.getCreated());
+        assertEquals(1L, pool.getOverflows());
+    }
+
+    @Test
+    public void threadConfinedTest() throws Exception {
+        ReadTablePool pool = new ReadTablePool(LISP);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String snippet = "(n " + i + ")";
+                results.add(executor.submit(() -> pool.read(snippet)));
+            }
+            for (int i = 0; i < 200; i++) {
+                assertEquals(List.of("n", Integer.toString(i)),
+                             results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(200L, pool.getAcquisitions());
+        assertEquals(0L, pool.getOverflows());
+    }
+}
\ No newline at end of file
@@ -1,12 +1,23 @@
 package com.github.pqnelson;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ReadTableTest {
     /**
@@ -100,4 +111,251 @@ public class ReadTableTest {
         expected.add("spam");
         assertEquals(expected, r.read());
     }
+
+    @Test
+    public void mappedFileTest(@TempDir final Path dir) throws IOException {
+        Path file = dir.resolve("data.lisp");
+        Files.writeString(file, "(caf\u00e9 (\u03bb x))\n  na\u00efve",
+                          StandardCharsets.UTF_8);
+        try (ReadTable r = ReadTable.fromPath(file)) {
+            r.addMacro(')', new SingleCharReaderMacro(")"));
+            r.addMacro('(', new AccumulatorReaderMacro(")"));
+            List<Object> expected = List.of("caf\u00e9", List.of("\u03bb", "x"));
+            assertEquals(expected, r.read());
+            assertEquals("na\u00efve", r.read());
+            assertTrue(r.isFinished());
+        }
+    }
+
+    @Test
+    public void streamShortCircuitTest() {
+        ReadTable r = new ReadTable("alpha (beta gamma) delta epsilon");
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        Object expected = List.of("beta", "gamma");
+        assertEquals(expected, r.stream().filter(f -> f instanceof List)
+                                 .findFirst().get());
+        assertEquals("delta", r.read());
+    }
+
+    @Test
+    public void parallelStreamOrderTest() {
+        String text = IntStream.range(0, 5000).mapToObj(i -> "(x " + i + ")")
+            .collect(Collectors.joining(" "));
+        ReadTable r = new ReadTable(text);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        List<Object> expected = IntStream.range(0, 5000)
+            .mapToObj(i -> List.of("x", "" + i))
+            .collect(Collectors.toList());
+        assertEquals(expected, r.stream().parallel().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void iterativeMatchesRecursiveTest() {
+        String text = "(foo (eggs (scrambed (stuff) suggests) but) and spam) bar (()) (open";
+        ReadTable recursive = new ReadTable(text);
+        recursive.addMacro(')', new SingleCharReaderMacro(")"));
+        recursive.addMacro('(', new AccumulatorReaderMacro(")"));
+        ReadTable iterative = new ReadTable(text);
+        iterative.addMacro(')', new SingleCharReaderMacro(")"));
+        iterative.addMacro('(', new AccumulatorReaderMacro(")"));
+        iterative.setIterativeLists(true);
+        assertEquals(recursive.stream().collect(Collectors.toList()),
+                     iterative.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void iterativeDeepNestingTest() {
+        final int depth = 100000;
+        String text = "(".repeat(depth) + "x" + ")".repeat(depth) + " y";
+        ReadTable r = new ReadTable(text);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        r.setIterativeLists(true);
+        Object form = r.read();
+        int levels = 0;
+        while (form instanceof List) {
+            form = ((List<?>) form).get(0);
+            levels++;
+        }
+        assertEquals(depth, levels);
+        assertEquals("x", form);
+        assertEquals("y", r.read());
+    }
+
+    @Test
+    public void iterativeCallsSubclassTest() {
+        String text = "(a [b c] (d [e]))";
+        for (boolean compiled : new boolean[] {false, true}) {
+            List<Object> forms = new ArrayList<>();
+            for (boolean iterative : new boolean[] {false, true}) {
+                ReadTable r = new ReadTable(text);
+                r.addMacro(')', new SingleCharReaderMacro(")"));
+                r.addMacro('(', new AccumulatorReaderMacro(")"));
+                r.addMacro(']', new SingleCharReaderMacro("]"));
+                r.addMacro('[', new AccumulatorReaderMacro("]") {
+                        @Override
+                        public Object apply(final Reader stream,
+                                            final AbstractReadTable table) {
+                            return List.of("vector", super.apply(stream,
+                                                                 table));
+                        }
+                    });
+                r.setCompiledLexer(compiled);
+                r.setIterativeLists(iterative);
+                forms.add(r.read());
+            }
+            assertEquals(List.of("a", List.of("vector", List.of("b", "c")),
+                                 List.of("d", List.of("vector",
+                                                      List.of("e")))),
+                         forms.get(0));
+            assertEquals(forms.get(0), forms.get(1));
+        }
+    }
+
+    @Test
+    public void skipCallsSubclassTest() {
+        List<String> calls = new ArrayList<>();
+        ReadTable r = new ReadTable("(a (b)) c");
+        r.addMacro(')', new SingleCharReaderMacro(")") {
+                @Override
+                public Object apply(final Reader stream,
+                                    final AbstractReadTable table) {
+                    calls.add(")");
+                    return super.apply(stream, table);
+                }
+            });
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        FormStats stats = new FormStats();
+        assertTrue(r.skip(stats));
+        assertEquals(List.of(")", ")"), calls);
+        assertEquals(2L, stats.getLists());
+        assertTrue(r.skip(stats));
+        assertFalse(r.skip(stats));
+    }
+
+    @Test
+    public void spanListenerTest() {
+        String text = "foo\n  (bar\n baz) ( )\nqux";
+        List<String> spans = new ArrayList<>();
+        for (boolean iterative : new boolean[] {false, true}) {
+            spans.clear();
+            ReadTable r = new ReadTable(text);
+            r.addMacro(')', new SingleCharReaderMacro(")"));
+            r.addMacro('(', new AccumulatorReaderMacro(")"));
+            r.setIterativeLists(iterative);
+            r.setSpanListener((form, span) -> spans.add(span.toString()));
+            assertEquals(4, r.stream().count());
+            assertEquals(List.of("1:1-1:4", "2:3-3:6", "3:7-3:10", "4:1-4:4"),
+                         spans);
+        }
+    }
+
+    @Test
+    public void positionTest() {
+        ReadTable r = new ReadTable("a\nbc d");
+        assertEquals("a", r.read());
+        assertEquals(new SourcePosition(1L, 1, 2), r.position());
+        assertEquals("bc", r.read());
+        assertEquals(2, r.getLine());
+        assertEquals(3, r.getColumn());
+        assertEquals(4L, r.getOffset());
+    }
+
+    @Test
+    public void resetTest() {
+        ReadTable r = new ReadTable("(a (b c");
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        r.setIterativeLists(true);
+        assertEquals(List.of("a", List.of("b", "c")), r.read());
+        r.reset("x\n(y z)");
+        assertEquals("x", r.read());
+        assertEquals(List.of("y", "z"), r.read());
+        assertEquals(2, r.getLine());
+        assertTrue(r.isFinished());
+        r.reset(new StringReader("(w)"));
+        assertEquals(1, r.getLine());
+        assertEquals(0L, r.getOffset());
+        assertEquals(List.of("w"), r.read());
+        assertNull(r.read());
+    }
+
+    @Test
+    public void skipTest() {
+        String text = " (foo (bar baz) ()) qux (open (deeper";
+        ReadTable r = new ReadTable(text);
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        FormStats stats = new FormStats();
+        assertTrue(r.skip(stats));
+        assertEquals(1L, stats.getStart());
+        assertEquals(19L, stats.getEnd());
+        assertEquals(3L, stats.getAtoms());
+        assertEquals(3L, stats.getLists());
+        assertEquals(2, stats.getMaxDepth());
+        assertEquals(0, stats.getUnclosed());
+        assertTrue(r.skip(stats));
+        assertEquals(1L, stats.getAtoms());
+        assertEquals(0L, stats.getLists());
+        assertEquals(text.indexOf("qux"), stats.getStart());
+        assertTrue(r.skip(stats));
+        assertEquals(2, stats.getUnclosed());
+        assertEquals(2L, stats.getAtoms());
+        assertFalse(r.skip(stats));
+    }
+
+    @Test
+    public void skipMatchesReadTest() {
+        String text = "a (b c) ((d) e) (f g (h i (j)))";
+        ReadTable reader = new ReadTable(text);
+        reader.addMacro(')', new SingleCharReaderMacro(")"));
+        reader.addMacro('(', new AccumulatorReaderMacro(")"));
+        ReadTable skipper = new ReadTable(text);
+        skipper.addMacro(')', new SingleCharReaderMacro(")"));
+        skipper.addMacro('(', new AccumulatorReaderMacro(")"));
+        FormStats expected = new FormStats();
+        FormStats actual = new FormStats();
+        Object form;
+        while (null != (form = reader.read())) {
+            expected.clear();
+            expected.count(form, 0);
+            assertTrue(skipper.skip(actual));
+            assertEquals(expected.getAtoms(), actual.getAtoms());
+            assertEquals(expected.getLists(), actual.getLists());
+            assertEquals(expected.getMaxDepth(), actual.getMaxDepth());
+        }
+        assertFalse(skipper.skip(actual));
+    }
+
+    @Test
+    public void numericLiteralsTest() {
+        ReadTable r = new ReadTable("(1 -2.5 x) 42 1e3 foo");
+        r.addMacro(')', new SingleCharReaderMacro(")"));
+        r.addMacro('(', new AccumulatorReaderMacro(")"));
+        r.setNumericLiterals(true);
+        assertEquals(List.of(1L, -2.5, "x"), r.read());
+        List<Object> seen = new ArrayList<>();
+        FormSink sink = new FormSink() {
+                @Override
+                public void accept(final Object form) {
+                    seen.add(form);
+                }
+
+                @Override
+                public void acceptLong(final long value) {
+                    seen.add("long " + value);
+                }
+
+                @Override
+                public void acceptDouble(final double value) {
+                    seen.add("double " + value);
+                }
+            };
+        while (r.readInto(sink)) {
+            continue;
+        }
+        assertEquals(List.of("long 42", "double 1000.0", "foo"), seen);
+    }
 }
\ No newline at end of file
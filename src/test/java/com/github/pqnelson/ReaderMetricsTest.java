@@ -0,0 +1,87 @@
+package com.github.pqnelson;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ReaderMetricsTest {
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void countTest() {
+        ReaderMetrics metrics = new ReaderMetrics();
+        ReadTable r = LISP.newReader("(a (b)) c ");
+        assertNull(r.getMetrics());
+        r.setMetrics(metrics);
+        assertEquals(List.of("a", List.of("b")), r.read());
+        assertEquals("c", r.read());
+        assertNull(r.read());
+        assertEquals(2L, metrics.getForms());
+        assertEquals(10L, metrics.getChars());
+        assertEquals(2L, metrics.getInvocations('('));
+        assertEquals(2L, metrics.getInvocations(')'));
+        assertEquals(0L, metrics.getInvocations('x'));
+        assertEquals(0L, metrics.getSlowForms());
+        long calls = 0;
+        for (long bucket : metrics.getLatencyHistogram('(')) {
+            calls += bucket;
+        }
+        assertEquals(2L, calls);
+        assertEquals(List.of((int) '(', (int) ')'),
+                     List.of(metrics.getCodepoints()[0],
+                             metrics.getCodepoints()[1]));
+        metrics.clear();
+        assertEquals(0L, metrics.getForms());
+        assertEquals(0, metrics.getCodepoints().length);
+    }
+
+    @Test
+    public void sharedTest() {
+        ReaderMetrics metrics = new ReaderMetrics();
+        for (int i = 0; i < 3; i++) {
+            ReadTable r = LISP.newReader("(x)");
+            r.setMetrics(metrics);
+            r.read();
+        }
+        assertEquals(3L, metrics.getForms());
+        assertEquals(3L, metrics.getInvocations('('));
+    }
+
+    @Test
+    public void slowFormEventTest() throws Exception {
+        ReaderMetrics metrics = new ReaderMetrics(0L);
+        Path file = this.tmp.resolve("reader.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(SlowFormEvent.class);
+            recording.start();
+            ReadTable r = LISP.newReader("  first\n (second)");
+            r.setMetrics(metrics);
+            r.read();
+            r.read();
+            recording.stop();
+            recording.dump(file);
+        }
+        assertEquals(2L, metrics.getSlowForms());
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(2, events.size());
+        RecordedEvent second = events.get(1);
+        assertEquals("com.github.pqnelson.SlowForm",
+                     second.getEventType().getName());
+        assertEquals(9L, second.getLong("startOffset"));
+        assertEquals(2, second.getInt("line"));
+        assertEquals(2, second.getInt("column"));
+        assertTrue(second.getString("formType").endsWith("List"));
+    }
+}
\ No newline at end of file
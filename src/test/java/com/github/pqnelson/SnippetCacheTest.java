@@ -0,0 +1,99 @@
+package com.github.pqnelson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.github.pqnelson.Fixtures.LISP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class SnippetCacheTest {
+    @Test
+    public void hitTest() {
+        SnippetCache cache = new SnippetCache(1 << 20);
+        Object first = cache.read(LISP, "(get (user id) name)");
+        assertEquals(List.of("get", List.of("user", "id"), "name"), first);
+        assertSame(first, cache.read(LISP, "(get (user id) name)"));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        assertThrows(UnsupportedOperationException.class,
+                     () -> ((List<?>) first).clear());
+        assertThrows(UnsupportedOperationException.class,
+                     () -> ((List<?>) ((List<?>) first).get(1)).clear());
+        assertNull(cache.read(LISP, "   "));
+    }
+
+    @Test
+    public void keyedByDefinitionTest() {
+        SnippetCache cache = new SnippetCache(1 << 20);
+        Object lisp = cache.read(LISP, "(a)");
+        Object naive = cache.read(ReadTableDefinition.empty(), "(a)");
+        assertEquals(List.of("a"), lisp);
+        assertEquals("(a)", naive);
+        assertNotSame(lisp, naive);
+    }
+
+    @Test
+    public void customMacroTest() {
+        LineNumberCounter lines = new LineNumberCounter();
+        ReadTableDefinition custom = LISP.withMacro('\n', lines);
+        SnippetCache cache = new SnippetCache(1 << 20);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(List.of(List.of("a"), "b"),
+                         cache.readAll(custom, "(a)\nb"));
+        }
+        // read afresh every time, so the line counter saw every line
+        assertEquals(4, lines.getLine());
+        assertEquals(0L, cache.getHits());
+        assertEquals(0L, cache.getMisses());
+        assertEquals(0L, cache.weight());
+    }
+
+    @Test
+    public void weightEvictionTest() {
+        SnippetCache cache = new SnippetCache(100, 1);
+        for (int i = 0; i < 100; i++) {
+            cache.readAll(LISP, "(snippet " + i + ")");
+        }
+        assertTrue(cache.weight() <= 100);
+        assertTrue(cache.getEvictions() > 0);
+        cache.readAll(LISP, "(snippet 99)");
+        assertEquals(1L, cache.getHits());
+        cache.readAll(LISP, "(snippet 0)");
+        assertEquals(1L, cache.getHits());
+    }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        SnippetCache cache = new SnippetCache(1 << 16);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String snippet = "(op " + (i % 50) + ")";
+                        assertEquals(List.of("op", "" + (i % 50)),
+                                     cache.read(LISP, snippet));
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(8000L, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() >= 8000L - 4 * 50);
+    }
+}
\ No newline at end of file
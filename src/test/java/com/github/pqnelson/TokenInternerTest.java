@@ -0,0 +1,55 @@
+package com.github.pqnelson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenInternerTest {
+    /**
+     * Repeated tokens come back as the same string, and are counted.
+     */
+    @Test
+    public void repeatedTokenTest() {
+        TokenInterner interner = new TokenInterner(16);
+        char[] buf = "(defun defun)".toCharArray();
+        String first = interner.intern(buf, 1, 5);
+        String second = interner.intern(buf, 7, 5);
+        assertEquals("defun", first);
+        assertSame(first, second);
+        assertEquals(1, interner.getHits());
+        assertEquals(1, interner.getMisses());
+    }
+
+    /**
+     * The table never holds more than its capacity, evicting as it goes.
+     */
+    @Test
+    public void evictionTest() {
+        TokenInterner interner = new TokenInterner(8);
+        assertEquals(8, interner.capacity());
+        for (int i = 0; i < 100; i++) {
+            char[] buf = ("sym" + i).toCharArray();
+            interner.intern(buf, 0, buf.length);
+        }
+        assertEquals(100, interner.getMisses());
+        assertEquals(92, interner.getEvictions());
+    }
+
+    /**
+     * A read table with an interner shares the strings of its symbols.
+     */
+    @Test
+    public void readTableTest() {
+        ReadTable r = new ReadTable("car cdr car\ncar");
+        TokenInterner interner = new TokenInterner(64);
+        r.setInterner(interner);
+        Object car = r.read();
+        Object cdr = r.read();
+        assertSame(car, r.read());
+        assertSame(car, r.read());
+        assertNotSame(car, cdr);
+        assertEquals(2, interner.getHits());
+    }
+}
\ No newline at end of file
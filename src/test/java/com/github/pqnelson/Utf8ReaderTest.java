@@ -0,0 +1,111 @@
+package com.github.pqnelson;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class Utf8ReaderTest {
+    /**
+     * Read everything, a few characters at a time.
+     *
+     * @param reader The reader.
+     * @param chunk How many characters to ask for at once.
+     * @return The text read.
+     * @throws IOException Never, for in-memory input.
+     */
+    private static String drain(final Reader reader, final int chunk)
+        throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buf = new char[chunk];
+        int n;
+        while (-1 != (n = reader.read(buf, 0, chunk))) {
+            text.append(buf, 0, n);
+        }
+        return text.toString();
+    }
+
+    /**
+     * A stream handing out at most a few bytes per read, so sequences
+     * are split between reads.
+     *
+     * @param bytes The content.
+     * @param step The most bytes per read.
+     * @return The stream.
+     */
+    private static InputStream trickle(final byte[] bytes, final int step) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(final byte[] b, final int off,
+                                         final int len) {
+                return super.read(b, off, Math.min(step, len));
+            }
+        };
+    }
+
+    @Test
+    public void decodeTest() throws IOException {
+        String text = "(plain ascii text, long enough for words) "
+            + "café € 😀 あい \uD836\uDC00 end";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(text, drain(new Utf8Reader(
+            new ByteArrayInputStream(bytes)), 64));
+        assertEquals(text, drain(new Utf8Reader(ByteBuffer.wrap(bytes)), 1));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertEquals(text, drain(new Utf8Reader(direct), 7));
+        assertEquals(bytes.length, direct.remaining());
+        for (int step = 1; step < 6; step++) {
+            assertEquals(text, drain(new Utf8Reader(trickle(bytes, step)),
+                                     3));
+            assertEquals(text, drain(new Utf8Reader(Channels.newChannel(
+                trickle(bytes, step))), 5));
+        }
+    }
+
+    @Test
+    public void malformedTest() throws IOException {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            for (int i = 0; i < bytes.length; i++) {
+                int r = random.nextInt(4);
+                bytes[i] = (byte) (0 == r ? 'a' + random.nextInt(26)
+                                   : 0x80 + random.nextInt(0x80));
+            }
+            String expected = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .decode(ByteBuffer.wrap(bytes)).toString();
+            assertEquals(expected, drain(new Utf8Reader(
+                ByteBuffer.wrap(bytes)), 16));
+            assertEquals(expected, drain(new Utf8Reader(
+                trickle(bytes, 1 + round % 3)), 2));
+        }
+    }
+
+    @Test
+    public void readTableTest() {
+        byte[] bytes = "(λ (x) x) café"
+            .getBytes(StandardCharsets.UTF_8);
+        ReadTableDefinition lisp = ReadTableDefinition.builder()
+            .addMacro(')', new SingleCharReaderMacro(")"))
+            .addMacro('(', new AccumulatorReaderMacro(")"))
+            .build();
+        ReadTable r = lisp.newReader(new ByteArrayInputStream(bytes));
+        assertEquals(List.of("λ", List.of("x"), "x"), r.read());
+        assertEquals("café", r.read());
+        int tail = bytes.length - 5;
+        assertEquals("café", ReadTable.fromUtf8(
+            ByteBuffer.wrap(bytes, tail, 5)).read());
+    }
+}
\ No newline at end of file